@@ -8,9 +8,16 @@ import com.github.jknack.handlebars.springmvc.SpringTemplateLoader;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.concurrent.TimeUnit;
 
 import freemarker.template.TemplateException;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.craftercms.core.cache.impl.CacheStoreAdapter;
 import org.craftercms.core.cache.impl.store.NoopCacheStoreAdapter;
 import org.craftercms.core.processors.ItemProcessor;
@@ -18,8 +25,16 @@ import org.craftercms.core.processors.impl.PageAwareIncludeDescriptorsProcessor;
 import org.craftercms.core.service.ContentStoreService;
 import org.craftercms.deployer.api.TargetService;
 import org.craftercms.deployer.api.exceptions.DeployerException;
+import org.craftercms.deployer.impl.DeploymentHistoryStore;
+import org.craftercms.deployer.impl.DeploymentHistoryStoreImpl;
+import org.craftercms.deployer.impl.DeploymentJournalImpl;
+import org.craftercms.deployer.impl.DeploymentMetrics;
 import org.craftercms.deployer.impl.ProcessedCommitsStore;
 import org.craftercms.deployer.impl.ProcessedCommitsStoreImpl;
+import org.craftercms.deployer.impl.SearchCommitCoalescer;
+import org.craftercms.deployer.impl.TargetConfigWatcher;
+import org.craftercms.deployer.impl.TargetLoadingMetrics;
+import org.craftercms.deployer.utils.git.SshSessionPool;
 import org.craftercms.deployer.utils.handlebars.ListHelper;
 import org.craftercms.deployer.utils.handlebars.MissingValueHelper;
 import org.slf4j.Logger;
@@ -68,8 +83,46 @@ public class DeployerApplication extends WebMvcConfigurerAdapter implements Sche
 	private boolean scheduledTargetScanEnabled;
 	@Value("${deployer.main.targets.scan.scheduling.cron}")
 	private String scheduledTargetScanCron;
+	@Value("${deployer.main.targets.config.folderPath}")
+	private File targetConfigFolder;
+	@Value("${deployer.main.targets.config.watch.enabled}")
+	private boolean targetConfigWatchEnabled;
+	@Value("${deployer.main.targets.config.watch.debounceInterval}")
+	private long targetConfigWatchDebounceInterval;
+	@Value("${deployer.main.targets.loading.executor.poolSize}")
+	private int targetLoadingTaskExecutorPoolSize;
 	@Value("${deployer.main.taskScheduler.poolSize}")
 	private int taskSchedulerPoolSize;
+	@Value("${deployer.main.deployments.executor.poolSize}")
+	private int deploymentTaskExecutorPoolSize;
+	@Value("${deployer.main.deployments.events.executor.poolSize}")
+	private int deploymentEventsTaskExecutorPoolSize;
+	@Value("${deployer.main.deployments.bulk.maxParallelism}")
+	private int bulkDeploymentMaxParallelism;
+	@Value("${deployer.main.search.indexing.executor.poolSize}")
+	private int searchIndexingTaskExecutorPoolSize;
+	@Value("${deployer.main.search.commit.interval}")
+	private long searchCommitInterval;
+	@Value("${deployer.main.http.client.pool.maxTotal}")
+	private int httpClientPoolMaxTotal;
+	@Value("${deployer.main.http.client.pool.maxPerRoute}")
+	private int httpClientPoolMaxPerRoute;
+	@Value("${deployer.main.http.client.timeouts.connect}")
+	private int httpClientConnectTimeout;
+	@Value("${deployer.main.http.client.timeouts.socket}")
+	private int httpClientSocketTimeout;
+	@Value("${deployer.main.http.client.timeouts.connectionRequest}")
+	private int httpClientConnectionRequestTimeout;
+	@Value("${deployer.main.http.client.keepAlive}")
+	private long httpClientKeepAlive;
+	@Value("${deployer.main.http.executor.poolSize}")
+	private int httpCallTaskExecutorPoolSize;
+	@Value("${deployer.main.git.ssh.sessionPool.idleTimeout}")
+	private long sshSessionPoolIdleTimeout;
+	@Value("${deployer.main.git.ssh.sessionPool.maxIdleSessionsPerKey}")
+	private int sshSessionPoolMaxIdleSessionsPerKey;
+	@Value("${deployer.main.git.ssh.sessionPool.evictionCron}")
+	private String sshSessionPoolEvictionCron;
 	@Value("${deployer.main.targets.config.templates.location}")
 	private String targetConfigTemplatesLocation;
 	@Value("${deployer.main.targets.config.templates.overrideLocation}")
@@ -80,6 +133,22 @@ public class DeployerApplication extends WebMvcConfigurerAdapter implements Sche
 	private String targetConfigTemplatesEncoding;
 	@Value("${deployer.main.deployments.processedCommits.folderPath}")
 	private File processedCommitsFolder;
+	@Value("${deployer.main.deployments.journal.enabled}")
+	private boolean deploymentJournalEnabled;
+	@Value("${deployer.main.deployments.journal.folderPath}")
+	private File deploymentJournalFolder;
+	@Value("${deployer.main.deployments.journal.fsync.policy}")
+	private String deploymentJournalFsyncPolicy;
+	@Value("${deployer.main.deployments.journal.fsync.interval}")
+	private long deploymentJournalFsyncInterval;
+	@Value("${deployer.main.deployments.journal.compactionThreshold}")
+	private int deploymentJournalCompactionThreshold;
+	@Value("${deployer.main.deployments.history.folderPath}")
+	private File deploymentHistoryFolder;
+	@Value("${deployer.main.deployments.history.maxCount}")
+	private int deploymentHistoryMaxCount;
+	@Value("${deployer.main.deployments.history.maxAge}")
+	private long deploymentHistoryMaxAge;
 	@Autowired
 	private TargetService targetService;
 	@Autowired
@@ -114,6 +183,33 @@ public class DeployerApplication extends WebMvcConfigurerAdapter implements Sche
 		return store;
 	}
 
+	@Bean(destroyMethod = "close")
+	public DeploymentJournalImpl deploymentJournal() {
+		DeploymentJournalImpl journal = new DeploymentJournalImpl();
+		journal.setStoreFolder(deploymentJournalFolder);
+		journal.setEnabled(deploymentJournalEnabled);
+		journal.setFsyncPolicy(deploymentJournalFsyncPolicy);
+		journal.setFsyncInterval(deploymentJournalFsyncInterval);
+		journal.setCompactionThreshold(deploymentJournalCompactionThreshold);
+
+		return journal;
+	}
+
+	@Bean
+	public DeploymentHistoryStore deploymentHistoryStore() {
+		DeploymentHistoryStoreImpl store = new DeploymentHistoryStoreImpl();
+		store.setStoreFolder(deploymentHistoryFolder);
+		store.setMaxCount(deploymentHistoryMaxCount);
+		store.setMaxAge(deploymentHistoryMaxAge);
+
+		return store;
+	}
+
+	@Bean
+	public DeploymentMetrics deploymentMetrics() {
+		return new DeploymentMetrics();
+	}
+
 	@Bean
 	@Primary
 	public ObjectMapper objectMapper(Jackson2ObjectMapperBuilder builder) {
@@ -130,6 +226,120 @@ public class DeployerApplication extends WebMvcConfigurerAdapter implements Sche
 		return taskScheduler;
 	}
 
+	@Bean
+	public TargetLoadingMetrics targetLoadingMetrics() {
+		return new TargetLoadingMetrics();
+	}
+
+	@Bean
+	public ThreadPoolTaskExecutor targetLoadingTaskExecutor() {
+		ThreadPoolTaskExecutor taskExecutor = new ThreadPoolTaskExecutor();
+		taskExecutor.setCorePoolSize(targetLoadingTaskExecutorPoolSize);
+		taskExecutor.setMaxPoolSize(targetLoadingTaskExecutorPoolSize);
+		taskExecutor.setAllowCoreThreadTimeOut(true);
+		taskExecutor.setThreadNamePrefix("target-loading-");
+
+		return taskExecutor;
+	}
+
+	@Bean(initMethod = "start", destroyMethod = "stop")
+	public TargetConfigWatcher targetConfigWatcher() {
+		return new TargetConfigWatcher(targetConfigFolder, targetConfigWatchEnabled, targetConfigWatchDebounceInterval, targetService,
+		                               targetLoadingTaskExecutor());
+	}
+
+	@Bean
+	public ThreadPoolTaskExecutor deploymentTaskExecutor() {
+		ThreadPoolTaskExecutor taskExecutor = new ThreadPoolTaskExecutor();
+		taskExecutor.setCorePoolSize(deploymentTaskExecutorPoolSize);
+		taskExecutor.setMaxPoolSize(deploymentTaskExecutorPoolSize);
+		taskExecutor.setAllowCoreThreadTimeOut(true);
+		taskExecutor.setThreadNamePrefix("deployment-");
+
+		return taskExecutor;
+	}
+
+	@Bean
+	public ThreadPoolTaskExecutor deploymentEventsTaskExecutor() {
+		ThreadPoolTaskExecutor taskExecutor = new ThreadPoolTaskExecutor();
+		taskExecutor.setCorePoolSize(deploymentEventsTaskExecutorPoolSize);
+		taskExecutor.setMaxPoolSize(deploymentEventsTaskExecutorPoolSize);
+		taskExecutor.setAllowCoreThreadTimeOut(true);
+		taskExecutor.setThreadNamePrefix("deployment-events-");
+
+		return taskExecutor;
+	}
+
+	@Bean
+	public ThreadPoolTaskExecutor bulkDeploymentTaskExecutor() {
+		ThreadPoolTaskExecutor taskExecutor = new ThreadPoolTaskExecutor();
+		taskExecutor.setCorePoolSize(Math.max(1, bulkDeploymentMaxParallelism));
+		taskExecutor.setMaxPoolSize(Math.max(1, bulkDeploymentMaxParallelism));
+		taskExecutor.setAllowCoreThreadTimeOut(true);
+		taskExecutor.setThreadNamePrefix("bulk-deployment-");
+
+		return taskExecutor;
+	}
+
+	@Bean
+	public ThreadPoolTaskExecutor searchIndexingTaskExecutor() {
+		ThreadPoolTaskExecutor taskExecutor = new ThreadPoolTaskExecutor();
+		taskExecutor.setCorePoolSize(searchIndexingTaskExecutorPoolSize);
+		taskExecutor.setMaxPoolSize(searchIndexingTaskExecutorPoolSize);
+		taskExecutor.setAllowCoreThreadTimeOut(true);
+		taskExecutor.setThreadNamePrefix("search-indexing-");
+
+		return taskExecutor;
+	}
+
+	@Bean
+	public ThreadPoolTaskExecutor httpCallTaskExecutor() {
+		ThreadPoolTaskExecutor taskExecutor = new ThreadPoolTaskExecutor();
+		taskExecutor.setCorePoolSize(httpCallTaskExecutorPoolSize);
+		taskExecutor.setMaxPoolSize(httpCallTaskExecutorPoolSize);
+		taskExecutor.setAllowCoreThreadTimeOut(true);
+		taskExecutor.setThreadNamePrefix("http-call-");
+
+		return taskExecutor;
+	}
+
+	@Bean(destroyMethod="close")
+	public CloseableHttpClient httpClient() {
+		PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+		connectionManager.setMaxTotal(httpClientPoolMaxTotal);
+		connectionManager.setDefaultMaxPerRoute(httpClientPoolMaxPerRoute);
+
+		RequestConfig requestConfig = RequestConfig.custom()
+			.setConnectTimeout(httpClientConnectTimeout)
+			.setSocketTimeout(httpClientSocketTimeout)
+			.setConnectionRequestTimeout(httpClientConnectionRequestTimeout)
+			.build();
+
+		// Use the keep alive sent by the server, or the configured one if the server didn't send any
+		ConnectionKeepAliveStrategy keepAliveStrategy = (response, context) -> {
+			long keepAlive = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+			return keepAlive > 0? keepAlive : httpClientKeepAlive;
+		};
+
+		return HttpClients.custom()
+			.setConnectionManager(connectionManager)
+			.setDefaultRequestConfig(requestConfig)
+			.setKeepAliveStrategy(keepAliveStrategy)
+			.evictExpiredConnections()
+			.evictIdleConnections(httpClientKeepAlive, TimeUnit.MILLISECONDS)
+			.build();
+	}
+
+	@Bean(destroyMethod="flush")
+	public SearchCommitCoalescer searchCommitCoalescer() {
+		return new SearchCommitCoalescer();
+	}
+
+	@Bean(destroyMethod="close")
+	public SshSessionPool sshSessionPool() {
+		return new SshSessionPool(sshSessionPoolIdleTimeout, sshSessionPoolMaxIdleSessionsPerKey);
+	}
+
 	@Bean
 	public Handlebars targetConfigTemplateEngine(ResourceLoader resourceLoader) throws IOException, TemplateException {
 		SpringTemplateLoader templateOverridesLoader = new SpringTemplateLoader(resourceLoader);
@@ -160,6 +370,8 @@ public class DeployerApplication extends WebMvcConfigurerAdapter implements Sche
 	public void configureTasks(ScheduledTaskRegistrar taskRegistrar) {
 		taskRegistrar.setScheduler(taskScheduler());
 		configureTargetScanTask(taskRegistrar);
+		configureSshSessionEvictionTask(taskRegistrar);
+		configureSearchCommitTask(taskRegistrar);
 	}
 
 	private void configureTargetScanTask(ScheduledTaskRegistrar taskRegistrar) {
@@ -180,4 +392,20 @@ public class DeployerApplication extends WebMvcConfigurerAdapter implements Sche
 		}
 	}
 
+	private void configureSearchCommitTask(ScheduledTaskRegistrar taskRegistrar) {
+		if (searchCommitInterval > 0) {
+			SearchCommitCoalescer commitCoalescer = searchCommitCoalescer();
+
+			taskRegistrar.addFixedDelayTask(commitCoalescer::flush, searchCommitInterval);
+		}
+	}
+
+	private void configureSshSessionEvictionTask(ScheduledTaskRegistrar taskRegistrar) {
+		if (StringUtils.isNotEmpty(sshSessionPoolEvictionCron)) {
+			SshSessionPool sessionPool = sshSessionPool();
+
+			taskRegistrar.addCronTask(sessionPool::evictIdleSessions, sshSessionPoolEvictionCron);
+		}
+	}
+
 }
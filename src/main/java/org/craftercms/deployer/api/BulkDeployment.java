@@ -0,0 +1,137 @@
+/*
+ * Copyright (C) 2007-2017 Crafter Software Corporation.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.craftercms.deployer.api;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Aggregate result of the deployment of several targets at once.
+ *
+ * @author avasquez
+ */
+public class BulkDeployment {
+
+    protected final ZonedDateTime start;
+    protected volatile ZonedDateTime end;
+    protected final int targetsCount;
+    protected final List<Deployment> deployments;
+
+    public BulkDeployment(int targetsCount) {
+        this.start = ZonedDateTime.now();
+        this.targetsCount = targetsCount;
+        this.deployments = new ArrayList<>();
+    }
+
+    /**
+     * Returns the start date of the bulk deployment.
+     */
+    @JsonProperty("start")
+    public ZonedDateTime getStart() {
+        return start;
+    }
+
+    /**
+     * Returns the date when all the target deployments were done.
+     */
+    @JsonProperty("end")
+    public ZonedDateTime getEnd() {
+        return end;
+    }
+
+    /**
+     * Returns true if some of the target deployments haven't finished yet.
+     */
+    @JsonProperty("running")
+    public boolean isRunning() {
+        return end == null;
+    }
+
+    /**
+     * Returns the duration of the bulk deployment.
+     */
+    @JsonProperty("duration")
+    public Long getDuration() {
+        if (end != null) {
+            return start.until(end, ChronoUnit.MILLIS);
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * Returns the number of targets being deployed.
+     */
+    @JsonProperty("targets_count")
+    public int getTargetsCount() {
+        return targetsCount;
+    }
+
+    /**
+     * Returns the target deployments added so far. When the caller doesn't wait for the deployments, these are all the queued
+     * deployments, and when it waits, only the deployments that have finished.
+     */
+    @JsonProperty("deployments")
+    public synchronized List<Deployment> getDeployments() {
+        return new ArrayList<>(deployments);
+    }
+
+    /**
+     * Returns the number of deployments that finished successfully.
+     */
+    @JsonProperty("successful_count")
+    public synchronized int getSuccessfulCount() {
+        return (int) deployments.stream().filter(d -> !d.isRunning() && d.getStatus() == Deployment.Status.SUCCESS).count();
+    }
+
+    /**
+     * Returns the number of deployments that failed.
+     */
+    @JsonProperty("failed_count")
+    public synchronized int getFailedCount() {
+        return (int) deployments.stream().filter(d -> !d.isRunning() && d.getStatus() == Deployment.Status.FAILURE).count();
+    }
+
+    /**
+     * Returns the number of targets whose deployment hasn't finished yet.
+     */
+    @JsonProperty("unfinished_count")
+    public int getUnfinishedCount() {
+        return targetsCount - getSuccessfulCount() - getFailedCount();
+    }
+
+    /**
+     * Adds the deployment of one of the targets.
+     */
+    public synchronized void addDeployment(Deployment deployment) {
+        deployments.add(deployment);
+    }
+
+    /**
+     * Ends the bulk deployment, after all the target deployments are done.
+     */
+    public void end() {
+        if (end == null) {
+            end = ZonedDateTime.now();
+        }
+    }
+
+}
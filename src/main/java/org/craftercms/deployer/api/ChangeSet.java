@@ -19,33 +19,60 @@ package org.craftercms.deployer.api;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
 
-import org.apache.commons.collections4.CollectionUtils;
+import org.craftercms.deployer.utils.collections.CompactPathList;
 
 /**
- * The collection of created, updated and deleted files that have been changed in a deployment.
+ * The collection of created, updated and deleted files that have been changed in a deployment. The paths are kept in a single
+ * {@link CompactPathList}, and the created, updated and deleted files are just lists of indexes into it, so big change sets take
+ * little memory, and filtered change sets (see {@link #filter(Predicate)}) share the paths of the original one instead of
+ * copying them.
  *
  * @author avasquez
  */
 public class ChangeSet {
 
-    protected List<String> createdFiles;
-    protected List<String> updatedFiles;
-    protected List<String> deletedFiles;
+    protected CompactPathList paths;
+    protected PathIndexList createdFiles;
+    protected PathIndexList updatedFiles;
+    protected PathIndexList deletedFiles;
+    protected ConcurrentMap<Object, ChangeSet> filteredViews;
 
     public ChangeSet() {
-        this.createdFiles = new ArrayList<>();
-        this.updatedFiles = new ArrayList<>();
-        this.deletedFiles = new ArrayList<>();
+        this.paths = new CompactPathList();
+        this.createdFiles = new PathIndexList(paths);
+        this.updatedFiles = new PathIndexList(paths);
+        this.deletedFiles = new PathIndexList(paths);
+        this.filteredViews = new ConcurrentHashMap<>();
     }
 
     public ChangeSet(List<String> createdFiles, List<String> updatedFiles, List<String> deletedFiles) {
+        this();
+
+        createdFiles.forEach(this::addCreatedFile);
+        updatedFiles.forEach(this::addUpdatedFile);
+        deletedFiles.forEach(this::addDeletedFile);
+    }
+
+    protected ChangeSet(CompactPathList paths, PathIndexList createdFiles, PathIndexList updatedFiles,
+                        PathIndexList deletedFiles) {
+        this.paths = paths;
         this.createdFiles = createdFiles;
         this.updatedFiles = updatedFiles;
         this.deletedFiles = deletedFiles;
+        this.filteredViews = new ConcurrentHashMap<>();
     }
 
     /**
@@ -72,14 +99,212 @@ public class ChangeSet {
         return Collections.unmodifiableList(deletedFiles);
     }
 
+    /**
+     * Returns a stream of the created files.
+     */
+    public Stream<String> streamCreatedFiles() {
+        return createdFiles.stream();
+    }
+
+    /**
+     * Returns a stream of the updated files.
+     */
+    public Stream<String> streamUpdatedFiles() {
+        return updatedFiles.stream();
+    }
+
+    /**
+     * Returns a stream of the deleted files.
+     */
+    public Stream<String> streamDeletedFiles() {
+        return deletedFiles.stream();
+    }
+
+    /**
+     * Adds a created file.
+     */
+    public void addCreatedFile(String path) {
+        createdFiles.addIndex(addPath(path));
+    }
+
+    /**
+     * Adds an updated file.
+     */
+    public void addUpdatedFile(String path) {
+        updatedFiles.addIndex(addPath(path));
+    }
+
+    /**
+     * Adds a deleted file.
+     */
+    public void addDeletedFile(String path) {
+        deletedFiles.addIndex(addPath(path));
+    }
+
+    /**
+     * Returns a view of this change set with only the files that match the specified predicate. The view shares the paths of
+     * this change set, so it only takes an index per matched file.
+     *
+     * @param predicate the predicate the files need to match
+     *
+     * @return the filtered change set
+     */
+    public ChangeSet filter(Predicate<String> predicate) {
+        return new ChangeSet(paths, createdFiles.filter(predicate), updatedFiles.filter(predicate),
+                             deletedFiles.filter(predicate));
+    }
+
+    /**
+     * Same as {@link #filter(Predicate)}, but the view is cached under the specified key, so that callers that use the same
+     * predicate (like processors with the same include/exclude patterns) share a single view. The cached views are discarded
+     * when files are added to this change set.
+     *
+     * @param key       the key that identifies the predicate (it needs to implement {@code equals} and {@code hashCode})
+     * @param predicate the predicate the files need to match
+     *
+     * @return the filtered change set
+     */
+    public ChangeSet filter(Object key, Predicate<String> predicate) {
+        return filteredViews.computeIfAbsent(key, k -> filter(predicate));
+    }
+
+    /**
+     * Splits this change set in batches of at most the specified number of files. The files keep their order (first the
+     * created, then the updated and then the deleted files), and the batches share the paths of this change set.
+     *
+     * @param batchSize the max number of files of each batch
+     *
+     * @return the batches, or a list with just this change set if it doesn't have more files than the batch size
+     */
+    public List<ChangeSet> split(int batchSize) {
+        int createdCount = createdFiles.size();
+        int updatedCount = updatedFiles.size();
+        int total = createdCount + updatedCount + deletedFiles.size();
+
+        if (batchSize <= 0 || total <= batchSize) {
+            return Collections.singletonList(this);
+        }
+
+        List<ChangeSet> batches = new ArrayList<>();
+
+        for (int start = 0; start < total; start += batchSize) {
+            int end = Math.min(start + batchSize, total);
+
+            batches.add(new ChangeSet(paths, createdFiles.range(start, end),
+                                      updatedFiles.range(start - createdCount, end - createdCount),
+                                      deletedFiles.range(start - createdCount - updatedCount, end - createdCount - updatedCount)));
+        }
+
+        return batches;
+    }
+
     /**
      * Returns true if there are not created, updated or deleted files.
      */
     @JsonIgnore
     public boolean isEmpty() {
-        return CollectionUtils.isEmpty(createdFiles) &&
-               CollectionUtils.isEmpty(updatedFiles) &&
-               CollectionUtils.isEmpty(deletedFiles);
+        return createdFiles.isEmpty() && updatedFiles.isEmpty() && deletedFiles.isEmpty();
+    }
+
+    protected int addPath(String path) {
+        if (!filteredViews.isEmpty()) {
+            filteredViews.clear();
+        }
+
+        paths.add(path);
+
+        return paths.size() - 1;
+    }
+
+    /**
+     * List of paths that are stored as indexes into a {@link CompactPathList}.
+     */
+    protected static class PathIndexList extends AbstractList<String> implements RandomAccess {
+
+        protected final CompactPathList paths;
+        protected int[] indexes;
+        protected int size;
+
+        public PathIndexList(CompactPathList paths) {
+            this(paths, new int[8], 0);
+        }
+
+        public PathIndexList(CompactPathList paths, int[] indexes, int size) {
+            this.paths = paths;
+            this.indexes = indexes;
+            this.size = size;
+        }
+
+        @Override
+        public String get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+            }
+
+            return paths.get(indexes[index]);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public Iterator<String> iterator() {
+            // The indexes are normally ascending, so the cursor decodes each path from the previous one
+            CompactPathList.Cursor cursor = paths.cursor();
+
+            return new Iterator<String>() {
+
+                protected int next;
+
+                @Override
+                public boolean hasNext() {
+                    return next < size;
+                }
+
+                @Override
+                public String next() {
+                    if (next >= size) {
+                        throw new NoSuchElementException();
+                    }
+
+                    return cursor.get(indexes[next++]);
+                }
+
+            };
+        }
+
+        public void addIndex(int index) {
+            if (size == indexes.length) {
+                indexes = Arrays.copyOf(indexes, size + (size >> 1) + 1);
+            }
+
+            indexes[size++] = index;
+            modCount++;
+        }
+
+        public PathIndexList range(int from, int to) {
+            from = Math.max(0, Math.min(from, size));
+            to = Math.max(from, Math.min(to, size));
+
+            return new PathIndexList(paths, Arrays.copyOfRange(indexes, from, to), to - from);
+        }
+
+        public PathIndexList filter(Predicate<String> predicate) {
+            CompactPathList.Cursor cursor = paths.cursor();
+            int[] matchedIndexes = new int[size];
+            int matchedSize = 0;
+
+            for (int i = 0; i < size; i++) {
+                if (predicate.test(cursor.get(indexes[i]))) {
+                    matchedIndexes[matchedSize++] = indexes[i];
+                }
+            }
+
+            return new PathIndexList(paths, Arrays.copyOf(matchedIndexes, matchedSize), matchedSize);
+        }
+
     }
 
 }
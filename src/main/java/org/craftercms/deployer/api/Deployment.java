@@ -22,11 +22,21 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 import java.time.ZonedDateTime;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * Represents a deployment. Contains every important status information of a particular deployment execution.
@@ -35,29 +45,54 @@ import java.util.concurrent.locks.ReentrantLock;
  */
 public class Deployment {
 
+    private static final Logger logger = LoggerFactory.getLogger(Deployment.class);
+
+    protected String id;
     protected Target target;
+    protected ZonedDateTime created;
     protected volatile ZonedDateTime start;
     protected volatile ZonedDateTime end;
     protected volatile Status status;
     protected volatile ChangeSet changeSet;
     protected List<ProcessorExecution> processorExecutions;
     protected Map<String, Object> params;
+    protected List<CompletableFuture<?>> pendingTasks;
+    protected CompletableFuture<Deployment> completionFuture;
+    protected List<ProgressListener> progressListeners;
     protected Lock lock;
 
     public Deployment(Target target) {
+        this.id = UUID.randomUUID().toString();
         this.target = target;
+        this.created = ZonedDateTime.now();
         this.processorExecutions = new ArrayList<>();
         this.params = new ConcurrentHashMap<>();
+        this.pendingTasks = new ArrayList<>();
+        this.completionFuture = new CompletableFuture<>();
+        this.progressListeners = new CopyOnWriteArrayList<>();
         this.lock = new ReentrantLock();
     }
 
     public Deployment(Target target, Map<String, Object> params) {
+        this.id = UUID.randomUUID().toString();
         this.target = target;
+        this.created = ZonedDateTime.now();
         this.processorExecutions = new ArrayList<>();
         this.params = new ConcurrentHashMap<>(params);
+        this.pendingTasks = new ArrayList<>();
+        this.completionFuture = new CompletableFuture<>();
+        this.progressListeners = new CopyOnWriteArrayList<>();
         this.lock = new ReentrantLock();
     }
 
+    /**
+     * Returns the unique ID of the deployment.
+     */
+    @JsonProperty("id")
+    public String getId() {
+        return id;
+    }
+
     /**
      * Returns the {@link Target} being deployed.
      */
@@ -66,6 +101,14 @@ public class Deployment {
         return target;
     }
 
+    /**
+     * Returns the date when the deployment was requested (queued).
+     */
+    @JsonProperty("created")
+    public ZonedDateTime getCreated() {
+        return created;
+    }
+
     /**
      * Returns the start date of the deployment.
      */
@@ -102,6 +145,16 @@ public class Deployment {
         }
     }
 
+    /**
+     * Returns the time in millis the deployment has spent in the target's queue waiting to start.
+     */
+    @JsonProperty("wait_time")
+    public long getWaitTime() {
+        ZonedDateTime waitEnd = start != null? start : ZonedDateTime.now();
+
+        return created.until(waitEnd, ChronoUnit.MILLIS);
+    }
+
     /**
      * Returns the status of the deployment, either success or failure.
      */
@@ -111,7 +164,7 @@ public class Deployment {
     }
 
     /**
-     * Returns the change set of the deployment.
+     * Returns the change set of the deployment, or null if it has been released by {@link #compact()}.
      */
     @JsonProperty("change_set")
     public ChangeSet getChangeSet() {
@@ -150,9 +203,41 @@ public class Deployment {
         if (isRunning()) {
             this.end = ZonedDateTime.now();
             this.status = status;
+
+            fireProgress();
         }
     }
 
+    /**
+     * Returns a future that's completed when the deployment is done (after the post deployment processors have also run), or
+     * cancelled if the deployment is cancelled before it starts. It can be used as a handle to wait for the deployment or to
+     * attach completion callbacks.
+     */
+    @JsonIgnore
+    public CompletableFuture<Deployment> getCompletionFuture() {
+        return completionFuture;
+    }
+
+    /**
+     * Adds a listener that's called each time the deployment progresses: when a processor starts its execution (which also
+     * means the previous one ended) and when the deployment ends. Use {@link #getCompletionFuture()} to be notified when the
+     * deployment is completely done.
+     *
+     * @param listener  the listener
+     * @param executor  the executor the listener is called on, so that a slow listener doesn't hold up the deployment. Use a
+     *                  serial executor if the listener needs to receive the notifications in order
+     */
+    public void addProgressListener(Consumer<Deployment> listener, Executor executor) {
+        progressListeners.add(new ProgressListener(listener, executor));
+    }
+
+    /**
+     * Removes a listener added through {@link #addProgressListener(Consumer, Executor)}.
+     */
+    public void removeProgressListener(Consumer<Deployment> listener) {
+        progressListeners.removeIf(progressListener -> progressListener.listener == listener);
+    }
+
     /**
      * Returns the list of {@link ProcessorExecution}s.
      */
@@ -176,8 +261,46 @@ public class Deployment {
         } finally {
             lock.unlock();
         }
+
+        fireProgress();
     }
 
+    /**
+     * Adds a task started by a processor that runs in parallel with the rest of the pipeline, and that should be finished
+     * before the deployment ends (see {@link #awaitPendingTasks()}).
+     */
+    public void addPendingTask(CompletableFuture<?> task) {
+        lock.lock();
+        try {
+            pendingTasks.add(task);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits until all pending tasks added through {@link #addPendingTask(CompletableFuture)} are finished. Failures of the
+     * tasks are ignored, since they're expected to be handled by the processors that started them.
+     */
+    public void awaitPendingTasks() {
+        List<CompletableFuture<?>> tasks;
+
+        lock.lock();
+        try {
+            tasks = new ArrayList<>(pendingTasks);
+            pendingTasks.clear();
+        } finally {
+            lock.unlock();
+        }
+
+        for (CompletableFuture<?> task : tasks) {
+            try {
+                task.join();
+            } catch (Exception e) {
+                // Ignore, the processor should have already handled it
+            }
+        }
+    }
 
     /**
      * Adds a param that can be used by processors during the deployment.
@@ -200,6 +323,64 @@ public class Deployment {
         return params.get(name);
     }
 
+    /**
+     * Returns a copy of all the params of the deployment.
+     */
+    @JsonIgnore
+    public Map<String, Object> getParams() {
+        return new HashMap<>(params);
+    }
+
+    /**
+     * Releases the data of the deployment that's no longer needed once it's done, so it can be kept around with a small
+     * footprint: the change set (with its cached filtered views), the params, the pending tasks and the progress listeners.
+     * The number of files of the deployment can still be found in the deployment history.
+     */
+    public void compact() {
+        changeSet = null;
+        params.clear();
+        progressListeners.clear();
+
+        lock.lock();
+        try {
+            pendingTasks.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    protected void fireProgress() {
+        for (ProgressListener listener : progressListeners) {
+            listener.fire();
+        }
+    }
+
+    protected class ProgressListener {
+
+        protected final Consumer<Deployment> listener;
+        protected final Executor executor;
+
+        public ProgressListener(Consumer<Deployment> listener, Executor executor) {
+            this.listener = listener;
+            this.executor = executor;
+        }
+
+        public void fire() {
+            try {
+                executor.execute(() -> {
+                    try {
+                        listener.accept(Deployment.this);
+                    } catch (Exception e) {
+                        logger.warn("Progress listener of deployment " + id + " failed", e);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                logger.warn("Progress listener of deployment " + id + " couldn't be notified", e);
+            }
+        }
+
+    }
+
     public enum Status {
         SUCCESS, FAILURE
     }
@@ -207,7 +388,8 @@ public class Deployment {
     @Override
     public String toString() {
         return "Deployment{" +
-               "targetId='" + target.getId() + "'" +
+               "id='" + id + "'" +
+               ", targetId='" + target.getId() + "'" +
                ", start=" + start +
                ", end=" + end +
                ", running=" + isRunning() +
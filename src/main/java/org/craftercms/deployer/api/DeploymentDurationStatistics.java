@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) 2007-2017 Crafter Software Corporation.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.craftercms.deployer.api;
+
+import java.util.Map;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Duration statistics of a set of finished deployments.
+ *
+ * @author avasquez
+ */
+public class DeploymentDurationStatistics {
+
+    protected final int count;
+    protected final long min;
+    protected final long max;
+    protected final long average;
+    protected final Map<String, Long> percentiles;
+
+    public DeploymentDurationStatistics(int count, long min, long max, long average, Map<String, Long> percentiles) {
+        this.count = count;
+        this.min = min;
+        this.max = max;
+        this.average = average;
+        this.percentiles = percentiles;
+    }
+
+    /**
+     * Returns the number of deployments.
+     */
+    @JsonProperty("count")
+    public int getCount() {
+        return count;
+    }
+
+    @JsonProperty("min")
+    public long getMin() {
+        return min;
+    }
+
+    @JsonProperty("max")
+    public long getMax() {
+        return max;
+    }
+
+    @JsonProperty("average")
+    public long getAverage() {
+        return average;
+    }
+
+    /**
+     * Returns the duration percentiles, keyed by percentile (e.g. {@code p50}, {@code p99.9}).
+     */
+    @JsonProperty("percentiles")
+    public Map<String, Long> getPercentiles() {
+        return percentiles;
+    }
+
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright (C) 2007-2017 Crafter Software Corporation.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.craftercms.deployer.api;
+
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Summary of a finished deployment, as kept in the deployment history of its target.
+ *
+ * @author avasquez
+ */
+public class DeploymentRecord {
+
+    protected final String id;
+    protected final ZonedDateTime created;
+    protected final ZonedDateTime start;
+    protected final ZonedDateTime end;
+    protected final Deployment.Status status;
+    protected final int createdFiles;
+    protected final int updatedFiles;
+    protected final int deletedFiles;
+
+    public static DeploymentRecord of(Deployment deployment) {
+        ChangeSet changeSet = deployment.getChangeSet();
+        if (changeSet != null) {
+            return new DeploymentRecord(deployment.getId(), deployment.getCreated(), deployment.getStart(), deployment.getEnd(),
+                                        deployment.getStatus(), changeSet.getCreatedFiles().size(), changeSet.getUpdatedFiles().size(),
+                                        changeSet.getDeletedFiles().size());
+        } else {
+            return new DeploymentRecord(deployment.getId(), deployment.getCreated(), deployment.getStart(), deployment.getEnd(),
+                                        deployment.getStatus(), 0, 0, 0);
+        }
+    }
+
+    @JsonCreator
+    public DeploymentRecord(@JsonProperty("id") String id,
+                            @JsonProperty("created") ZonedDateTime created,
+                            @JsonProperty("start") ZonedDateTime start,
+                            @JsonProperty("end") ZonedDateTime end,
+                            @JsonProperty("status") Deployment.Status status,
+                            @JsonProperty("created_files") int createdFiles,
+                            @JsonProperty("updated_files") int updatedFiles,
+                            @JsonProperty("deleted_files") int deletedFiles) {
+        this.id = id;
+        this.created = created;
+        this.start = start;
+        this.end = end;
+        this.status = status;
+        this.createdFiles = createdFiles;
+        this.updatedFiles = updatedFiles;
+        this.deletedFiles = deletedFiles;
+    }
+
+    @JsonProperty("id")
+    public String getId() {
+        return id;
+    }
+
+    @JsonProperty("created")
+    public ZonedDateTime getCreated() {
+        return created;
+    }
+
+    @JsonProperty("start")
+    public ZonedDateTime getStart() {
+        return start;
+    }
+
+    @JsonProperty("end")
+    public ZonedDateTime getEnd() {
+        return end;
+    }
+
+    @JsonProperty("status")
+    public Deployment.Status getStatus() {
+        return status;
+    }
+
+    @JsonProperty("created_files")
+    public int getCreatedFiles() {
+        return createdFiles;
+    }
+
+    @JsonProperty("updated_files")
+    public int getUpdatedFiles() {
+        return updatedFiles;
+    }
+
+    @JsonProperty("deleted_files")
+    public int getDeletedFiles() {
+        return deletedFiles;
+    }
+
+    /**
+     * Returns the time in millis the deployment took to run.
+     */
+    @JsonProperty("duration")
+    public long getDuration() {
+        return start.until(end, ChronoUnit.MILLIS);
+    }
+
+    /**
+     * Returns the time in millis the deployment waited in the target's queue.
+     */
+    @JsonProperty("wait_time")
+    public long getWaitTime() {
+        return created.until(start, ChronoUnit.MILLIS);
+    }
+
+}
@@ -16,11 +16,14 @@
  */
 package org.craftercms.deployer.api;
 
+import java.time.ZonedDateTime;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Future;
 
+import org.craftercms.deployer.api.exceptions.DeploymentNotFoundException;
 import org.craftercms.deployer.api.exceptions.DeploymentServiceException;
+import org.craftercms.deployer.api.exceptions.InvalidPercentileException;
 import org.craftercms.deployer.api.exceptions.TargetNotFoundException;
 
 /**
@@ -42,6 +45,25 @@ public interface DeploymentService {
      */
     List<Deployment> deployAllTargets(boolean waitTillDone, Map<String, Object> params) throws DeploymentServiceException;
 
+    /**
+     * Deploys all targets that match the specified env and site name patterns. When waiting till the deployments are done,
+     * they're executed in parallel, but with at most a configured number of target deployments at the same time.
+     *
+     * @param envPattern        regex the env of the targets should match (null to match any env)
+     * @param siteNamePattern   regex the site name of the targets should match (null to match any site)
+     * @param waitTillDone      if the method should wait till all deployments are done or return immediately
+     * @param timeout           the max time in millis to wait for the deployments when {@code waitTillDone} is true (0 means
+     *                          no timeout, and a negative value means the configured default). When the timeout elapses the
+     *                          deployments are not stopped, and the result shows how many are still unfinished
+     * @param params            additional parameters that can be used by the deployment processors
+     *
+     * @return the aggregate result of the deployments
+     *
+     * @throws DeploymentServiceException if there was an error while executing the deployments
+     */
+    BulkDeployment deployTargets(String envPattern, String siteNamePattern, boolean waitTillDone, long timeout,
+                                 Map<String, Object> params) throws DeploymentServiceException;
+
     /**
      * Deploys a single target
      *
@@ -57,4 +79,57 @@ public interface DeploymentService {
     Deployment deployTarget(String env, String siteName, boolean waitTillDone,
                             Map<String, Object> params) throws TargetNotFoundException, DeploymentServiceException;
 
+    /**
+     * Returns a deployment by its ID. Only pending, current and recently finished deployments can be found.
+     *
+     * @param id the ID of the deployment
+     *
+     * @return the deployment
+     *
+     * @throws DeploymentNotFoundException if there's no deployment with the specified ID
+     * @throws DeploymentServiceException if there was an error while retrieving the deployment
+     */
+    Deployment getDeployment(String id) throws DeploymentNotFoundException, DeploymentServiceException;
+
+    /**
+     * Returns the finished deployments of a target kept in its deployment history that match the specified criteria, most
+     * recent first.
+     *
+     * @param env       the target's environment (e.g. dev)
+     * @param siteName  the target's site name (e.g. mysite)
+     * @param status    the status of the deployments (null for any status)
+     * @param from      the min start date of the deployments (inclusive, null for no min)
+     * @param to        the max start date of the deployments (exclusive, null for no max)
+     * @param limit     the max number of deployments to return (0 or less for no limit)
+     *
+     * @return the matching deployments
+     *
+     * @throws TargetNotFoundException if the target doesn't exist
+     * @throws DeploymentServiceException if there was an error while retrieving the deployments
+     */
+    List<DeploymentRecord> getDeploymentHistory(String env, String siteName, Deployment.Status status, ZonedDateTime from,
+                                                ZonedDateTime to, int limit)
+        throws TargetNotFoundException, DeploymentServiceException;
+
+    /**
+     * Returns the duration statistics of the finished deployments of a target kept in its deployment history that match the
+     * specified criteria.
+     *
+     * @param env           the target's environment (e.g. dev)
+     * @param siteName      the target's site name (e.g. mysite)
+     * @param status        the status of the deployments (null for any status)
+     * @param from          the min start date of the deployments (inclusive, null for no min)
+     * @param to            the max start date of the deployments (exclusive, null for no max)
+     * @param percentiles   the duration percentiles to calculate (between 0 and 100)
+     *
+     * @return the duration statistics
+     *
+     * @throws TargetNotFoundException if the target doesn't exist
+     * @throws InvalidPercentileException if a percentile is not between 0 and 100
+     * @throws DeploymentServiceException if there was an error while calculating the statistics
+     */
+    DeploymentDurationStatistics getDeploymentDurationStatistics(String env, String siteName, Deployment.Status status,
+                                                                 ZonedDateTime from, ZonedDateTime to, double... percentiles)
+        throws TargetNotFoundException, DeploymentServiceException;
+
 }
@@ -26,6 +26,7 @@ import java.util.Map;
 
 import org.apache.commons.configuration2.Configuration;
 import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.Trigger;
 
 /**
  * Represents a deployment target.
@@ -58,6 +59,13 @@ public interface Target {
     @JsonProperty("load_date")
     ZonedDateTime getLoadDate();
 
+    /**
+     * Returns the digest of the content of the effective configuration the target was loaded with (its YAML and context files,
+     * plus the base YAML and context files and their overrides). The target is only reloaded when this digest changes.
+     */
+    @JsonProperty("config_digest")
+    String getConfigurationDigest();
+
     /**
      * Returns the YAML configuration file of the target.
      */
@@ -80,6 +88,17 @@ public interface Target {
      */
     Deployment deploy(boolean waitTillDone, Map<String, Object> params);
 
+    /**
+     * Queues a deployment of the target and returns right away. The returned deployment works as a handle: its
+     * {@link Deployment#getCompletionFuture()} is completed when the deployment is done.
+     *
+     * @param params miscellaneous parameters that can be used by the processors.
+     *
+     * @return the queued deployment (which can be a deployment that was already waiting in the queue, if the target coalesces
+     * deployments)
+     */
+    Deployment deploy(Map<String, Object> params);
+
     /**
      * Schedules deployment of the target.
      *
@@ -88,12 +107,26 @@ public interface Target {
      */
     void scheduleDeployment(TaskScheduler scheduler, String cronExpression);
 
+    /**
+     * Schedules deployment of the target.
+     *
+     * @param scheduler the scheduler to use
+     * @param trigger   the trigger that determines the execution times of the deployment
+     */
+    void scheduleDeployment(TaskScheduler scheduler, Trigger trigger);
+
     /**
      * Returns the pending deployments.
      */
     @JsonIgnore
     Collection<Deployment> getPendingDeployments();
 
+    /**
+     * Returns the number of deployments waiting in the target's queue.
+     */
+    @JsonProperty("pending_deployments_count")
+    int getPendingDeploymentsCount();
+
     /**
      * Returns the current deployment.
      */
@@ -106,6 +139,15 @@ public interface Target {
     @JsonIgnore
     Collection<Deployment> getAllDeployments();
 
+    /**
+     * Returns the deployment with the specified ID, if it's pending, current or one of the last finished deployments.
+     *
+     * @param id the ID of the deployment
+     *
+     * @return the deployment, or null if not found
+     */
+    Deployment getDeployment(String id);
+
     /**
      * Closes the target and releases any open resources.
      */
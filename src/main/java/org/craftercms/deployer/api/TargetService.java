@@ -16,6 +16,7 @@
  */
 package org.craftercms.deployer.api;
 
+import java.io.File;
 import java.util.List;
 import java.util.Map;
 
@@ -68,6 +69,18 @@ public interface TargetService {
      */
     List<Target> resolveTargets() throws TargetServiceException;
 
+    /**
+     * Resolves the target of a single configuration file: loads the target if the configuration is new or has been modified,
+     * or closes it if the configuration file doesn't exist anymore.
+     *
+     * @param configFile the YAML configuration file of the target
+     *
+     * @return the target, after being loaded, or null if the configuration file doesn't exist or isn't a target configuration
+     *
+     * @throws TargetServiceException if a general error occurs
+     */
+    Target resolveTarget(File configFile) throws TargetServiceException;
+
     /**
      * Returns all current loaded targets
      *
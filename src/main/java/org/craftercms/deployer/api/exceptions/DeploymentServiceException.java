@@ -27,6 +27,10 @@ public class DeploymentServiceException extends DeployerException {
         super(cause);
     }
 
+    public DeploymentServiceException(String message) {
+        super(message);
+    }
+
     public DeploymentServiceException(String message, Throwable cause) {
         super(message, cause);
     }
@@ -0,0 +1,38 @@
+/*
+ * Copyright (C) 2007-2017 Crafter Software Corporation.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.craftercms.deployer.api.exceptions;
+
+/**
+ * Exception thrown when a regex pattern used to select targets is not valid.
+ *
+ * @author avasquez
+ */
+public class InvalidPatternException extends DeploymentServiceException {
+
+    protected String pattern;
+
+    public InvalidPatternException(String pattern, Throwable cause) {
+        super("Invalid pattern '" + pattern + "'", cause);
+
+        this.pattern = pattern;
+    }
+
+    public String getPattern() {
+        return pattern;
+    }
+
+}
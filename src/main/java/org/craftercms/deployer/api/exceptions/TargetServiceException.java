@@ -27,6 +27,10 @@ public class TargetServiceException extends DeployerException {
         super(cause);
     }
 
+    public TargetServiceException(String message) {
+        super(message);
+    }
+
     public TargetServiceException(String message, Throwable cause) {
         super(message, cause);
     }
@@ -33,7 +33,19 @@ public class DeploymentConstants {
     public static final String TARGET_ID_CONFIG_KEY = "target.id";
     public static final String TARGET_SCHEDULED_DEPLOYMENT_ENABLED_CONFIG_KEY = "target.deployment.scheduling.enabled";
     public static final String TARGET_SCHEDULED_DEPLOYMENT_CRON_CONFIG_KEY = "target.deployment.scheduling.cron";
+    public static final String TARGET_SCHEDULED_DEPLOYMENT_JITTER_ENABLED_CONFIG_KEY = "target.deployment.scheduling.jitter.enabled";
+    public static final String TARGET_SCHEDULED_DEPLOYMENT_JITTER_MAX_DELAY_CONFIG_KEY = "target.deployment.scheduling.jitter.maxDelay";
+    public static final String TARGET_SCHEDULED_DEPLOYMENT_BACKOFF_THRESHOLD_CONFIG_KEY = "target.deployment.scheduling.backoff.threshold";
+    public static final String TARGET_SCHEDULED_DEPLOYMENT_BACKOFF_MAX_SKIPPED_RUNS_CONFIG_KEY =
+        "target.deployment.scheduling.backoff.maxSkippedRuns";
     public static final String TARGET_DEPLOYMENT_PIPELINE_CONFIG_KEY = "target.deployment.pipeline";
+    public static final String TARGET_DEPLOYMENT_COALESCING_ENABLED_CONFIG_KEY = "target.deployment.coalescing.enabled";
+    public static final String TARGET_FINISHED_DEPLOYMENTS_MAX_COUNT_CONFIG_KEY = "target.deployment.finished.maxCount";
+    public static final String TARGET_RELOAD_MODE_CONFIG_KEY = "target.reload.mode";
+    public static final String TARGET_LOCAL_REPO_PATH_CONFIG_KEY = "target.localRepoPath";
+    public static final String TARGET_GIT_MAINTENANCE_ENABLED_CONFIG_KEY = "target.git.maintenance.enabled";
+    public static final String TARGET_GIT_MAINTENANCE_CRON_CONFIG_KEY = "target.git.maintenance.cron";
+    public static final String TARGET_GIT_MAINTENANCE_AGGRESSIVE_CONFIG_KEY = "target.git.maintenance.aggressive";
 
     // Processor-specific Configuration Keys
 
@@ -52,5 +64,7 @@ public class DeploymentConstants {
     // Other constants
 
     public static final String PROCESSED_COMMIT_FILE_EXTENSION = "commit";
+    public static final String DEPLOYMENT_JOURNAL_FILE_EXTENSION = "journal";
+    public static final String DEPLOYMENT_HISTORY_FILE_EXTENSION = "history";
 
 }
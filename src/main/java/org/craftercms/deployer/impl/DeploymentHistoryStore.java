@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2007-2017 Crafter Software Corporation.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.craftercms.deployer.impl;
+
+import java.time.ZonedDateTime;
+import java.util.List;
+
+import org.craftercms.deployer.api.Deployment;
+import org.craftercms.deployer.api.DeploymentDurationStatistics;
+import org.craftercms.deployer.api.DeploymentRecord;
+import org.craftercms.deployer.api.exceptions.DeployerException;
+
+/**
+ * Stores a summary of the finished deployments of each target, with a bounded retention, so recent deployments can be queried
+ * after they're gone from the target.
+ *
+ * @author avasquez
+ */
+public interface DeploymentHistoryStore {
+
+    /**
+     * Adds a finished deployment to the history of its target.
+     *
+     * @param targetId      the target's ID
+     * @param deployment    the finished deployment
+     *
+     * @throws DeployerException if an error occurs
+     */
+    void record(String targetId, Deployment deployment) throws DeployerException;
+
+    /**
+     * Returns the deployments of the target that match the specified criteria, most recent first.
+     *
+     * @param targetId  the target's ID
+     * @param status    the status of the deployments (null for any status)
+     * @param from      the min start date of the deployments (inclusive, null for no min)
+     * @param to        the max start date of the deployments (exclusive, null for no max)
+     * @param limit     the max number of deployments to return (0 or less for no limit)
+     *
+     * @return the matching deployments
+     *
+     * @throws DeployerException if an error occurs
+     */
+    List<DeploymentRecord> find(String targetId, Deployment.Status status, ZonedDateTime from, ZonedDateTime to,
+                                int limit) throws DeployerException;
+
+    /**
+     * Returns the duration statistics of the deployments of the target that match the specified criteria.
+     *
+     * @param targetId      the target's ID
+     * @param status        the status of the deployments (null for any status)
+     * @param from          the min start date of the deployments (inclusive, null for no min)
+     * @param to            the max start date of the deployments (exclusive, null for no max)
+     * @param percentiles   the duration percentiles to calculate (between 0 and 100)
+     *
+     * @return the duration statistics
+     *
+     * @throws DeployerException if an error occurs
+     */
+    DeploymentDurationStatistics getDurationStatistics(String targetId, Deployment.Status status, ZonedDateTime from,
+                                                       ZonedDateTime to, double... percentiles) throws DeployerException;
+
+    /**
+     * Deletes the history of the specified target.
+     *
+     * @param targetId the target's ID
+     *
+     * @throws DeployerException if an error occurs
+     */
+    void delete(String targetId) throws DeployerException;
+
+}
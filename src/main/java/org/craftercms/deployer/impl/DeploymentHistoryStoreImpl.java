@@ -0,0 +1,326 @@
+/*
+ * Copyright (C) 2007-2017 Crafter Software Corporation.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.craftercms.deployer.impl;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.craftercms.deployer.api.Deployment;
+import org.craftercms.deployer.api.DeploymentDurationStatistics;
+import org.craftercms.deployer.api.DeploymentRecord;
+import org.craftercms.deployer.api.exceptions.DeployerException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Required;
+
+import static org.craftercms.deployer.impl.DeploymentConstants.DEPLOYMENT_HISTORY_FILE_EXTENSION;
+
+/**
+ * Default implementation of {@link DeploymentHistoryStore}. The most recent deployments of each target are kept in memory in a
+ * ring buffer of {@code maxCount} records, which is loaded lazily from the target's history log: a file with one JSON line per
+ * deployment (with the dates as timestamps) that is only appended to. When the log has twice as many lines as the buffer can
+ * hold, it's rewritten with the contents of the buffer. Records older than {@code maxAge} are dropped from the buffer when new
+ * records are added, and are never returned by the queries.
+ *
+ * @author avasquez
+ */
+public class DeploymentHistoryStoreImpl implements DeploymentHistoryStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(DeploymentHistoryStoreImpl.class);
+
+    public static final String TMP_FILE_SUFFIX = ".tmp";
+
+    protected File storeFolder;
+    protected int maxCount;
+    protected long maxAge;
+    protected ObjectMapper objectMapper;
+    protected ConcurrentMap<String, TargetHistory> histories;
+
+    public DeploymentHistoryStoreImpl() {
+        maxCount = 1000;
+        objectMapper = new ObjectMapper().registerModule(new JavaTimeModule())
+                                         .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        histories = new ConcurrentHashMap<>();
+    }
+
+    @Required
+    public void setStoreFolder(File storeFolder) {
+        this.storeFolder = storeFolder;
+    }
+
+    /**
+     * Sets the max number of deployments kept per target (should be greater than 0).
+     */
+    public void setMaxCount(int maxCount) {
+        if (maxCount <= 0) {
+            throw new IllegalArgumentException("Invalid max count " + maxCount + ": it should be greater than 0");
+        }
+
+        this.maxCount = maxCount;
+    }
+
+    /**
+     * Sets the max age in millis of the deployments kept (0 means no limit).
+     */
+    public void setMaxAge(long maxAge) {
+        this.maxAge = maxAge;
+    }
+
+    @Override
+    public void record(String targetId, Deployment deployment) throws DeployerException {
+        getHistory(targetId).add(DeploymentRecord.of(deployment));
+    }
+
+    @Override
+    public List<DeploymentRecord> find(String targetId, Deployment.Status status, ZonedDateTime from, ZonedDateTime to,
+                                       int limit) throws DeployerException {
+        List<DeploymentRecord> records = getHistory(targetId).find(status, from, to);
+        if (limit > 0 && records.size() > limit) {
+            records = records.subList(0, limit);
+        }
+
+        return records;
+    }
+
+    @Override
+    public DeploymentDurationStatistics getDurationStatistics(String targetId, Deployment.Status status, ZonedDateTime from,
+                                                              ZonedDateTime to, double... percentiles) throws DeployerException {
+        for (double percentile : percentiles) {
+            if (percentile < 0 || percentile > 100) {
+                throw new IllegalArgumentException("Invalid percentile " + percentile + ": it should be between 0 and 100");
+            }
+        }
+
+        List<DeploymentRecord> records = getHistory(targetId).find(status, from, to);
+        long[] durations = records.stream().mapToLong(DeploymentRecord::getDuration).sorted().toArray();
+        Map<String, Long> percentileValues = new LinkedHashMap<>();
+
+        if (durations.length == 0) {
+            return new DeploymentDurationStatistics(0, 0, 0, 0, percentileValues);
+        }
+
+        for (double percentile : percentiles) {
+            // Nearest-rank method
+            int rank = (int) Math.ceil(percentile / 100 * durations.length);
+
+            percentileValues.put("p" + StringUtils.removeEnd(Double.toString(percentile), ".0"),
+                                 durations[Math.max(rank - 1, 0)]);
+        }
+
+        return new DeploymentDurationStatistics(durations.length, durations[0], durations[durations.length - 1],
+                                      Math.round(Arrays.stream(durations).average().getAsDouble()), percentileValues);
+    }
+
+    @Override
+    public void delete(String targetId) throws DeployerException {
+        histories.remove(targetId);
+
+        File historyFile = getHistoryFile(targetId);
+        if (historyFile.exists()) {
+            logger.debug("Deleting deployment history for target '{}'", targetId);
+
+            FileUtils.deleteQuietly(historyFile);
+        }
+    }
+
+    protected TargetHistory getHistory(String targetId) throws DeployerException {
+        TargetHistory history = histories.get(targetId);
+        if (history == null) {
+            synchronized (this) {
+                history = histories.get(targetId);
+                if (history == null) {
+                    history = new TargetHistory(getHistoryFile(targetId));
+                    history.load();
+
+                    histories.put(targetId, history);
+                }
+            }
+        }
+
+        return history;
+    }
+
+    protected File getHistoryFile(String targetId) {
+        return new File(storeFolder, targetId + "." + DEPLOYMENT_HISTORY_FILE_EXTENSION);
+    }
+
+    protected ZonedDateTime getMinEndDate() {
+        return maxAge > 0? ZonedDateTime.now().minus(maxAge, ChronoUnit.MILLIS) : null;
+    }
+
+    /**
+     * The history of a single target. All access is synchronized on the instance.
+     */
+    protected class TargetHistory {
+
+        protected final File file;
+        protected final DeploymentRecord[] buffer;
+        protected int head;
+        protected int size;
+        protected int lines;
+
+        public TargetHistory(File file) {
+            this.file = file;
+            this.buffer = new DeploymentRecord[maxCount];
+        }
+
+        public synchronized void load() throws DeployerException {
+            if (!file.exists()) {
+                return;
+            }
+
+            try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (StringUtils.isNotBlank(line)) {
+                        lines++;
+
+                        try {
+                            addToBuffer(objectMapper.readValue(line, DeploymentRecord.class));
+                        } catch (IOException e) {
+                            // Normally a record partially written when the process died
+                            logger.warn("Ignoring invalid record in deployment history {}: {}", file, line);
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                throw new DeployerException("Error reading deployment history " + file, e);
+            }
+
+            prune();
+        }
+
+        public synchronized void add(DeploymentRecord record) throws DeployerException {
+            addToBuffer(record);
+            prune();
+
+            try {
+                if (lines + 1 >= maxCount * 2) {
+                    rewrite();
+                } else {
+                    append(record);
+                }
+            } catch (IOException e) {
+                throw new DeployerException("Error writing to deployment history " + file, e);
+            }
+        }
+
+        /**
+         * Returns the records that match the criteria, most recent first.
+         */
+        public synchronized List<DeploymentRecord> find(Deployment.Status status, ZonedDateTime from, ZonedDateTime to) {
+            ZonedDateTime minEndDate = getMinEndDate();
+            List<DeploymentRecord> records = new ArrayList<>();
+
+            for (int i = 0; i < size; i++) {
+                DeploymentRecord record = buffer[(head - 1 - i + buffer.length) % buffer.length];
+
+                if (minEndDate != null && record.getEnd().isBefore(minEndDate)) {
+                    // The rest of the records are older
+                    break;
+                }
+                if ((status == null || status == record.getStatus()) &&
+                    (from == null || !record.getStart().isBefore(from)) &&
+                    (to == null || record.getStart().isBefore(to))) {
+                    records.add(record);
+                }
+            }
+
+            return records;
+        }
+
+        protected void addToBuffer(DeploymentRecord record) {
+            buffer[head] = record;
+            head = (head + 1) % buffer.length;
+
+            if (size < buffer.length) {
+                size++;
+            }
+        }
+
+        /**
+         * Drops the oldest records that are past the max age.
+         */
+        protected void prune() {
+            ZonedDateTime minEndDate = getMinEndDate();
+            if (minEndDate != null) {
+                while (size > 0) {
+                    int oldest = (head - size + buffer.length) % buffer.length;
+                    if (buffer[oldest].getEnd().isBefore(minEndDate)) {
+                        buffer[oldest] = null;
+                        size--;
+                    } else {
+                        break;
+                    }
+                }
+            }
+        }
+
+        protected void append(DeploymentRecord record) throws IOException {
+            FileUtils.forceMkdir(file.getParentFile());
+
+            try (OutputStream out = Files.newOutputStream(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                write(out, record);
+            }
+
+            lines++;
+        }
+
+        protected void rewrite() throws IOException {
+            File tmpFile = new File(file.getPath() + TMP_FILE_SUFFIX);
+
+            logger.debug("Compacting deployment history {} to {} records", file, size);
+
+            try (OutputStream out = Files.newOutputStream(tmpFile.toPath())) {
+                for (int i = size; i > 0; i--) {
+                    write(out, buffer[(head - i + buffer.length) % buffer.length]);
+                }
+            }
+
+            Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            lines = size;
+        }
+
+        protected void write(OutputStream out, DeploymentRecord record) throws IOException {
+            out.write(objectMapper.writeValueAsBytes(record));
+            out.write('\n');
+        }
+
+    }
+
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2007-2017 Crafter Software Corporation.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.craftercms.deployer.impl;
+
+import java.util.List;
+import java.util.Map;
+
+import org.craftercms.deployer.api.exceptions.DeployerException;
+
+/**
+ * Durable journal of the deployments of each target, used to recover the deployments that were queued or running when the
+ * Deployer stopped.
+ *
+ * @author avasquez
+ */
+public interface DeploymentJournal {
+
+    /**
+     * Records that a deployment was queued, or that the params of a queued deployment changed (when deployments are coalesced).
+     *
+     * @param targetId      the target's ID
+     * @param deploymentId  the deployment's ID
+     * @param params        the params of the deployment
+     *
+     * @throws DeployerException if an error occurs
+     */
+    void enqueued(String targetId, String deploymentId, Map<String, Object> params) throws DeployerException;
+
+    /**
+     * Records that a deployment started.
+     *
+     * @param targetId      the target's ID
+     * @param deploymentId  the deployment's ID
+     *
+     * @throws DeployerException if an error occurs
+     */
+    void started(String targetId, String deploymentId) throws DeployerException;
+
+    /**
+     * Records that a deployment finished (successfully or not), so it doesn't need to be recovered.
+     *
+     * @param targetId      the target's ID
+     * @param deploymentId  the deployment's ID
+     *
+     * @throws DeployerException if an error occurs
+     */
+    void finished(String targetId, String deploymentId) throws DeployerException;
+
+    /**
+     * Returns the deployments of the target that were queued or started but haven't finished, in the order they were queued.
+     *
+     * @param targetId the target's ID
+     *
+     * @return the unfinished deployments (empty if none)
+     *
+     * @throws DeployerException if an error occurs
+     */
+    List<Entry> getUnfinished(String targetId) throws DeployerException;
+
+    /**
+     * Deletes the journal of the specified target.
+     *
+     * @param targetId the target's ID
+     *
+     * @throws DeployerException if an error occurs
+     */
+    void delete(String targetId) throws DeployerException;
+
+    /**
+     * An unfinished deployment.
+     */
+    class Entry {
+
+        protected final String deploymentId;
+        protected final Map<String, Object> params;
+        protected final boolean started;
+
+        public Entry(String deploymentId, Map<String, Object> params, boolean started) {
+            this.deploymentId = deploymentId;
+            this.params = params;
+            this.started = started;
+        }
+
+        public String getDeploymentId() {
+            return deploymentId;
+        }
+
+        public Map<String, Object> getParams() {
+            return params;
+        }
+
+        /**
+         * Returns true if the deployment had started (and was interrupted).
+         */
+        public boolean isStarted() {
+            return started;
+        }
+
+    }
+
+}
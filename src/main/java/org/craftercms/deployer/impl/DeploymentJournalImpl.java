@@ -0,0 +1,405 @@
+/*
+ * Copyright (C) 2007-2017 Crafter Software Corporation.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.craftercms.deployer.impl;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.craftercms.deployer.api.exceptions.DeployerException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Required;
+
+import static org.craftercms.deployer.impl.DeploymentConstants.DEPLOYMENT_JOURNAL_FILE_EXTENSION;
+
+/**
+ * Default implementation of {@link DeploymentJournal}. Each target has its own append-only journal file, where every event is
+ * written as a JSON line. The unfinished deployments are also kept in memory, so they never have to be read back from the file
+ * except when the journal is opened. When the number of records in a file goes over the compaction threshold (and most of them
+ * are from finished deployments), the file is rewritten with only the unfinished deployments and atomically moved over the old
+ * one. A record that was partially written when the process died is ignored (and dropped by the compaction done on open).
+ *
+ * <p>Each write can be followed by a fsync, depending on the {@link FsyncPolicy}: {@code always} syncs every record, {@code
+ * interval} syncs at most once every {@code fsyncInterval} millis (and on close), and {@code never} leaves it to the OS.
+ * Records that were written but not synced only survive a process crash, not an OS crash.</p>
+ *
+ * <p>When the journal is disabled, all methods are no-ops and there are never unfinished deployments.</p>
+ *
+ * @author avasquez
+ */
+public class DeploymentJournalImpl implements DeploymentJournal {
+
+    private static final Logger logger = LoggerFactory.getLogger(DeploymentJournalImpl.class);
+
+    public static final String TMP_FILE_SUFFIX = ".tmp";
+
+    protected File storeFolder;
+    protected boolean enabled;
+    protected FsyncPolicy fsyncPolicy;
+    protected long fsyncInterval;
+    protected int compactionThreshold;
+    protected ObjectMapper objectMapper;
+    protected ConcurrentMap<String, TargetJournal> journals;
+
+    public DeploymentJournalImpl() {
+        fsyncPolicy = FsyncPolicy.INTERVAL;
+        fsyncInterval = 1000;
+        compactionThreshold = 1000;
+        objectMapper = new ObjectMapper().setSerializationInclusion(JsonInclude.Include.NON_NULL);
+        journals = new ConcurrentHashMap<>();
+    }
+
+    @Required
+    public void setStoreFolder(File storeFolder) {
+        this.storeFolder = storeFolder;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public void setFsyncPolicy(String fsyncPolicy) {
+        this.fsyncPolicy = FsyncPolicy.fromString(fsyncPolicy);
+    }
+
+    public void setFsyncInterval(long fsyncInterval) {
+        this.fsyncInterval = fsyncInterval;
+    }
+
+    public void setCompactionThreshold(int compactionThreshold) {
+        this.compactionThreshold = compactionThreshold;
+    }
+
+    @Override
+    public void enqueued(String targetId, String deploymentId, Map<String, Object> params) throws DeployerException {
+        if (enabled) {
+            getJournal(targetId).append(new Record(Record.ENQUEUED_OP, deploymentId, params));
+        }
+    }
+
+    @Override
+    public void started(String targetId, String deploymentId) throws DeployerException {
+        if (enabled) {
+            getJournal(targetId).append(new Record(Record.STARTED_OP, deploymentId, null));
+        }
+    }
+
+    @Override
+    public void finished(String targetId, String deploymentId) throws DeployerException {
+        if (enabled) {
+            getJournal(targetId).append(new Record(Record.FINISHED_OP, deploymentId, null));
+        }
+    }
+
+    @Override
+    public List<Entry> getUnfinished(String targetId) throws DeployerException {
+        if (enabled) {
+            return getJournal(targetId).getUnfinished();
+        } else {
+            return Collections.emptyList();
+        }
+    }
+
+    @Override
+    public void delete(String targetId) throws DeployerException {
+        TargetJournal journal = journals.remove(targetId);
+        if (journal != null) {
+            journal.close();
+        }
+
+        File journalFile = getJournalFile(targetId);
+        if (journalFile.exists()) {
+            logger.debug("Deleting deployment journal for target '{}'", targetId);
+
+            FileUtils.deleteQuietly(journalFile);
+        }
+    }
+
+    /**
+     * Closes the journal files, syncing any pending records.
+     */
+    public void close() {
+        for (TargetJournal journal : journals.values()) {
+            journal.close();
+        }
+
+        journals.clear();
+    }
+
+    protected TargetJournal getJournal(String targetId) throws DeployerException {
+        TargetJournal journal = journals.get(targetId);
+        if (journal == null) {
+            synchronized (this) {
+                journal = journals.get(targetId);
+                if (journal == null) {
+                    journal = new TargetJournal(getJournalFile(targetId));
+                    journal.open();
+
+                    journals.put(targetId, journal);
+                }
+            }
+        }
+
+        return journal;
+    }
+
+    protected File getJournalFile(String targetId) {
+        return new File(storeFolder, targetId + "." + DEPLOYMENT_JOURNAL_FILE_EXTENSION);
+    }
+
+    public enum FsyncPolicy {
+
+        ALWAYS, INTERVAL, NEVER;
+
+        public static FsyncPolicy fromString(String str) {
+            return valueOf(StringUtils.upperCase(StringUtils.trim(str)));
+        }
+
+    }
+
+    /**
+     * A line of the journal file.
+     */
+    public static class Record {
+
+        public static final String ENQUEUED_OP = "enqueued";
+        public static final String STARTED_OP = "started";
+        public static final String FINISHED_OP = "finished";
+
+        public String op;
+        public String id;
+        public long time;
+        public Map<String, Object> params;
+
+        public Record() {
+        }
+
+        public Record(String op, String id, Map<String, Object> params) {
+            this.op = op;
+            this.id = id;
+            this.time = System.currentTimeMillis();
+            this.params = params;
+        }
+
+    }
+
+    /**
+     * The journal of a single target. All access is synchronized on the instance.
+     */
+    protected class TargetJournal {
+
+        protected final File file;
+        protected FileChannel channel;
+        protected Map<String, Entry> unfinished;
+        protected int records;
+        protected long lastSync;
+
+        public TargetJournal(File file) {
+            this.file = file;
+            this.unfinished = new LinkedHashMap<>();
+        }
+
+        public synchronized void open() throws DeployerException {
+            try {
+                if (file.exists()) {
+                    read();
+                } else {
+                    FileUtils.forceMkdir(file.getParentFile());
+                }
+
+                // Rewriting the file on open also drops any partially written record at the end
+                compact();
+            } catch (IOException e) {
+                throw new DeployerException("Error opening deployment journal " + file, e);
+            }
+
+            if (!unfinished.isEmpty()) {
+                logger.info("Found {} unfinished deployment(s) in journal {}", unfinished.size(), file);
+            }
+        }
+
+        public synchronized void append(Record record) throws DeployerException {
+            if (channel == null) {
+                throw new DeployerException("Deployment journal " + file + " is closed");
+            }
+
+            try {
+                write(channel, record);
+
+                apply(record);
+                records++;
+
+                sync(false);
+
+                if (records >= compactionThreshold && records > unfinished.size() * 2) {
+                    logger.debug("Compacting deployment journal {} ({} records, {} unfinished deployments)", file, records,
+                                 unfinished.size());
+
+                    compact();
+                }
+            } catch (IOException e) {
+                throw new DeployerException("Error writing to deployment journal " + file, e);
+            }
+        }
+
+        public synchronized List<Entry> getUnfinished() {
+            return new ArrayList<>(unfinished.values());
+        }
+
+        public synchronized void close() {
+            if (channel != null) {
+                try {
+                    sync(true);
+
+                    channel.close();
+                } catch (IOException e) {
+                    logger.error("Error closing deployment journal " + file, e);
+                } finally {
+                    channel = null;
+                }
+            }
+        }
+
+        protected void read() throws IOException {
+            try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (StringUtils.isNotBlank(line)) {
+                        Record record;
+                        try {
+                            record = objectMapper.readValue(line, Record.class);
+                        } catch (IOException e) {
+                            logger.warn("Ignoring invalid record in deployment journal {}: {}", file, line);
+
+                            continue;
+                        }
+
+                        apply(record);
+                    }
+                }
+            }
+        }
+
+        protected void apply(Record record) {
+            switch (record.op) {
+                case Record.ENQUEUED_OP:
+                    Entry entry = unfinished.get(record.id);
+                    boolean started = entry != null && entry.isStarted();
+
+                    unfinished.put(record.id, new Entry(record.id, record.params, started));
+                    break;
+                case Record.STARTED_OP:
+                    entry = unfinished.get(record.id);
+                    if (entry != null) {
+                        unfinished.put(record.id, new Entry(record.id, entry.getParams(), true));
+                    }
+                    break;
+                case Record.FINISHED_OP:
+                    unfinished.remove(record.id);
+                    break;
+                default:
+                    logger.warn("Ignoring record with unknown op '{}' in deployment journal {}", record.op, file);
+            }
+        }
+
+        protected void compact() throws IOException {
+            File tmpFile = new File(file.getPath() + TMP_FILE_SUFFIX);
+            int count = 0;
+
+            try (FileChannel tmpChannel = FileChannel.open(tmpFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                                           StandardOpenOption.TRUNCATE_EXISTING)) {
+                for (Entry entry : unfinished.values()) {
+                    write(tmpChannel, new Record(Record.ENQUEUED_OP, entry.getDeploymentId(), entry.getParams()));
+                    count++;
+
+                    if (entry.isStarted()) {
+                        write(tmpChannel, new Record(Record.STARTED_OP, entry.getDeploymentId(), null));
+                        count++;
+                    }
+                }
+
+                if (fsyncPolicy != FsyncPolicy.NEVER) {
+                    tmpChannel.force(true);
+                }
+            }
+
+            if (channel != null) {
+                channel.close();
+                channel = null;
+            }
+
+            Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            records = count;
+            lastSync = System.currentTimeMillis();
+        }
+
+        protected void write(FileChannel channel, Record record) throws IOException {
+            byte[] json = objectMapper.writeValueAsBytes(record);
+            ByteBuffer buffer = ByteBuffer.allocate(json.length + 1);
+
+            buffer.put(json).put((byte) '\n').flip();
+
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+
+        protected void sync(boolean closing) throws IOException {
+            long now = System.currentTimeMillis();
+            boolean force;
+
+            switch (fsyncPolicy) {
+                case ALWAYS:
+                    force = !closing;
+                    break;
+                case INTERVAL:
+                    force = closing || now - lastSync >= fsyncInterval;
+                    break;
+                default:
+                    force = false;
+            }
+
+            if (force) {
+                channel.force(false);
+
+                lastSync = now;
+            }
+        }
+
+    }
+
+}
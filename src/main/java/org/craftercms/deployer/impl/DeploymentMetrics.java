@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2007-2017 Crafter Software Corporation.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.craftercms.deployer.impl;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Holds simple named counters for each target (like the number of skipped pulls), so processors can report how much work they
+ * did or saved. The counters are in memory only, and are reset when the Deployer is restarted.
+ *
+ * @author avasquez
+ */
+public class DeploymentMetrics {
+
+    protected ConcurrentMap<String, ConcurrentMap<String, AtomicLong>> counters;
+
+    public DeploymentMetrics() {
+        counters = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Increments by one the specified counter of the target.
+     *
+     * @param targetId  the target's ID
+     * @param name      the name of the counter
+     *
+     * @return the new value of the counter
+     */
+    public long increment(String targetId, String name) {
+        return add(targetId, name, 1);
+    }
+
+    /**
+     * Adds the specified amount to the counter of the target.
+     *
+     * @param targetId  the target's ID
+     * @param name      the name of the counter
+     * @param delta     the amount to add
+     *
+     * @return the new value of the counter
+     */
+    public long add(String targetId, String name, long delta) {
+        return counters.computeIfAbsent(targetId, id -> new ConcurrentHashMap<>())
+                       .computeIfAbsent(name, n -> new AtomicLong())
+                       .addAndGet(delta);
+    }
+
+    /**
+     * Returns the current value of the specified counter of the target (0 if the counter doesn't exist).
+     */
+    public long get(String targetId, String name) {
+        Map<String, AtomicLong> targetCounters = counters.get(targetId);
+        if (targetCounters != null) {
+            AtomicLong counter = targetCounters.get(name);
+            if (counter != null) {
+                return counter.get();
+            }
+        }
+
+        return 0;
+    }
+
+    /**
+     * Returns a snapshot of the counters of each target, sorted by target ID and counter name.
+     */
+    public Map<String, Map<String, Long>> getTargetCounters() {
+        Map<String, Map<String, Long>> snapshot = new TreeMap<>();
+
+        counters.forEach((targetId, targetCounters) -> {
+            Map<String, Long> targetSnapshot = new TreeMap<>();
+            targetCounters.forEach((name, counter) -> targetSnapshot.put(name, counter.get()));
+
+            snapshot.put(targetId, targetSnapshot);
+        });
+
+        return snapshot;
+    }
+
+    /**
+     * Returns a snapshot of the counters summed across all targets, sorted by counter name.
+     */
+    public Map<String, Long> getTotalCounters() {
+        Map<String, Long> totals = new TreeMap<>();
+
+        counters.values().forEach(targetCounters -> targetCounters.forEach((name, counter) -> totals.merge(name, counter.get(),
+                                                                                                            Long::sum)));
+
+        return totals;
+    }
+
+    /**
+     * Removes all the counters of the specified target.
+     */
+    public void clear(String targetId) {
+        counters.remove(targetId);
+    }
+
+}
@@ -67,6 +67,7 @@ public class DeploymentPipelineImpl implements DeploymentPipeline {
 
         executeProcessors(deployment);
 
+        deployment.awaitPendingTasks();
         deployment.end(Deployment.Status.SUCCESS);
     }
 
@@ -16,19 +16,40 @@
  */
 package org.craftercms.deployer.impl;
 
+import java.time.ZonedDateTime;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+import java.util.stream.Collectors;
 
 import org.apache.commons.collections4.CollectionUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.craftercms.deployer.api.BulkDeployment;
 import org.craftercms.deployer.api.Deployment;
+import org.craftercms.deployer.api.DeploymentDurationStatistics;
+import org.craftercms.deployer.api.DeploymentRecord;
 import org.craftercms.deployer.api.DeploymentService;
 import org.craftercms.deployer.api.Target;
 import org.craftercms.deployer.api.TargetService;
+import org.craftercms.deployer.api.exceptions.DeployerException;
+import org.craftercms.deployer.api.exceptions.DeploymentNotFoundException;
 import org.craftercms.deployer.api.exceptions.DeploymentServiceException;
+import org.craftercms.deployer.api.exceptions.InvalidPatternException;
+import org.craftercms.deployer.api.exceptions.InvalidPercentileException;
 import org.craftercms.deployer.api.exceptions.TargetNotFoundException;
 import org.craftercms.deployer.api.exceptions.TargetServiceException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 /**
@@ -39,32 +60,72 @@ import org.springframework.stereotype.Component;
 @Component("deploymentService")
 public class DeploymentServiceImpl implements DeploymentService {
 
+    private static final Logger logger = LoggerFactory.getLogger(DeploymentServiceImpl.class);
+
     protected final TargetService targetService;
+    protected final int bulkDeploymentMaxParallelism;
+    protected final long bulkDeploymentDefaultTimeout;
+    protected final Executor bulkDeploymentExecutor;
+    protected final DeploymentHistoryStore deploymentHistoryStore;
 
     @Autowired
-    public DeploymentServiceImpl(TargetService targetService) {
+    public DeploymentServiceImpl(TargetService targetService,
+                                 @Value("${deployer.main.deployments.bulk.maxParallelism}") int bulkDeploymentMaxParallelism,
+                                 @Value("${deployer.main.deployments.bulk.timeout}") long bulkDeploymentDefaultTimeout,
+                                 @Qualifier("bulkDeploymentTaskExecutor") Executor bulkDeploymentExecutor,
+                                 DeploymentHistoryStore deploymentHistoryStore) {
         this.targetService = targetService;
+        this.bulkDeploymentMaxParallelism = bulkDeploymentMaxParallelism;
+        this.bulkDeploymentDefaultTimeout = bulkDeploymentDefaultTimeout;
+        this.bulkDeploymentExecutor = bulkDeploymentExecutor;
+        this.deploymentHistoryStore = deploymentHistoryStore;
     }
 
     @Override
     public List<Deployment> deployAllTargets(boolean waitTillDone, Map<String, Object> params) throws DeploymentServiceException {
-        List<Target> targets;
-        try {
-            targets = targetService.getAllTargets();
-        } catch (TargetServiceException e) {
-            throw new DeploymentServiceException("Unable to retrieve list of targets", e);
-        }
+        return deployTargets(null, null, waitTillDone, -1, params).getDeployments();
+    }
 
-        List<Deployment> deployments = new ArrayList<>();
+    @Override
+    public BulkDeployment deployTargets(String envPattern, String siteNamePattern, boolean waitTillDone, long timeout,
+                                        Map<String, Object> params) throws DeploymentServiceException {
+        List<Target> targets = getTargets(envPattern, siteNamePattern);
+        BulkDeployment bulkDeployment = new BulkDeployment(targets.size());
 
-        if (CollectionUtils.isNotEmpty(targets)) {
+        if (!waitTillDone) {
+            // Just queue the deployments, the deployment executor limits how many run at the same time
             for (Target target : targets) {
-                Deployment deployment = target.deploy(waitTillDone, params);
-                deployments.add(deployment);
+                bulkDeployment.addDeployment(target.deploy(false, params));
             }
+
+            bulkDeployment.end();
+        } else if (CollectionUtils.isNotEmpty(targets)) {
+            if (timeout < 0) {
+                timeout = bulkDeploymentDefaultTimeout;
+            }
+
+            CompletableFuture<Void> future = deployInParallel(targets, bulkDeployment, params);
+
+            try {
+                if (timeout > 0) {
+                    future.get(timeout, TimeUnit.MILLISECONDS);
+                } else {
+                    future.get();
+                }
+            } catch (TimeoutException e) {
+                logger.warn("Timeout of {} ms elapsed while waiting for the deployments of {} targets", timeout, targets.size());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+
+                logger.error("Interrupted while waiting for the deployments of " + targets.size() + " targets", e);
+            } catch (ExecutionException e) {
+                logger.error("Error while waiting for the deployments of " + targets.size() + " targets", e);
+            }
+        } else {
+            bulkDeployment.end();
         }
 
-        return deployments;
+        return bulkDeployment;
     }
 
     @Override
@@ -77,4 +138,131 @@ public class DeploymentServiceImpl implements DeploymentService {
         }
     }
 
+    @Override
+    public Deployment getDeployment(String id) throws DeploymentNotFoundException, DeploymentServiceException {
+        for (Target target : getTargets(null, null)) {
+            Deployment deployment = target.getDeployment(id);
+            if (deployment != null) {
+                return deployment;
+            }
+        }
+
+        throw new DeploymentNotFoundException(id);
+    }
+
+    @Override
+    public List<DeploymentRecord> getDeploymentHistory(String env, String siteName, Deployment.Status status, ZonedDateTime from,
+                                                       ZonedDateTime to, int limit)
+        throws TargetNotFoundException, DeploymentServiceException {
+        try {
+            return deploymentHistoryStore.find(targetService.getTarget(env, siteName).getId(), status, from, to, limit);
+        } catch (TargetNotFoundException e) {
+            throw e;
+        } catch (DeployerException e) {
+            throw new DeploymentServiceException("Error while retrieving deployment history for env = " + env + ", site = " +
+                                                 siteName, e);
+        }
+    }
+
+    @Override
+    public DeploymentDurationStatistics getDeploymentDurationStatistics(String env, String siteName, Deployment.Status status,
+                                                                        ZonedDateTime from, ZonedDateTime to,
+                                                                        double... percentiles)
+        throws TargetNotFoundException, DeploymentServiceException {
+        for (double percentile : percentiles) {
+            if (percentile < 0 || percentile > 100) {
+                throw new InvalidPercentileException(percentile);
+            }
+        }
+
+        try {
+            return deploymentHistoryStore.getDurationStatistics(targetService.getTarget(env, siteName).getId(), status, from, to,
+                                                                percentiles);
+        } catch (TargetNotFoundException e) {
+            throw e;
+        } catch (DeployerException e) {
+            throw new DeploymentServiceException("Error while calculating deployment duration statistics for env = " + env +
+                                                 ", site = " + siteName, e);
+        }
+    }
+
+    protected List<Target> getTargets(String envPattern, String siteNamePattern) throws DeploymentServiceException {
+        Pattern envRegex = compilePattern(envPattern);
+        Pattern siteNameRegex = compilePattern(siteNamePattern);
+
+        List<Target> targets;
+        try {
+            targets = targetService.getAllTargets();
+        } catch (TargetServiceException e) {
+            throw new DeploymentServiceException("Unable to retrieve list of targets", e);
+        }
+
+        if (CollectionUtils.isEmpty(targets)) {
+            return new ArrayList<>();
+        }
+
+        return targets.stream()
+                      .filter(target -> envRegex == null || envRegex.matcher(target.getEnv()).matches())
+                      .filter(target -> siteNameRegex == null || siteNameRegex.matcher(target.getSiteName()).matches())
+                      .collect(Collectors.toList());
+    }
+
+    protected Pattern compilePattern(String pattern) throws InvalidPatternException {
+        if (StringUtils.isEmpty(pattern)) {
+            return null;
+        }
+
+        try {
+            return Pattern.compile(pattern);
+        } catch (PatternSyntaxException e) {
+            throw new InvalidPatternException(pattern, e);
+        }
+    }
+
+    /**
+     * Creates an already ended {@link Deployment} with {@link Deployment.Status#FAILURE}, for a target whose deployment couldn't
+     * even be requested, so that it's still accounted for in the {@link BulkDeployment}.
+     */
+    protected Deployment createFailedDeployment(Target target, Map<String, Object> params) {
+        Deployment deployment = new Deployment(target, params);
+        deployment.start();
+        deployment.end(Deployment.Status.FAILURE);
+
+        return deployment;
+    }
+
+    /**
+     * Deploys the targets with at most {@code bulkDeploymentMaxParallelism} deployments at the same time: the targets are
+     * distributed in that number of lanes, and each lane deploys its targets one after the other, waiting for each deployment
+     * to finish.
+     */
+    protected CompletableFuture<Void> deployInParallel(List<Target> targets, BulkDeployment bulkDeployment,
+                                                       Map<String, Object> params) {
+        int lanes = bulkDeploymentMaxParallelism > 0? Math.min(bulkDeploymentMaxParallelism, targets.size()) : targets.size();
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[lanes];
+
+        logger.info("Deploying {} targets with a max parallelism of {}", targets.size(), lanes);
+
+        for (int lane = 0; lane < lanes; lane++) {
+            int firstTarget = lane;
+
+            futures[lane] = CompletableFuture.runAsync(() -> {
+
+                for (int i = firstTarget; i < targets.size(); i += lanes) {
+                    Target target = targets.get(i);
+                    try {
+                        bulkDeployment.addDeployment(target.deploy(true, params));
+                    } catch (Exception e) {
+                        logger.error("Deployment of target '" + target.getId() + "' failed", e);
+
+                        bulkDeployment.addDeployment(createFailedDeployment(target, params));
+                    }
+                }
+
+            }, bulkDeploymentExecutor);
+        }
+
+        return CompletableFuture.allOf(futures).whenComplete((result, ex) -> bulkDeployment.end());
+    }
+
 }
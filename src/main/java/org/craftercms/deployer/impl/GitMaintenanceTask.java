@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2007-2017 Crafter Software Corporation.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.craftercms.deployer.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Properties;
+
+import org.apache.commons.io.FileUtils;
+import org.craftercms.deployer.utils.GitUtils;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.Constants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Maintenance task that runs a Git gc (pack refs and loose objects, repack and prune) on the local repository of a target, and
+ * reports the time spent and the bytes reclaimed. It's expected to be run through
+ * {@link TargetImpl#scheduleMaintenance(org.springframework.scheduling.TaskScheduler, org.springframework.scheduling.Trigger,
+ * Runnable)}, so that it never runs at the same time as a deployment of the target.
+ *
+ * @author avasquez
+ */
+public class GitMaintenanceTask implements Runnable {
+
+    private static final Logger logger = LoggerFactory.getLogger(GitMaintenanceTask.class);
+
+    public static final String RUNS_COUNTER_NAME = "git.maintenance.runs";
+    public static final String TIME_COUNTER_NAME = "git.maintenance.time";
+    public static final String RECLAIMED_BYTES_COUNTER_NAME = "git.maintenance.reclaimedBytes";
+
+    protected String targetId;
+    protected File localRepoFolder;
+    protected boolean aggressive;
+    protected DeploymentMetrics deploymentMetrics;
+
+    public GitMaintenanceTask(String targetId, File localRepoFolder, boolean aggressive, DeploymentMetrics deploymentMetrics) {
+        this.targetId = targetId;
+        this.localRepoFolder = localRepoFolder;
+        this.aggressive = aggressive;
+        this.deploymentMetrics = deploymentMetrics;
+    }
+
+    @Override
+    public void run() {
+        File gitFolder = new File(localRepoFolder, Constants.DOT_GIT);
+        if (!gitFolder.exists()) {
+            logger.debug("No Git repository at {} yet. Skipping maintenance", localRepoFolder);
+
+            return;
+        }
+
+        logger.info("Executing git gc for repository {}...", localRepoFolder);
+
+        long sizeBefore = FileUtils.sizeOfDirectory(gitFolder);
+        long start = System.currentTimeMillis();
+
+        try (Git git = GitUtils.openRepository(localRepoFolder)) {
+            Properties stats = GitUtils.garbageCollect(git, aggressive);
+
+            long time = System.currentTimeMillis() - start;
+            long reclaimedBytes = sizeBefore - FileUtils.sizeOfDirectory(gitFolder);
+
+            logger.info("Git gc for repository {} finished in {} ms, {} bytes reclaimed", localRepoFolder, time, reclaimedBytes);
+            logger.debug("Repository statistics after gc: {}", stats);
+
+            if (deploymentMetrics != null) {
+                deploymentMetrics.increment(targetId, RUNS_COUNTER_NAME);
+                deploymentMetrics.add(targetId, TIME_COUNTER_NAME, time);
+                deploymentMetrics.add(targetId, RECLAIMED_BYTES_COUNTER_NAME, reclaimedBytes);
+            }
+        } catch (IOException | GitAPIException e) {
+            logger.error("Git gc for repository " + localRepoFolder + " failed", e);
+        }
+    }
+
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2007-2017 Crafter Software Corporation.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.craftercms.deployer.impl;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.craftercms.search.service.SearchService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Batches the search commits requested by all targets, so that each index receives at most one commit per flush, no matter how
+ * many deployments touched it since the last flush. {@link #flush()} is expected to be called periodically by a scheduler, and
+ * once more on shutdown.
+ *
+ * @author avasquez
+ */
+public class SearchCommitCoalescer {
+
+    private static final Logger logger = LoggerFactory.getLogger(SearchCommitCoalescer.class);
+
+    protected ConcurrentMap<String, PendingCommit> pendingCommits;
+
+    public SearchCommitCoalescer() {
+        pendingCommits = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Requests a commit of the specified index, which will be done on the next flush.
+     *
+     * @param serverKey     a key that identifies the search server (like its URL), so that indexes with the same ID in
+     *                      different servers are committed separately
+     * @param searchService the search service used to commit
+     * @param indexId       the ID of the index to commit
+     */
+    public void requestCommit(String serverKey, SearchService searchService, String indexId) {
+        pendingCommits.put(serverKey + "|" + indexId, new PendingCommit(searchService, indexId));
+    }
+
+    /**
+     * Returns the number of commits waiting for the next flush.
+     */
+    public int getPendingCommitsCount() {
+        return pendingCommits.size();
+    }
+
+    /**
+     * Commits all indexes that have pending commits.
+     */
+    public void flush() {
+        for (String key : pendingCommits.keySet()) {
+            PendingCommit commit = pendingCommits.remove(key);
+            if (commit != null) {
+                try {
+                    commit.searchService.commit(commit.indexId);
+
+                    logger.debug("Deferred commit of index '{}' done", commit.indexId);
+                } catch (Exception e) {
+                    logger.error("Deferred commit of index '" + commit.indexId + "' failed", e);
+                }
+            }
+        }
+    }
+
+    protected static class PendingCommit {
+
+        protected final SearchService searchService;
+        protected final String indexId;
+
+        public PendingCommit(SearchService searchService, String indexId) {
+            this.searchService = searchService;
+            this.indexId = indexId;
+        }
+
+    }
+
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright (C) 2007-2017 Crafter Software Corporation.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.craftercms.deployer.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang3.StringUtils;
+import org.craftercms.deployer.api.TargetService;
+import org.craftercms.deployer.api.exceptions.DeployerException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+import static org.craftercms.deployer.impl.TargetServiceImpl.APPLICATION_CONTEXT_FILENAME_FORMAT;
+import static org.craftercms.deployer.impl.TargetServiceImpl.YAML_FILE_EXTENSION;
+
+/**
+ * Watches the target config folder for created, modified and deleted target YAML and context files, and resolves only the
+ * targets of the changed files. Events are debounced per target: a target is resolved once no more events for its files have
+ * been received during the debounce interval, so editors and tools that write a file in several steps cause a single reload.
+ * If the watch service loses events (overflow), all targets are resolved by the watcher thread.
+ *
+ * @author avasquez
+ */
+public class TargetConfigWatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(TargetConfigWatcher.class);
+
+    public static final String CONTEXT_FILENAME_SUFFIX = String.format(APPLICATION_CONTEXT_FILENAME_FORMAT, "");
+
+    protected File targetConfigFolder;
+    protected boolean enabled;
+    protected long debounceInterval;
+    protected TargetService targetService;
+    protected Executor targetLoadingExecutor;
+    protected volatile WatchService watchService;
+    protected Thread watcherThread;
+
+    public TargetConfigWatcher(File targetConfigFolder, boolean enabled, long debounceInterval, TargetService targetService,
+                               Executor targetLoadingExecutor) {
+        this.targetConfigFolder = targetConfigFolder;
+        this.enabled = enabled;
+        this.debounceInterval = debounceInterval;
+        this.targetService = targetService;
+        this.targetLoadingExecutor = targetLoadingExecutor;
+    }
+
+    public void start() throws IOException {
+        if (!enabled) {
+            logger.info("Target config watcher disabled. Target config changes will only be detected by the scheduled scan");
+            return;
+        }
+        if (!targetConfigFolder.exists()) {
+            logger.warn("Target config folder {} doesn't exist. Target config watcher not started", targetConfigFolder);
+            return;
+        }
+
+        watchService = FileSystems.getDefault().newWatchService();
+        targetConfigFolder.toPath().register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+
+        watcherThread = new Thread(this::watch, "target-config-watcher");
+        watcherThread.setDaemon(true);
+        watcherThread.start();
+
+        logger.info("Watching target config folder {} for changes", targetConfigFolder);
+    }
+
+    public void stop() {
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                logger.warn("Failed to close target config watch service", e);
+            }
+
+            watchService = null;
+        }
+        if (watcherThread != null) {
+            watcherThread.interrupt();
+        }
+    }
+
+    protected void watch() {
+        // Config files with pending changes, and the time of their last event
+        Map<File, Long> pendingFiles = new HashMap<>();
+
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                WatchKey key = watchService.poll(debounceInterval, TimeUnit.MILLISECONDS);
+                if (key != null) {
+                    boolean overflow = false;
+
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (event.kind() == OVERFLOW) {
+                            overflow = true;
+                        } else {
+                            File configFile = getConfigFile((Path) event.context());
+                            if (configFile != null) {
+                                pendingFiles.put(configFile, System.nanoTime());
+                            }
+                        }
+                    }
+
+                    key.reset();
+
+                    if (overflow) {
+                        logger.warn("Target config watch events were lost. Resolving all targets...");
+
+                        pendingFiles.clear();
+                        // Run by the watcher thread itself: resolveTargets() loads the targets in the target loading
+                        // executor and waits for them, so running it inside that same executor could deadlock it
+                        resolveAllTargets();
+                    }
+                }
+
+                resolveDebouncedTargets(pendingFiles);
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Stopped
+        }
+
+        logger.info("Target config watcher stopped");
+    }
+
+    protected void resolveDebouncedTargets(Map<File, Long> pendingFiles) {
+        long now = System.nanoTime();
+
+        for (Iterator<Map.Entry<File, Long>> iter = pendingFiles.entrySet().iterator(); iter.hasNext();) {
+            Map.Entry<File, Long> entry = iter.next();
+
+            if (TimeUnit.NANOSECONDS.toMillis(now - entry.getValue()) >= debounceInterval) {
+                File configFile = entry.getKey();
+
+                iter.remove();
+                targetLoadingExecutor.execute(() -> resolveTarget(configFile));
+            }
+        }
+    }
+
+    protected void resolveTarget(File configFile) {
+        logger.debug("Changes detected for target config file {}", configFile);
+
+        try {
+            targetService.resolveTarget(configFile);
+        } catch (DeployerException e) {
+            logger.error("Failed to resolve target of config file " + configFile, e);
+        }
+    }
+
+    protected void resolveAllTargets() {
+        try {
+            targetService.resolveTargets();
+        } catch (DeployerException e) {
+            logger.error("Failed to resolve targets", e);
+        }
+    }
+
+    /**
+     * Returns the YAML config file of the target the changed file belongs to (the file itself for YAML files, and the YAML file
+     * with the same base name for context files), or null if the file isn't a target file.
+     */
+    protected File getConfigFile(Path changedFile) {
+        String filename = changedFile.getFileName().toString();
+
+        if (filename.endsWith(CONTEXT_FILENAME_SUFFIX)) {
+            String baseName = StringUtils.removeEnd(filename, CONTEXT_FILENAME_SUFFIX);
+
+            return new File(targetConfigFolder, baseName + "." + YAML_FILE_EXTENSION);
+        } else if (filename.endsWith("." + YAML_FILE_EXTENSION)) {
+            return new File(targetConfigFolder, filename);
+        } else {
+            return null;
+        }
+    }
+
+}
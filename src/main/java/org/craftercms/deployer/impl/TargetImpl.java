@@ -21,34 +21,51 @@ import java.time.ZonedDateTime;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.List;
 import java.util.Map;
 import java.util.Queue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedDeque;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.FutureTask;
 import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.ThreadPoolExecutor;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
 
 import org.apache.commons.collections4.CollectionUtils;
+import org.apache.commons.collections4.MapUtils;
 import org.apache.commons.configuration2.Configuration;
 import org.craftercms.deployer.api.Deployment;
 import org.craftercms.deployer.api.DeploymentPipeline;
 import org.craftercms.deployer.api.Target;
+import org.craftercms.deployer.api.exceptions.DeployerException;
+import org.craftercms.deployer.utils.BooleanUtils;
+import org.craftercms.deployer.utils.concurrent.SerialExecutor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.slf4j.MDC;
 import org.springframework.context.ConfigurableApplicationContext;
 import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.Trigger;
 import org.springframework.scheduling.support.CronTrigger;
 
+import static org.craftercms.deployer.impl.DeploymentConstants.REPROCESS_ALL_FILES_PARAM_NAME;
+
 /**
- * Default implementation of {@link Target}.
+ * Default implementation of {@link Target}. Deployments are run one at a time, in the order they were requested, but the actual
+ * threads used to run them are provided by an executor that's normally shared between all targets. When deployment coalescing is
+ * enabled, a deployment requested while another one is still waiting in the queue is merged into the waiting one, so bursts of
+ * requests result in a single extra deployment run. Scheduled deployments can also back off when the previous deployments found
+ * no changes, and can be limited by a deployer-wide cap of concurrently running scheduled deployments. Maintenance tasks (like a Git
+ * gc of the local repository) are run through the same queue, so they never run at the same time as a deployment of the target.
  *
  * @author avasquez
  */
@@ -57,25 +74,43 @@ public class TargetImpl implements Target {
     private static final Logger logger = LoggerFactory.getLogger(TargetImpl.class);
 
     public static final String TARGET_ID_FORMAT = "%s-%s";
+    public static final int DEFAULT_MAX_FINISHED_DEPLOYMENTS = 10;
 
     protected String env;
     protected String siteName;
-    protected DeploymentPipeline deploymentPipeline;
+    protected volatile DeploymentPipeline deploymentPipeline;
     protected File configurationFile;
-    protected Configuration configuration;
-    protected ConfigurableApplicationContext applicationContext;
-    protected ZonedDateTime loadDate;
+    protected volatile Configuration configuration;
+    protected volatile ConfigurableApplicationContext applicationContext;
+    protected volatile ZonedDateTime loadDate;
+    protected volatile String configurationDigest;
+    protected Lock pipelineLock;
+    protected AtomicReference<PendingReload> pendingReload;
     protected ScheduledFuture<?> scheduledDeploymentFuture;
-    protected ExecutorService deploymentExecutor;
-    protected Queue<Deployment> pendingDeployments;
+    protected ScheduledFuture<?> scheduledMaintenanceFuture;
+    protected SerialExecutor deploymentExecutor;
+    protected boolean coalesceDeployments;
+    protected Queue<DeploymentTask> pendingDeployments;
     protected volatile Deployment currentDeployment;
+    protected Deque<Deployment> finishedDeployments;
+    protected int maxFinishedDeployments;
+    protected volatile Thread deploymentThread;
+    protected volatile boolean closed;
+    protected int scheduledDeploymentBackoffThreshold;
+    protected int scheduledDeploymentMaxSkippedRuns;
+    protected Semaphore scheduledDeploymentsLimiter;
+    protected volatile int consecutiveNoChangeDeployments;
+    protected volatile boolean maintenancePending;
+    protected DeploymentJournal deploymentJournal;
+    protected DeploymentHistoryStore deploymentHistoryStore;
 
     public static String getId(String env, String siteName) {
         return String.format(TARGET_ID_FORMAT, siteName, env);
     }
 
     public TargetImpl(String env, String siteName, DeploymentPipeline deploymentPipeline, File configurationFile,
-                      Configuration configuration, ConfigurableApplicationContext applicationContext) {
+                      Configuration configuration, ConfigurableApplicationContext applicationContext,
+                      Executor deploymentTaskExecutor) {
         this.env = env;
         this.siteName = siteName;
         this.deploymentPipeline = deploymentPipeline;
@@ -83,8 +118,67 @@ public class TargetImpl implements Target {
         this.configuration = configuration;
         this.applicationContext = applicationContext;
         this.loadDate = ZonedDateTime.now();
-        this.deploymentExecutor = Executors.newSingleThreadExecutor();
+        this.deploymentExecutor = new SerialExecutor(deploymentTaskExecutor);
         this.pendingDeployments = new ConcurrentLinkedQueue<>();
+        this.finishedDeployments = new ConcurrentLinkedDeque<>();
+        this.maxFinishedDeployments = DEFAULT_MAX_FINISHED_DEPLOYMENTS;
+        this.pipelineLock = new ReentrantLock();
+        this.pendingReload = new AtomicReference<>();
+    }
+
+    /**
+     * Sets whether deployments requested while another one is waiting in the queue should be merged into the waiting one.
+     */
+    public void setCoalesceDeployments(boolean coalesceDeployments) {
+        this.coalesceDeployments = coalesceDeployments;
+    }
+
+    /**
+     * Sets the max number of finished deployments kept so they can still be looked up by ID. Only the most recent one is kept
+     * whole, the older ones are compacted (see {@link Deployment#compact()}).
+     */
+    public void setMaxFinishedDeployments(int maxFinishedDeployments) {
+        this.maxFinishedDeployments = maxFinishedDeployments;
+    }
+
+    /**
+     * Sets the number of consecutive deployments with no changes after which scheduled deployment runs start to be skipped.
+     * The number of skipped runs doubles after each new deployment with no changes, up to {@code maxSkippedRuns}. A threshold
+     * of 0 disables the backoff.
+     */
+    public void setScheduledDeploymentBackoff(int threshold, int maxSkippedRuns) {
+        this.scheduledDeploymentBackoffThreshold = threshold;
+        this.scheduledDeploymentMaxSkippedRuns = maxSkippedRuns;
+    }
+
+    /**
+     * Sets the digest of the content of the configuration files the target was loaded with.
+     */
+    public void setConfigurationDigest(String configurationDigest) {
+        this.configurationDigest = configurationDigest;
+    }
+
+    /**
+     * Sets the journal where the deployments are recorded, so the ones that were queued or running when the target was closed
+     * can be replayed by {@link #replayUnfinishedDeployments()}.
+     */
+    public void setDeploymentJournal(DeploymentJournal deploymentJournal) {
+        this.deploymentJournal = deploymentJournal;
+    }
+
+    /**
+     * Sets the store where the finished deployments are recorded.
+     */
+    public void setDeploymentHistoryStore(DeploymentHistoryStore deploymentHistoryStore) {
+        this.deploymentHistoryStore = deploymentHistoryStore;
+    }
+
+    /**
+     * Sets the semaphore, normally shared between all targets, that limits how many scheduled deployments can be running at the
+     * same time. When no permit is available the scheduled run is skipped.
+     */
+    public void setScheduledDeploymentsLimiter(Semaphore scheduledDeploymentsLimiter) {
+        this.scheduledDeploymentsLimiter = scheduledDeploymentsLimiter;
     }
 
     @Override
@@ -107,6 +201,20 @@ public class TargetImpl implements Target {
         return loadDate;
     }
 
+    @Override
+    public String getConfigurationDigest() {
+        return configurationDigest;
+    }
+
+    /**
+     * Returns the digest of the configuration of the reload waiting to be swapped in, or null if there's no pending reload.
+     */
+    public String getPendingConfigurationDigest() {
+        PendingReload reload = pendingReload.get();
+
+        return reload != null? reload.configurationDigest : null;
+    }
+
     @Override
     public File getConfigurationFile() {
         return configurationFile;
@@ -119,16 +227,13 @@ public class TargetImpl implements Target {
 
     @Override
     public Deployment deploy(boolean waitTillDone, Map<String, Object> params) {
-        Deployment deployment = new Deployment(this, params);
-        pendingDeployments.add(deployment);
-
-        Future<?> future = deploymentExecutor.submit(new DeploymentTask());
+        Deployment deployment = deploy(params);
         if (waitTillDone) {
             logger.debug("Waiting for deployment completion...");
 
             try {
-                future.get();
-            } catch (InterruptedException | ExecutionException e) {
+                deployment.getCompletionFuture().get();
+            } catch (InterruptedException | ExecutionException | CancellationException e) {
                 logger.error("Unable to wait for deployment completion", e);
             }
         }
@@ -136,14 +241,41 @@ public class TargetImpl implements Target {
         return deployment;
     }
 
+    @Override
+    public Deployment deploy(Map<String, Object> params) {
+        return queueDeployment(params).getDeployment();
+    }
+
     @Override
     public void scheduleDeployment(TaskScheduler scheduler, String cronExpression) {
-        scheduledDeploymentFuture = scheduler.schedule(new ScheduledDeploymentTask(), new CronTrigger(cronExpression));
+        scheduleDeployment(scheduler, new CronTrigger(cronExpression));
+    }
+
+    @Override
+    public void scheduleDeployment(TaskScheduler scheduler, Trigger trigger) {
+        scheduledDeploymentFuture = scheduler.schedule(new ScheduledDeploymentTask(), trigger);
+    }
+
+    /**
+     * Schedules a maintenance task of the target. Each time the trigger fires, the task is queued behind the target's pending
+     * deployments, unless the previous execution is still waiting in the queue.
+     *
+     * @param scheduler         the scheduler to use
+     * @param trigger           the trigger that determines the execution times of the task
+     * @param maintenanceTask   the task to run
+     */
+    public void scheduleMaintenance(TaskScheduler scheduler, Trigger trigger, Runnable maintenanceTask) {
+        scheduledMaintenanceFuture = scheduler.schedule(() -> queueMaintenance(maintenanceTask), trigger);
     }
 
     @Override
     public Collection<Deployment> getPendingDeployments() {
-        return new ArrayList<>(pendingDeployments);
+        return pendingDeployments.stream().map(DeploymentTask::getDeployment).collect(Collectors.toList());
+    }
+
+    @Override
+    public int getPendingDeploymentsCount() {
+        return pendingDeployments.size();
     }
 
     @Override
@@ -167,6 +299,27 @@ public class TargetImpl implements Target {
         return deployments;
     }
 
+    @Override
+    public Deployment getDeployment(String id) {
+        Deployment currentDeployment = getCurrentDeployment();
+        if (currentDeployment != null && currentDeployment.getId().equals(id)) {
+            return currentDeployment;
+        }
+
+        for (DeploymentTask task : pendingDeployments) {
+            if (task.getDeployment().getId().equals(id)) {
+                return task.getDeployment();
+            }
+        }
+        for (Deployment deployment : finishedDeployments) {
+            if (deployment.getId().equals(id)) {
+                return deployment;
+            }
+        }
+
+        return null;
+    }
+
     @Override
     public void close() {
         MDC.put(DeploymentConstants.TARGET_ID_MDC_KEY, getId());
@@ -177,14 +330,31 @@ public class TargetImpl implements Target {
             if (scheduledDeploymentFuture != null) {
                 scheduledDeploymentFuture.cancel(true);
             }
+            if (scheduledMaintenanceFuture != null) {
+                scheduledMaintenanceFuture.cancel(true);
+            }
 
-            deploymentExecutor.shutdownNow();
+            DeploymentPipeline pipeline;
+            ConfigurableApplicationContext context;
 
-            deploymentPipeline.destroy();
+            // Any queued deployment task will be skipped, and the one in progress (if any) interrupted
+            synchronized (this) {
+                closed = true;
 
-            if (applicationContext != null) {
-                applicationContext.close();
+                if (deploymentThread != null) {
+                    deploymentThread.interrupt();
+                }
+
+                pipeline = deploymentPipeline;
+                context = applicationContext;
+            }
+
+            PendingReload reload = pendingReload.getAndSet(null);
+            if (reload != null) {
+                destroy(reload.deploymentPipeline, reload.applicationContext);
             }
+
+            destroy(pipeline, context);
         } catch (Exception e) {
             logger.error("Failed to close '" + getId() + "'", e);
         }
@@ -192,45 +362,470 @@ public class TargetImpl implements Target {
         MDC.remove(DeploymentConstants.TARGET_ID_MDC_KEY);
     }
 
+    /**
+     * Reloads the target in place: replaces its deployment pipeline, configuration and application context (already built by the
+     * caller) without closing the target, so the pending deployments and the scheduled tasks are kept. The swap only happens
+     * between deployments: right away if no deployment is running, or else as soon as the current deployment finishes. The old
+     * pipeline and context are destroyed after the swap. If the target is reloaded again before a pending swap happens, the
+     * pending pipeline and context are discarded.
+     *
+     * @param deploymentPipeline    the new deployment pipeline
+     * @param configuration         the new configuration
+     * @param applicationContext    the new application context
+     * @param configurationDigest   the digest of the new configuration
+     */
+    public void reload(DeploymentPipeline deploymentPipeline, Configuration configuration,
+                       ConfigurableApplicationContext applicationContext, String configurationDigest) {
+        PendingReload previousReload = pendingReload.getAndSet(new PendingReload(deploymentPipeline, configuration,
+                                                                                 applicationContext, configurationDigest));
+        if (previousReload != null) {
+            logger.info("Discarding previous pending reload of target '{}'", getId());
+
+            destroy(previousReload.deploymentPipeline, previousReload.applicationContext);
+        }
+
+        if (!tryApplyPendingReload()) {
+            logger.info("Target '{}' will be reloaded when the current deployment finishes", getId());
+        }
+    }
+
+    /**
+     * Cancels the scheduled deployments and maintenance of the target, so they can be scheduled again with a new configuration.
+     * Tasks already queued are not affected.
+     */
+    public void cancelScheduledTasks() {
+        if (scheduledDeploymentFuture != null) {
+            scheduledDeploymentFuture.cancel(false);
+            scheduledDeploymentFuture = null;
+        }
+        if (scheduledMaintenanceFuture != null) {
+            scheduledMaintenanceFuture.cancel(false);
+            scheduledMaintenanceFuture = null;
+        }
+    }
+
+    /**
+     * Swaps in the pending reload if the pipeline lock is free. Also called right after releasing the lock: a reload requested
+     * while the lock was held fails to acquire it and leaves the swap to the holder, so the holder has to check again once the
+     * lock is released, or else the swap would wait till the next deployment.
+     *
+     * @return true if there's no pending reload left, false if the lock is held by someone else that will apply it
+     */
+    protected boolean tryApplyPendingReload() {
+        while (pendingReload.get() != null) {
+            if (!pipelineLock.tryLock()) {
+                return false;
+            }
+
+            try {
+                applyPendingReload();
+            } finally {
+                pipelineLock.unlock();
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Swaps in the pending reload, if any. Must be called while holding the pipeline lock, so it never happens in the middle of a
+     * deployment.
+     */
+    protected void applyPendingReload() {
+        PendingReload reload = pendingReload.getAndSet(null);
+        if (reload == null) {
+            return;
+        }
+
+        DeploymentPipeline oldPipeline;
+        ConfigurableApplicationContext oldContext;
+
+        synchronized (this) {
+            if (closed) {
+                oldPipeline = reload.deploymentPipeline;
+                oldContext = reload.applicationContext;
+            } else {
+                oldPipeline = deploymentPipeline;
+                oldContext = applicationContext;
+
+                deploymentPipeline = reload.deploymentPipeline;
+                configuration = reload.configuration;
+                applicationContext = reload.applicationContext;
+                configurationDigest = reload.configurationDigest;
+                loadDate = ZonedDateTime.now();
+
+                logger.info("Target '{}' reloaded with the new configuration", getId());
+            }
+        }
+
+        destroy(oldPipeline, oldContext);
+    }
+
+    protected void destroy(DeploymentPipeline pipeline, ConfigurableApplicationContext context) {
+        try {
+            if (pipeline != null) {
+                pipeline.destroy();
+            }
+            if (context != null) {
+                context.close();
+            }
+        } catch (Exception e) {
+            logger.error("Failed to destroy pipeline of target '" + getId() + "'", e);
+        }
+    }
+
+    /**
+     * Queues a new deployment with the specified params or, if coalescing is enabled and there's already a deployment waiting in the
+     * queue, merges the params into the waiting deployment.
+     *
+     * @param params the deployment params
+     *
+     * @return the task of the queued deployment
+     */
+    protected synchronized DeploymentTask queueDeployment(Map<String, Object> params) {
+        if (coalesceDeployments) {
+            DeploymentTask task = pendingDeployments.peek();
+            if (task != null) {
+                logger.debug("Deployment for {} coalesced with pending deployment", getId());
+
+                mergeParams(task.getDeployment(), params);
+                journalEnqueued(task.getDeployment());
+
+                return task;
+            }
+        }
+
+        DeploymentTask task = new DeploymentTask(new Deployment(this, params));
+
+        journalEnqueued(task.getDeployment());
+
+        pendingDeployments.add(task);
+        deploymentExecutor.execute(task);
+
+        return task;
+    }
+
+    /**
+     * Queues again the deployments found in the journal that were queued or running when the target was last closed (normally
+     * because the Deployer was stopped), so they don't have to wait for the next scheduled deployment.
+     *
+     * @return the replayed deployments
+     */
+    public List<Deployment> replayUnfinishedDeployments() {
+        List<Deployment> deployments = new ArrayList<>();
+
+        if (deploymentJournal != null) {
+            try {
+                for (DeploymentJournal.Entry entry : deploymentJournal.getUnfinished(getId())) {
+                    logger.info("Replaying {} deployment {} of target '{}'", entry.isStarted() ? "interrupted" : "queued",
+                                entry.getDeploymentId(), getId());
+
+                    Map<String, Object> params = entry.getParams() != null? entry.getParams() : Collections.emptyMap();
+                    Deployment deployment = queueDeployment(params).getDeployment();
+
+                    // The new deployment has its own entry now
+                    deploymentJournal.finished(getId(), entry.getDeploymentId());
+
+                    if (!deployments.contains(deployment)) {
+                        deployments.add(deployment);
+                    }
+                }
+            } catch (DeployerException e) {
+                logger.error("Unable to replay unfinished deployments of target '" + getId() + "'", e);
+            }
+        }
+
+        return deployments;
+    }
+
+    protected synchronized void queueMaintenance(Runnable maintenanceTask) {
+        if (closed || maintenancePending) {
+            return;
+        }
+
+        maintenancePending = true;
+
+        deploymentExecutor.execute(() -> {
+            maintenancePending = false;
+
+            executeMaintenance(maintenanceTask);
+        });
+    }
+
+    protected void executeMaintenance(Runnable maintenanceTask) {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+
+            deploymentThread = Thread.currentThread();
+        }
+
+        MDC.put(DeploymentConstants.TARGET_ID_MDC_KEY, getId());
+
+        try {
+            maintenanceTask.run();
+        } catch (Exception e) {
+            logger.error("Maintenance task for target '" + getId() + "' failed", e);
+        } finally {
+            synchronized (this) {
+                deploymentThread = null;
+
+                Thread.interrupted();
+            }
+
+            MDC.remove(DeploymentConstants.TARGET_ID_MDC_KEY);
+        }
+    }
+
+    protected void journalEnqueued(Deployment deployment) {
+        if (deploymentJournal != null) {
+            try {
+                deploymentJournal.enqueued(getId(), deployment.getId(), deployment.getParams());
+            } catch (DeployerException e) {
+                logger.error("Unable to journal deployment " + deployment.getId() + " of target '" + getId() + "'", e);
+            }
+        }
+    }
+
+    protected void journalStarted(Deployment deployment) {
+        if (deploymentJournal != null) {
+            try {
+                deploymentJournal.started(getId(), deployment.getId());
+            } catch (DeployerException e) {
+                logger.error("Unable to journal deployment " + deployment.getId() + " of target '" + getId() + "'", e);
+            }
+        }
+    }
+
+    protected void journalFinished(Deployment deployment) {
+        if (deploymentJournal != null) {
+            try {
+                deploymentJournal.finished(getId(), deployment.getId());
+            } catch (DeployerException e) {
+                logger.error("Unable to journal deployment " + deployment.getId() + " of target '" + getId() + "'", e);
+            }
+        }
+    }
+
+    protected void recordHistory(Deployment deployment) {
+        if (deploymentHistoryStore != null && deployment.getStart() != null && deployment.getEnd() != null) {
+            try {
+                deploymentHistoryStore.record(getId(), deployment);
+            } catch (DeployerException e) {
+                logger.error("Unable to record deployment " + deployment.getId() + " of target '" + getId() + "' in history", e);
+            }
+        }
+    }
+
+    protected void mergeParams(Deployment deployment, Map<String, Object> params) {
+        if (MapUtils.isNotEmpty(params)) {
+            for (Map.Entry<String, Object> param : params.entrySet()) {
+                String name = param.getKey();
+                Object value = param.getValue();
+
+                if (value != null) {
+                    if (name.equals(REPROCESS_ALL_FILES_PARAM_NAME)) {
+                        // If any of the requests asked to reprocess all files, then all files should be reprocessed
+                        value = BooleanUtils.toBoolean(deployment.getParam(name)) || BooleanUtils.toBoolean(value);
+                    }
+
+                    deployment.addParam(name, value);
+                }
+            }
+        }
+    }
+
+    protected void executeDeployment(Deployment deployment) {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+
+            deploymentThread = Thread.currentThread();
+        }
+
+        // While the lock is held the pipeline can't be swapped by a reload
+        pipelineLock.lock();
+
+        applyPendingReload();
+
+        currentDeployment = deployment;
+
+        MDC.put(DeploymentConstants.TARGET_ID_MDC_KEY, getId());
+
+        journalStarted(deployment);
+
+        try {
+            logger.info("------------------------------------------------------------");
+            logger.info("Deployment for {} started", getId());
+            logger.info("------------------------------------------------------------");
+
+            logger.debug("Deployment for {} waited {} ms in queue", getId(), deployment.getWaitTime());
+
+            deploymentPipeline.execute(deployment);
+
+            if (deployment.getStatus() == Deployment.Status.SUCCESS && deployment.isChangeSetEmpty()) {
+                consecutiveNoChangeDeployments++;
+            } else {
+                consecutiveNoChangeDeployments = 0;
+            }
+
+            double durationInSecs = deployment.getDuration() / 1000.0;
+
+            logger.info("------------------------------------------------------------");
+            logger.info("Deployment for {} finished in {} secs", getId(), String.format("%.3f", durationInSecs));
+            logger.info("------------------------------------------------------------");
+        } finally {
+            currentDeployment = null;
+
+            synchronized (this) {
+                deploymentThread = null;
+
+                // A deployment interrupted by close() is left unfinished in the journal, so it's replayed on the next load
+                if (!closed) {
+                    journalFinished(deployment);
+                }
+
+                // Clear any interrupt caused by close() so it doesn't leak to the next task of the shared thread
+                Thread.interrupted();
+            }
+
+            try {
+                applyPendingReload();
+            } finally {
+                pipelineLock.unlock();
+            }
+
+            tryApplyPendingReload();
+
+            MDC.remove(DeploymentConstants.TARGET_ID_MDC_KEY);
+        }
+    }
+
+    protected static class PendingReload {
+
+        protected final DeploymentPipeline deploymentPipeline;
+        protected final Configuration configuration;
+        protected final ConfigurableApplicationContext applicationContext;
+        protected final String configurationDigest;
+
+        public PendingReload(DeploymentPipeline deploymentPipeline, Configuration configuration,
+                             ConfigurableApplicationContext applicationContext, String configurationDigest) {
+            this.deploymentPipeline = deploymentPipeline;
+            this.configuration = configuration;
+            this.applicationContext = applicationContext;
+            this.configurationDigest = configurationDigest;
+        }
+
+    }
+
     protected class ScheduledDeploymentTask implements Runnable {
 
         protected volatile Future<?> future;
+        protected volatile int skippedRuns;
 
         @Override
         public void run() {
             if (future == null || future.isDone()) {
-                pendingDeployments.add(new Deployment(TargetImpl.this));
+                if (shouldBackOff()) {
+                    logger.debug("Scheduled deployment for {} skipped ({} consecutive deployments with no changes)", getId(),
+                                 consecutiveNoChangeDeployments);
+                    return;
+                }
+
+                Semaphore limiter = scheduledDeploymentsLimiter;
+                if (limiter != null && !limiter.tryAcquire()) {
+                    logger.debug("Scheduled deployment for {} skipped (max number of concurrent scheduled deployments reached)",
+                                 getId());
+                    return;
+                }
+
+                DeploymentTask task = queueDeployment(Collections.emptyMap());
+                if (limiter != null) {
+                    task.getCompletionFuture().whenComplete((deployment, ex) -> limiter.release());
+                }
+
+                future = task;
+            }
+        }
+
+        protected boolean shouldBackOff() {
+            int threshold = scheduledDeploymentBackoffThreshold;
+            int noChangeDeployments = consecutiveNoChangeDeployments;
+
+            if (threshold > 0 && noChangeDeployments >= threshold) {
+                int maxSkippedRuns = Math.min(1 << Math.min(noChangeDeployments - threshold, 30), scheduledDeploymentMaxSkippedRuns);
+                if (skippedRuns < maxSkippedRuns) {
+                    skippedRuns++;
 
-                future = deploymentExecutor.submit(new DeploymentTask());
+                    return true;
+                }
             }
+
+            skippedRuns = 0;
+
+            return false;
         }
 
     }
 
-    protected class DeploymentTask implements Runnable {
+    protected class DeploymentTask extends FutureTask<Deployment> {
 
-        @Override
-        public void run() {
-            currentDeployment = pendingDeployments.remove();
+        protected final Deployment deployment;
 
-            MDC.put(DeploymentConstants.TARGET_ID_MDC_KEY, getId());
+        public DeploymentTask(Deployment deployment) {
+            super(() -> executeDeployment(deployment), deployment);
 
-            try {
-                logger.info("------------------------------------------------------------");
-                logger.info("Deployment for {} started", getId());
-                logger.info("------------------------------------------------------------");
+            this.deployment = deployment;
+        }
 
-                deploymentPipeline.execute(currentDeployment);
+        public Deployment getDeployment() {
+            return deployment;
+        }
 
-                double durationInSecs = currentDeployment.getDuration() / 1000.0;
+        /**
+         * Returns a future that's completed when this task is done (or cancelled), to which completion actions can be attached.
+         */
+        public CompletableFuture<Deployment> getCompletionFuture() {
+            return deployment.getCompletionFuture();
+        }
 
-                logger.info("------------------------------------------------------------");
-                logger.info("Deployment for {} finished in {} secs", getId(), String.format("%.3f", durationInSecs));
-                logger.info("------------------------------------------------------------");
-            } finally {
-                currentDeployment = null;
+        @Override
+        public void run() {
+            // Removed from the queue while holding the target lock, so no params can be merged after the deployment has started
+            synchronized (TargetImpl.this) {
+                pendingDeployments.remove(this);
 
-                MDC.remove(DeploymentConstants.TARGET_ID_MDC_KEY);
+                if (closed) {
+                    cancel(false);
+
+                    return;
+                }
+            }
+
+            super.run();
+        }
+
+        @Override
+        protected void done() {
+            if (isCancelled()) {
+                deployment.getCompletionFuture().cancel(false);
+            } else {
+                // The previous deployment is compacted only now, since clients waiting for it could have still been reading it
+                Deployment previous = finishedDeployments.peekFirst();
+                if (previous != null) {
+                    previous.compact();
+                }
+
+                finishedDeployments.addFirst(deployment);
+                while (finishedDeployments.size() > maxFinishedDeployments) {
+                    finishedDeployments.pollLast();
+                }
+
+                recordHistory(deployment);
+
+                deployment.getCompletionFuture().complete(deployment);
             }
         }
 
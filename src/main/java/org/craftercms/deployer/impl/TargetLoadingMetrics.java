@@ -0,0 +1,248 @@
+/*
+ * Copyright (C) 2007-2017 Crafter Software Corporation.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.craftercms.deployer.impl;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.io.File;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps track of how the targets are loaded: the status of the last load of each target config file (so it's possible to know
+ * which targets are ready and which are still loading or failed), how long each phase of the load took (YAML parsing, application
+ * context refresh and processor initialization), and the overall timing of the initial load on startup.
+ *
+ * @author avasquez
+ */
+public class TargetLoadingMetrics {
+
+    public static final int SLOWEST_LOADS_COUNT = 10;
+
+    protected volatile ZonedDateTime startupStart;
+    protected volatile ZonedDateTime startupEnd;
+    protected volatile int startupParallelism;
+    protected ConcurrentMap<String, TargetLoad> loads;
+
+    public TargetLoadingMetrics() {
+        loads = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Marks the start of the initial load of the targets.
+     *
+     * @param parallelism the max number of targets loaded at the same time
+     */
+    public void startupStarted(int parallelism) {
+        startupStart = ZonedDateTime.now();
+        startupParallelism = parallelism;
+    }
+
+    /**
+     * Marks the end of the initial load of the targets.
+     */
+    public void startupFinished() {
+        startupEnd = ZonedDateTime.now();
+    }
+
+    /**
+     * Records the start of the load of a target config file, replacing the previous load of the same file.
+     *
+     * @param configFile the target config file
+     *
+     * @return the load, which should be updated as the load progresses
+     */
+    public TargetLoad loadStarted(File configFile) {
+        TargetLoad load = new TargetLoad(configFile.getName());
+        loads.put(configFile.getName(), load);
+
+        return load;
+    }
+
+    /**
+     * Removes the load of a target config file, when the target is deleted.
+     */
+    public void clear(File configFile) {
+        loads.remove(configFile.getName());
+    }
+
+    /**
+     * Returns the last load of each target config file, sorted by config file name.
+     */
+    public List<TargetLoad> getLoads() {
+        return loads.values().stream().sorted(Comparator.comparing(TargetLoad::getConfigFile)).collect(Collectors.toList());
+    }
+
+    /**
+     * Returns a summary of the initial load of the targets: start, end and duration, the number of targets ready, loading and
+     * failed, the time spent in each load phase summed across all targets, and the slowest target loads.
+     */
+    public Map<String, Object> getStartupSummary() {
+        List<TargetLoad> currentLoads = getLoads();
+        Map<String, Object> summary = new LinkedHashMap<>();
+        ZonedDateTime start = startupStart;
+        ZonedDateTime end = startupEnd;
+
+        summary.put("start", start);
+        summary.put("end", end);
+        summary.put("duration", start != null && end != null? start.until(end, ChronoUnit.MILLIS) : null);
+        summary.put("parallelism", startupParallelism);
+        summary.put("targets_count", currentLoads.size());
+        summary.put("ready_count", currentLoads.stream().filter(load -> load.getStatus() == Status.READY).count());
+        summary.put("loading_count", currentLoads.stream().filter(load -> load.getStatus() == Status.LOADING).count());
+        summary.put("failed_count", currentLoads.stream().filter(load -> load.getStatus() == Status.FAILED).count());
+        summary.put("yaml_parse_time", currentLoads.stream().mapToLong(TargetLoad::getYamlParseTime).sum());
+        summary.put("context_refresh_time", currentLoads.stream().mapToLong(TargetLoad::getContextRefreshTime).sum());
+        summary.put("processor_init_time", currentLoads.stream().mapToLong(TargetLoad::getProcessorInitTime).sum());
+        summary.put("slowest_loads", currentLoads.stream()
+                                                 .sorted(Comparator.comparingLong(TargetLoad::getDuration).reversed())
+                                                 .limit(SLOWEST_LOADS_COUNT)
+                                                 .collect(Collectors.toList()));
+
+        return summary;
+    }
+
+    public enum Status {
+        LOADING, READY, FAILED
+    }
+
+    /**
+     * The load of a single target config file. Each phase method records the time elapsed since the previous phase ended.
+     */
+    public static class TargetLoad {
+
+        protected final String configFile;
+        protected final ZonedDateTime start;
+        protected volatile String targetId;
+        protected volatile Status status;
+        protected volatile long yamlParseTime;
+        protected volatile long contextRefreshTime;
+        protected volatile long processorInitTime;
+        protected volatile long duration;
+        protected volatile String error;
+        protected final long startNanos;
+        protected long lastPhaseNanos;
+
+        public TargetLoad(String configFile) {
+            this.configFile = configFile;
+            this.start = ZonedDateTime.now();
+            this.status = Status.LOADING;
+            this.startNanos = System.nanoTime();
+            this.lastPhaseNanos = startNanos;
+        }
+
+        @JsonProperty("config_file")
+        public String getConfigFile() {
+            return configFile;
+        }
+
+        @JsonProperty("target_id")
+        public String getTargetId() {
+            return targetId;
+        }
+
+        @JsonProperty("status")
+        public Status getStatus() {
+            return status;
+        }
+
+        @JsonProperty("start")
+        public ZonedDateTime getStart() {
+            return start;
+        }
+
+        /**
+         * Returns the millis spent loading and merging the YAML configuration.
+         */
+        @JsonProperty("yaml_parse_time")
+        public long getYamlParseTime() {
+            return yamlParseTime;
+        }
+
+        /**
+         * Returns the millis spent loading the bean definitions and refreshing the application context.
+         */
+        @JsonProperty("context_refresh_time")
+        public long getContextRefreshTime() {
+            return contextRefreshTime;
+        }
+
+        /**
+         * Returns the millis spent initializing the processors of the deployment pipeline.
+         */
+        @JsonProperty("processor_init_time")
+        public long getProcessorInitTime() {
+            return processorInitTime;
+        }
+
+        /**
+         * Returns the total millis of the load (0 while the target is still loading).
+         */
+        @JsonProperty("duration")
+        public long getDuration() {
+            return duration;
+        }
+
+        @JsonProperty("error")
+        public String getError() {
+            return error;
+        }
+
+        public void yamlParsed() {
+            yamlParseTime = nextPhase();
+        }
+
+        public void contextRefreshed() {
+            contextRefreshTime = nextPhase();
+        }
+
+        public void processorsInitialized() {
+            processorInitTime = nextPhase();
+        }
+
+        public void ready(String targetId) {
+            this.targetId = targetId;
+            this.duration = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+            this.status = Status.READY;
+        }
+
+        public void failed(Exception e) {
+            this.error = e.getMessage();
+            this.duration = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+            this.status = Status.FAILED;
+        }
+
+        protected long nextPhase() {
+            long now = System.nanoTime();
+            long elapsed = TimeUnit.NANOSECONDS.toMillis(now - lastPhaseNanos);
+
+            lastPhaseNanos = now;
+
+            return elapsed;
+        }
+
+    }
+
+}
@@ -31,16 +31,24 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
 
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.collections4.MapUtils;
+import org.apache.commons.configuration2.BaseHierarchicalConfiguration;
 import org.apache.commons.configuration2.CombinedConfiguration;
+import org.apache.commons.configuration2.Configuration;
 import org.apache.commons.configuration2.HierarchicalConfiguration;
 import org.apache.commons.configuration2.tree.OverrideCombiner;
 import org.apache.commons.io.FileUtils;
@@ -58,12 +66,20 @@ import org.craftercms.deployer.api.exceptions.DeployerException;
 import org.craftercms.deployer.api.exceptions.TargetAlreadyExistsException;
 import org.craftercms.deployer.api.exceptions.TargetNotFoundException;
 import org.craftercms.deployer.api.exceptions.TargetServiceException;
+import org.craftercms.deployer.utils.CachedResource;
 import org.craftercms.deployer.utils.ConfigUtils;
+import org.craftercms.deployer.utils.ContentDigest;
 import org.craftercms.deployer.utils.handlebars.MissingValueHelper;
+import org.craftercms.deployer.utils.scheduling.OffsetTrigger;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.support.AbstractBeanDefinition;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.beans.factory.support.GenericBeanDefinition;
 import org.springframework.beans.factory.xml.XmlBeanDefinitionReader;
 import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.context.ApplicationContext;
@@ -73,14 +89,27 @@ import org.springframework.context.support.GenericApplicationContext;
 import org.springframework.core.env.MutablePropertySources;
 import org.springframework.core.io.Resource;
 import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.Trigger;
+import org.springframework.scheduling.support.CronTrigger;
 import org.springframework.stereotype.Component;
 import org.xml.sax.InputSource;
 
+import static org.craftercms.deployer.impl.DeploymentConstants.TARGET_DEPLOYMENT_COALESCING_ENABLED_CONFIG_KEY;
 import static org.craftercms.deployer.impl.DeploymentConstants.TARGET_DEPLOYMENT_PIPELINE_CONFIG_KEY;
 import static org.craftercms.deployer.impl.DeploymentConstants.TARGET_ENV_CONFIG_KEY;
+import static org.craftercms.deployer.impl.DeploymentConstants.TARGET_FINISHED_DEPLOYMENTS_MAX_COUNT_CONFIG_KEY;
+import static org.craftercms.deployer.impl.DeploymentConstants.TARGET_GIT_MAINTENANCE_AGGRESSIVE_CONFIG_KEY;
+import static org.craftercms.deployer.impl.DeploymentConstants.TARGET_GIT_MAINTENANCE_CRON_CONFIG_KEY;
+import static org.craftercms.deployer.impl.DeploymentConstants.TARGET_GIT_MAINTENANCE_ENABLED_CONFIG_KEY;
 import static org.craftercms.deployer.impl.DeploymentConstants.TARGET_ID_CONFIG_KEY;
+import static org.craftercms.deployer.impl.DeploymentConstants.TARGET_LOCAL_REPO_PATH_CONFIG_KEY;
+import static org.craftercms.deployer.impl.DeploymentConstants.TARGET_RELOAD_MODE_CONFIG_KEY;
+import static org.craftercms.deployer.impl.DeploymentConstants.TARGET_SCHEDULED_DEPLOYMENT_BACKOFF_MAX_SKIPPED_RUNS_CONFIG_KEY;
+import static org.craftercms.deployer.impl.DeploymentConstants.TARGET_SCHEDULED_DEPLOYMENT_BACKOFF_THRESHOLD_CONFIG_KEY;
 import static org.craftercms.deployer.impl.DeploymentConstants.TARGET_SCHEDULED_DEPLOYMENT_CRON_CONFIG_KEY;
 import static org.craftercms.deployer.impl.DeploymentConstants.TARGET_SCHEDULED_DEPLOYMENT_ENABLED_CONFIG_KEY;
+import static org.craftercms.deployer.impl.DeploymentConstants.TARGET_SCHEDULED_DEPLOYMENT_JITTER_ENABLED_CONFIG_KEY;
+import static org.craftercms.deployer.impl.DeploymentConstants.TARGET_SCHEDULED_DEPLOYMENT_JITTER_MAX_DELAY_CONFIG_KEY;
 import static org.craftercms.deployer.impl.DeploymentConstants.TARGET_SITE_NAME_CONFIG_KEY;
 
 /**
@@ -111,8 +140,26 @@ public class TargetServiceImpl implements TargetService, ApplicationListener<App
     protected ApplicationContext mainApplicationContext;
     protected DeploymentPipelineFactory deploymentPipelineFactory;
     protected TaskScheduler taskScheduler;
+    protected Executor deploymentTaskExecutor;
+    protected Semaphore scheduledDeploymentsLimiter;
     protected ProcessedCommitsStore processedCommitsStore;
-    protected Set<Target> loadedTargets;
+    protected DeploymentJournal deploymentJournal;
+    protected DeploymentHistoryStore deploymentHistoryStore;
+    protected DeploymentMetrics deploymentMetrics;
+    protected Executor targetLoadingExecutor;
+    protected int targetLoadingParallelism;
+    protected TargetLoadingMetrics targetLoadingMetrics;
+    protected CachedResource<HierarchicalConfiguration> baseTargetYamlConfig;
+    protected CachedResource<HierarchicalConfiguration> baseTargetYamlConfigOverride;
+    protected CachedResource<DefaultListableBeanFactory> baseTargetContext;
+    protected CachedResource<DefaultListableBeanFactory> baseTargetContextOverride;
+    protected CachedResource<byte[]> baseTargetYamlConfigDigest;
+    protected CachedResource<byte[]> baseTargetYamlConfigOverrideDigest;
+    protected CachedResource<byte[]> baseTargetContextDigest;
+    protected CachedResource<byte[]> baseTargetContextOverrideDigest;
+    protected ConcurrentMap<String, Target> loadedTargetsById;
+    protected ConcurrentMap<File, Target> loadedTargetsByConfigFile;
+    protected ConcurrentMap<File, Lock> targetLocks;
 
     public TargetServiceImpl(
         @Value("${deployer.main.targets.config.folderPath}") File targetConfigFolder,
@@ -121,11 +168,19 @@ public class TargetServiceImpl implements TargetService, ApplicationListener<App
         @Value("${deployer.main.targets.config.baseContext.location}") Resource baseTargetContextResource,
         @Value("${deployer.main.targets.config.baseContext.overrideLocation}") Resource baseTargetContextOverrideResource,
         @Value("${deployer.main.targets.config.templates.default}") String defaultTargetConfigTemplateName,
+        @Value("${deployer.main.deployments.scheduling.maxConcurrent}") int maxConcurrentScheduledDeployments,
         @Autowired Handlebars targetConfigTemplateEngine,
         @Autowired ApplicationContext mainApplicationContext,
         @Autowired DeploymentPipelineFactory deploymentPipelineFactory,
         @Autowired TaskScheduler taskScheduler,
-        @Autowired ProcessedCommitsStore processedCommitsStore) throws IOException {
+        @Autowired @Qualifier("deploymentTaskExecutor") Executor deploymentTaskExecutor,
+        @Autowired ProcessedCommitsStore processedCommitsStore,
+        @Autowired DeploymentMetrics deploymentMetrics,
+        @Value("${deployer.main.targets.loading.executor.poolSize}") int targetLoadingParallelism,
+        @Autowired @Qualifier("targetLoadingTaskExecutor") Executor targetLoadingExecutor,
+        @Autowired TargetLoadingMetrics targetLoadingMetrics,
+        @Autowired DeploymentJournal deploymentJournal,
+        @Autowired DeploymentHistoryStore deploymentHistoryStore) throws IOException {
         this.targetConfigFolder = targetConfigFolder;
         this.baseTargetYamlConfigResource = baseTargetYamlConfigResource;
         this.baseTargetYamlConfigOverrideResource = baseTargetYamlConfigOverrideResource;
@@ -136,8 +191,27 @@ public class TargetServiceImpl implements TargetService, ApplicationListener<App
         this.mainApplicationContext = mainApplicationContext;
         this.deploymentPipelineFactory = deploymentPipelineFactory;
         this.taskScheduler = taskScheduler;
+        this.deploymentTaskExecutor = deploymentTaskExecutor;
+        this.scheduledDeploymentsLimiter = maxConcurrentScheduledDeployments > 0? new Semaphore(maxConcurrentScheduledDeployments) : null;
         this.processedCommitsStore = processedCommitsStore;
-        this.loadedTargets = new HashSet<>();
+        this.deploymentMetrics = deploymentMetrics;
+        this.targetLoadingParallelism = targetLoadingParallelism;
+        this.targetLoadingExecutor = targetLoadingExecutor;
+        this.targetLoadingMetrics = targetLoadingMetrics;
+        this.deploymentJournal = deploymentJournal;
+        this.deploymentHistoryStore = deploymentHistoryStore;
+        this.baseTargetYamlConfig = new CachedResource<>(baseTargetYamlConfigResource, ConfigUtils::loadYamlConfiguration);
+        this.baseTargetYamlConfigOverride = new CachedResource<>(baseTargetYamlConfigOverrideResource,
+                                                                 ConfigUtils::loadYamlConfiguration);
+        this.baseTargetContext = new CachedResource<>(baseTargetContextResource, this::loadBeanDefinitions);
+        this.baseTargetContextOverride = new CachedResource<>(baseTargetContextOverrideResource, this::loadBeanDefinitions);
+        this.baseTargetYamlConfigDigest = new CachedResource<>(baseTargetYamlConfigResource, ContentDigest::digest);
+        this.baseTargetYamlConfigOverrideDigest = new CachedResource<>(baseTargetYamlConfigOverrideResource, ContentDigest::digest);
+        this.baseTargetContextDigest = new CachedResource<>(baseTargetContextResource, ContentDigest::digest);
+        this.baseTargetContextOverrideDigest = new CachedResource<>(baseTargetContextOverrideResource, ContentDigest::digest);
+        this.loadedTargetsById = new ConcurrentHashMap<>();
+        this.loadedTargetsByConfigFile = new ConcurrentHashMap<>();
+        this.targetLocks = new ConcurrentHashMap<>();
     }
 
     @PostConstruct
@@ -156,10 +230,15 @@ public class TargetServiceImpl implements TargetService, ApplicationListener<App
     @Override
     public void onApplicationEvent(ApplicationReadyEvent event) {
         // Load all existing targets on startup
+        targetLoadingMetrics.startupStarted(targetLoadingParallelism);
         try {
-            resolveTargets();
+            List<Target> targets = resolveTargets();
+
+            logger.info("{} targets loaded on startup", targets.size());
         } catch (DeployerException e) {
             logger.error("Error while loading targets on startup", e);
+        } finally {
+            targetLoadingMetrics.startupFinished();
         }
     }
 
@@ -167,35 +246,92 @@ public class TargetServiceImpl implements TargetService, ApplicationListener<App
     public void destroy() {
         logger.info("Closing all targets...");
 
-        if (CollectionUtils.isNotEmpty(loadedTargets)) {
-            loadedTargets.forEach(Target::close);
-        }
+        loadedTargetsById.values().forEach(Target::close);
     }
 
+    /**
+     * Resolves the targets of all the config files. The service isn't locked while doing it: each config file is resolved under
+     * its own lock, so lookups, deployments and changes of other targets are never blocked by a slow target reload. The config
+     * files are resolved in parallel by the target loading executor, and each target is registered (and can start deploying) as
+     * soon as it's loaded. If some targets fail to load, the rest are still loaded, and the first error is thrown at the end.
+     */
     @Override
-    public synchronized List<Target> resolveTargets() throws TargetServiceException {
+    public List<Target> resolveTargets() throws TargetServiceException {
         Collection<File> configFiles = getTargetConfigFiles();
         List<Target> targets = new ArrayList<>();
 
         if (CollectionUtils.isNotEmpty(configFiles)) {
             closeTargetsWithNoConfigFile(configFiles);
 
+            List<CompletableFuture<Target>> futures = new ArrayList<>(configFiles.size());
             for (File file : configFiles) {
-                Target target = resolveTargetFromConfigFile(file);
-                targets.add(target);
+                futures.add(CompletableFuture.supplyAsync(() -> {
+                    try {
+                        return resolveTargetFromConfigFile(file);
+                    } catch (TargetServiceException e) {
+                        throw new CompletionException(e);
+                    }
+                }, targetLoadingExecutor));
+            }
+
+            TargetServiceException firstError = null;
+
+            for (CompletableFuture<Target> future : futures) {
+                try {
+                    targets.add(future.join());
+                } catch (CompletionException e) {
+                    TargetServiceException error = e.getCause() instanceof TargetServiceException?
+                        (TargetServiceException) e.getCause() : new TargetServiceException("Failed to resolve target", e.getCause());
+
+                    if (firstError == null) {
+                        firstError = error;
+                    } else {
+                        logger.error("Failed to resolve target", error);
+                    }
+                }
+            }
+
+            if (firstError != null) {
+                throw firstError;
             }
         }
 
         return targets;
     }
 
+    @Override
+    public Target resolveTarget(File configFile) throws TargetServiceException {
+        if (!new CustomConfigFileFilter().accept(configFile)) {
+            return null;
+        }
+
+        Lock lock = lockTarget(configFile);
+
+        try {
+            if (configFile.exists()) {
+                return doResolveTargetFromConfigFile(configFile);
+            } else {
+                Target target = findLoadedTargetByConfigFile(configFile);
+                if (target != null) {
+                    closeTargetWithNoConfigFile(target);
+                } else {
+                    removeTargetLock(configFile);
+                }
+
+                return null;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
     @Override
     public List<Target> getAllTargets() throws TargetServiceException {
-        return new ArrayList<>(loadedTargets);
+        return new ArrayList<>(loadedTargetsById.values());
     }
 
     @Override
-    public synchronized Target getTarget(String env, String siteName) throws TargetNotFoundException {
+    public Target getTarget(String env, String siteName) throws TargetNotFoundException {
         String id = TargetImpl.getId(env, siteName);
         Target target = findLoadedTargetById(id);
 
@@ -207,31 +343,52 @@ public class TargetServiceImpl implements TargetService, ApplicationListener<App
     }
 
     @Override
-    public synchronized Target createTarget(String env, String siteName, boolean replace, String templateName,
-                                            Map<String, Object> templateParams) throws TargetAlreadyExistsException,
-        TargetServiceException {
+    public Target createTarget(String env, String siteName, boolean replace, String templateName,
+                               Map<String, Object> templateParams) throws TargetAlreadyExistsException, TargetServiceException {
         String id = TargetImpl.getId(env, siteName);
         File configFile = new File(targetConfigFolder, id + "." + YAML_FILE_EXTENSION);
+        Lock lock = lockTarget(configFile);
 
-        if (!replace && configFile.exists()) {
-            throw new TargetAlreadyExistsException(id);
-        } else {
-            createConfigFromTemplate(env, siteName, id, templateName, templateParams, configFile);
-        }
+        try {
+            if (!replace && configFile.exists()) {
+                throw new TargetAlreadyExistsException(id);
+            } else {
+                createConfigFromTemplate(env, siteName, id, templateName, templateParams, configFile);
+            }
 
-        return resolveTargetFromConfigFile(configFile);
+            return resolveTargetFromConfigFile(configFile);
+        } finally {
+            lock.unlock();
+        }
     }
 
     @Override
-    public synchronized void deleteTarget(String env, String siteName) throws TargetNotFoundException, TargetServiceException {
+    public void deleteTarget(String env, String siteName) throws TargetNotFoundException, TargetServiceException {
         Target target = getTarget(env, siteName);
+        Lock lock = lockTarget(target.getConfigurationFile());
+
+        try {
+            // The target could have been reloaded or deleted while waiting for the lock
+            Target currentTarget = getTarget(env, siteName);
+
+            deleteTarget(currentTarget);
+
+            removeTargetLock(currentTarget.getConfigurationFile());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    protected void deleteTarget(Target target) throws TargetServiceException {
         String id = target.getId();
 
         target.close();
 
         logger.info("Removing loaded target '{}'", id);
 
-        loadedTargets.remove(target);
+        unregisterTarget(target);
+
+        targetLoadingMetrics.clear(target.getConfigurationFile());
 
         try {
             processedCommitsStore.delete(id);
@@ -239,6 +396,18 @@ public class TargetServiceImpl implements TargetService, ApplicationListener<App
             throw new TargetServiceException("Error while deleting processed commit from store for target '" + id + "'", e);
         }
 
+        try {
+            deploymentJournal.delete(id);
+        } catch (DeployerException e) {
+            throw new TargetServiceException("Error while deleting deployment journal for target '" + id + "'", e);
+        }
+
+        try {
+            deploymentHistoryStore.delete(id);
+        } catch (DeployerException e) {
+            throw new TargetServiceException("Error while deleting deployment history for target '" + id + "'", e);
+        }
+
         File configFile =  target.getConfigurationFile();
         if (configFile.exists()) {
             logger.info("Deleting target configuration file at {}", configFile);
@@ -277,40 +446,79 @@ public class TargetServiceImpl implements TargetService, ApplicationListener<App
     }
 
     protected void closeTargetsWithNoConfigFile(Collection<File> configFiles) {
-        if (CollectionUtils.isNotEmpty(loadedTargets)) {
-            loadedTargets.removeIf(target -> {
-                File configFile = target.getConfigurationFile();
-                if (!configFiles.contains(configFile)) {
-                    logger.info("Config file {} doesn't exist anymore for target '{}'. Closing target...", configFile);
+        for (Target target : loadedTargetsById.values()) {
+            File configFile = target.getConfigurationFile();
+            if (!configFiles.contains(configFile)) {
+                Lock lock = lockTarget(configFile);
+
+                try {
+                    // Check again under the lock, the target could have just been created
+                    if (!configFile.exists()) {
+                        closeTargetWithNoConfigFile(target);
+                    }
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+    }
 
-                    target.close();
+    /**
+     * Unregisters and closes a target whose config file was deleted. Must be called while holding the lock of the config file.
+     */
+    protected void closeTargetWithNoConfigFile(Target target) {
+        if (unregisterTarget(target)) {
+            logger.info("Config file {} doesn't exist anymore for target '{}'. Closing target...", target.getConfigurationFile(),
+                        target.getId());
 
-                    return true;
-                } else {
-                    return false;
-                }
-            });
+            target.close();
         }
+
+        removeTargetLock(target.getConfigurationFile());
     }
 
     protected Target resolveTargetFromConfigFile(File configFile) throws TargetServiceException {
+        Lock lock = lockTarget(configFile);
+
+        try {
+            return doResolveTargetFromConfigFile(configFile);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Resolves the target of the specified config file. Must be called while holding the lock of the config file.
+     */
+    protected Target doResolveTargetFromConfigFile(File configFile) throws TargetServiceException {
         String baseName = FilenameUtils.getBaseName(configFile.getName());
         File contextFile = new File(targetConfigFolder, String.format(APPLICATION_CONTEXT_FILENAME_FORMAT, baseName));
         Target target = findLoadedTargetByConfigFile(configFile);
+        String configDigest = computeConfigDigest(configFile, contextFile);
 
         if (target != null) {
-            // Check if the YAML config file or the app context file have changed since target load.
-            long yamlLastModified = configFile.exists() ? configFile.lastModified() : 0;
-            long contextLastModified = contextFile.exists()? contextFile.lastModified() : 0;
-            long targetLoadedDate = target.getLoadDate().toInstant().toEpochMilli();
-
-            // Refresh if the files have been modified.
-            if (yamlLastModified >= targetLoadedDate || contextLastModified >= targetLoadedDate) {
+            // Refresh only if the content of the effective configuration has changed since target load (modification dates
+            // are not reliable, files can be touched or rewritten with the same content)
+            if (!configDigest.equals(getLatestConfigDigest(target))) {
                 logger.info("Configuration files haven been updated for '{}'. The target will be reloaded.", target.getId());
 
+                TargetLoadingMetrics.TargetLoad load = targetLoadingMetrics.loadStarted(configFile);
+                try {
+                    if (reloadTarget(target, contextFile, configDigest, load)) {
+                        load.ready(target.getId());
+
+                        return target;
+                    }
+                } catch (TargetServiceException e) {
+                    // The target keeps running with the previous configuration
+                    load.failed(e);
+
+                    throw e;
+                }
+
                 target.close();
 
-                loadedTargets.remove(target);
+                unregisterTarget(target);
 
                 target = null;
             }
@@ -321,28 +529,67 @@ public class TargetServiceImpl implements TargetService, ApplicationListener<App
         if (target == null) {
             logger.info("Loading target for configuration file {}", configFile);
 
-            target = createTarget(configFile, contextFile);
-            loadedTargets.add(target);
+            TargetLoadingMetrics.TargetLoad load = targetLoadingMetrics.loadStarted(configFile);
+            try {
+                target = createTarget(configFile, contextFile, configDigest, load);
+            } catch (TargetServiceException e) {
+                load.failed(e);
+
+                throw e;
+            }
+
+            try {
+                registerTarget(target);
+            } catch (TargetServiceException e) {
+                target.close();
+
+                load.failed(e);
+
+                throw e;
+            }
+
+            load.ready(target.getId());
+
+            logger.info("Target '{}' loaded in {} ms (YAML parse: {} ms, context refresh: {} ms, processor init: {} ms)",
+                        target.getId(), load.getDuration(), load.getYamlParseTime(), load.getContextRefreshTime(),
+                        load.getProcessorInitTime());
         }
 
         return target;
     }
 
-    protected Target createTarget(File configFile, File contextFile) throws TargetServiceException {
+    protected Target createTarget(File configFile, File contextFile, String configDigest,
+                                  TargetLoadingMetrics.TargetLoad load) throws TargetServiceException {
         try {
-            HierarchicalConfiguration config = loadConfiguration(configFile);
-            String env = ConfigUtils.getRequiredStringProperty(config, TARGET_ENV_CONFIG_KEY);
-            String siteName = ConfigUtils.getRequiredStringProperty(config, TARGET_SITE_NAME_CONFIG_KEY);
-            String targetId = TargetImpl.getId(env, siteName);
+            HierarchicalConfiguration config = loadTargetConfiguration(configFile);
+            String env = config.getString(TARGET_ENV_CONFIG_KEY);
+            String siteName = config.getString(TARGET_SITE_NAME_CONFIG_KEY);
+
+            // Fail before building the context, so the duplicate doesn't start any deployment
+            checkNotLoadedFromOtherConfigFile(TargetImpl.getId(env, siteName), configFile);
 
-            config.setProperty(TARGET_ID_CONFIG_KEY, targetId);
+            load.yamlParsed();
 
             ConfigurableApplicationContext context = loadApplicationContext(config, contextFile);
+
+            load.contextRefreshed();
+
             DeploymentPipeline deploymentPipeline = deploymentPipelineFactory.getPipeline(config, context,
                                                                                           TARGET_DEPLOYMENT_PIPELINE_CONFIG_KEY);
-            Target target = new TargetImpl(env, siteName, deploymentPipeline, configFile, config, context);
 
-            scheduleDeployment(target);
+            load.processorsInitialized();
+
+            TargetImpl target = new TargetImpl(env, siteName, deploymentPipeline, configFile, config, context, deploymentTaskExecutor);
+            target.setConfigurationDigest(configDigest);
+            target.setDeploymentJournal(deploymentJournal);
+            target.setDeploymentHistoryStore(deploymentHistoryStore);
+
+            configureTarget(target, config);
+            scheduleDeployment(target, config);
+            scheduleMaintenance(target, config);
+
+            // Deployments that were queued or running when the previous instance of the target was closed
+            target.replayUnfinishedDeployments();
 
             return target;
         } catch (Exception e) {
@@ -350,27 +597,151 @@ public class TargetServiceImpl implements TargetService, ApplicationListener<App
         }
     }
 
+    /**
+     * Returns the digest of the latest configuration of the target: the one of its pending hot reload if there's one waiting for
+     * the current deployment to finish (so the same changes aren't loaded again while it waits), or else the one it was loaded
+     * with.
+     */
+    protected String getLatestConfigDigest(Target target) {
+        if (target instanceof TargetImpl) {
+            String pendingDigest = ((TargetImpl) target).getPendingConfigurationDigest();
+            if (pendingDigest != null) {
+                return pendingDigest;
+            }
+        }
+
+        return target.getConfigurationDigest();
+    }
+
+    /**
+     * Reloads the target in place if its reload mode is {@code hot}: the new application context and pipeline are built while
+     * the target keeps running, and then swapped in between deployments, keeping the pending deployments. The scheduled tasks
+     * are scheduled again with the new configuration.
+     *
+     * @return true if the target was reloaded in place, false if it needs to be closed and loaded again (reload mode
+     * {@code restart}, or the env or site name changed)
+     */
+    protected boolean reloadTarget(Target target, File contextFile, String configDigest,
+                                   TargetLoadingMetrics.TargetLoad load) throws TargetServiceException {
+        if (!(target instanceof TargetImpl)) {
+            return false;
+        }
+
+        TargetImpl targetImpl = (TargetImpl) target;
+        File configFile = target.getConfigurationFile();
+        ConfigurableApplicationContext context = null;
+        DeploymentPipeline deploymentPipeline = null;
+
+        try {
+            HierarchicalConfiguration config = loadTargetConfiguration(configFile);
+            ReloadMode mode = ReloadMode.fromString(ConfigUtils.getStringProperty(config, TARGET_RELOAD_MODE_CONFIG_KEY,
+                                                                                  ReloadMode.HOT.name()));
+
+            if (mode != ReloadMode.HOT || !target.getId().equals(config.getString(TARGET_ID_CONFIG_KEY))) {
+                return false;
+            }
+
+            load.yamlParsed();
+
+            context = loadApplicationContext(config, contextFile);
+
+            load.contextRefreshed();
+
+            deploymentPipeline = deploymentPipelineFactory.getPipeline(config, context, TARGET_DEPLOYMENT_PIPELINE_CONFIG_KEY);
+
+            load.processorsInitialized();
+
+            configureTarget(targetImpl, config);
+
+            targetImpl.reload(deploymentPipeline, config, context, configDigest);
+
+            // The target owns the new pipeline and context now
+            context = null;
+            deploymentPipeline = null;
+
+            targetImpl.cancelScheduledTasks();
+
+            scheduleDeployment(targetImpl, config);
+            scheduleMaintenance(targetImpl, config);
+
+            return true;
+        } catch (Exception e) {
+            if (deploymentPipeline != null) {
+                try {
+                    deploymentPipeline.destroy();
+                } catch (Exception de) {
+                    logger.error("Failed to destroy new pipeline of target '" + target.getId() + "'", de);
+                }
+            }
+            if (context != null) {
+                context.close();
+            }
+
+            throw new TargetServiceException("Failed to reload target for configuration file " + configFile, e);
+        }
+    }
+
+    /**
+     * Loads the effective YAML configuration of a target, adding the target ID.
+     */
+    protected HierarchicalConfiguration loadTargetConfiguration(File configFile) throws DeployerConfigurationException {
+        HierarchicalConfiguration config = loadConfiguration(configFile);
+        String env = ConfigUtils.getRequiredStringProperty(config, TARGET_ENV_CONFIG_KEY);
+        String siteName = ConfigUtils.getRequiredStringProperty(config, TARGET_SITE_NAME_CONFIG_KEY);
+
+        config.setProperty(TARGET_ID_CONFIG_KEY, TargetImpl.getId(env, siteName));
+
+        return config;
+    }
+
+    protected void configureTarget(TargetImpl target, Configuration config) throws DeployerConfigurationException {
+        target.setCoalesceDeployments(ConfigUtils.getBooleanProperty(config, TARGET_DEPLOYMENT_COALESCING_ENABLED_CONFIG_KEY, false));
+        target.setMaxFinishedDeployments(ConfigUtils.getIntegerProperty(config, TARGET_FINISHED_DEPLOYMENTS_MAX_COUNT_CONFIG_KEY,
+                                                                        TargetImpl.DEFAULT_MAX_FINISHED_DEPLOYMENTS));
+        target.setScheduledDeploymentBackoff(
+            ConfigUtils.getIntegerProperty(config, TARGET_SCHEDULED_DEPLOYMENT_BACKOFF_THRESHOLD_CONFIG_KEY, 0),
+            ConfigUtils.getIntegerProperty(config, TARGET_SCHEDULED_DEPLOYMENT_BACKOFF_MAX_SKIPPED_RUNS_CONFIG_KEY, 0));
+        target.setScheduledDeploymentsLimiter(scheduledDeploymentsLimiter);
+    }
+
+    /**
+     * Computes the digest of the effective configuration of a target: its YAML and context files, plus the base YAML and context
+     * files and their overrides (whose digests are cached, since they're shared by all targets).
+     */
+    protected String computeConfigDigest(File configFile, File contextFile) throws TargetServiceException {
+        try {
+            return new ContentDigest().update(configFile)
+                                      .update(contextFile)
+                                      .update(baseTargetYamlConfigDigest.get())
+                                      .update(baseTargetYamlConfigOverrideDigest.get())
+                                      .update(baseTargetContextDigest.get())
+                                      .update(baseTargetContextOverrideDigest.get())
+                                      .toHexString();
+        } catch (IOException | DeployerConfigurationException e) {
+            throw new TargetServiceException("Failed to compute configuration digest for " + configFile, e);
+        }
+    }
+
     protected HierarchicalConfiguration loadConfiguration(File configFile) throws DeployerConfigurationException {
         String configFilename = configFile.getPath();
 
         logger.debug("Loading target YAML config at {}", configFilename);
 
         HierarchicalConfiguration config = ConfigUtils.loadYamlConfiguration(configFile);
+        // The base configs are parsed once and shared by all targets, so each target gets its own copy
+        HierarchicalConfiguration baseConfigOverride = baseTargetYamlConfigOverride.get();
+        HierarchicalConfiguration baseConfig = baseTargetYamlConfig.get();
 
-        if (baseTargetYamlConfigResource.exists() || baseTargetYamlConfigOverrideResource.exists()) {
+        if (baseConfig != null || baseConfigOverride != null) {
             CombinedConfiguration combinedConfig = new CombinedConfiguration(new OverrideCombiner());
 
             combinedConfig.addConfiguration(config);
 
-            if (baseTargetYamlConfigOverrideResource.exists()) {
-                logger.debug("Loading base target YAML config override at {}", baseTargetYamlConfigOverrideResource);
-
-                combinedConfig.addConfiguration(ConfigUtils.loadYamlConfiguration(baseTargetYamlConfigOverrideResource));
+            if (baseConfigOverride != null) {
+                combinedConfig.addConfiguration(new BaseHierarchicalConfiguration(baseConfigOverride));
             }
-            if (baseTargetYamlConfigResource.exists()) {
-                logger.debug("Loading base target YAML config at {}", baseTargetYamlConfigResource);
-
-                combinedConfig.addConfiguration(ConfigUtils.loadYamlConfiguration(baseTargetYamlConfigResource));
+            if (baseConfig != null) {
+                combinedConfig.addConfiguration(new BaseHierarchicalConfiguration(baseConfig));
             }
 
             return combinedConfig;
@@ -386,30 +757,23 @@ public class TargetServiceImpl implements TargetService, ApplicationListener<App
         MutablePropertySources propertySources = context.getEnvironment().getPropertySources();
         propertySources.addFirst(new ApacheCommonsConfiguration2PropertySource(CONFIG_PROPERTY_SOURCE_NAME, config));
 
-        XmlBeanDefinitionReader reader = new XmlBeanDefinitionReader(context);
-        reader.setValidationMode(XmlBeanDefinitionReader.VALIDATION_XSD);
-
-        if (baseTargetContextResource.exists()) {
-            logger.debug("Loading base target application context at {}", baseTargetContextResource);
-
-            try {
-                reader.loadBeanDefinitions(baseTargetContextResource);
-            } catch (Exception e) {
-                throw new DeployerConfigurationException("Failed to load application context at " + baseTargetContextResource, e);
-            }
+        // The base bean definitions are parsed once and copied to each target context
+        DefaultListableBeanFactory baseBeanDefinitions = baseTargetContext.get();
+        if (baseBeanDefinitions != null) {
+            registerBeanDefinitions(baseBeanDefinitions, context);
         }
-        if (baseTargetContextOverrideResource.exists()) {
-            logger.debug("Loading base target application context override at {}", baseTargetContextOverrideResource);
 
-            try {
-                reader.loadBeanDefinitions(baseTargetContextOverrideResource);
-            } catch (Exception e) {
-                throw new DeployerConfigurationException("Failed to load application context at " + baseTargetContextOverrideResource, e);
-            }
+        DefaultListableBeanFactory baseBeanDefinitionsOverride = baseTargetContextOverride.get();
+        if (baseBeanDefinitionsOverride != null) {
+            registerBeanDefinitions(baseBeanDefinitionsOverride, context);
         }
+
         if (contextFile.exists()) {
             logger.debug("Loading target application context at {}", contextFile);
 
+            XmlBeanDefinitionReader reader = new XmlBeanDefinitionReader(context);
+            reader.setValidationMode(XmlBeanDefinitionReader.VALIDATION_XSD);
+
             try (InputStream in = new BufferedInputStream(new FileInputStream(contextFile))) {
                 reader.loadBeanDefinitions(new InputSource(in));
             } catch (Exception e) {
@@ -422,14 +786,74 @@ public class TargetServiceImpl implements TargetService, ApplicationListener<App
         return context;
     }
 
-    protected void scheduleDeployment(Target target) throws DeployerConfigurationException {
-        boolean enabled =  ConfigUtils.getBooleanProperty(target.getConfiguration(), TARGET_SCHEDULED_DEPLOYMENT_ENABLED_CONFIG_KEY, true);
-        String cron = ConfigUtils.getStringProperty(target.getConfiguration(), TARGET_SCHEDULED_DEPLOYMENT_CRON_CONFIG_KEY);
+    protected DefaultListableBeanFactory loadBeanDefinitions(Resource resource) throws DeployerConfigurationException {
+        logger.debug("Loading base target application context at {}", resource);
+
+        DefaultListableBeanFactory registry = new DefaultListableBeanFactory();
+        XmlBeanDefinitionReader reader = new XmlBeanDefinitionReader(registry);
+        reader.setValidationMode(XmlBeanDefinitionReader.VALIDATION_XSD);
+        reader.setEnvironment(mainApplicationContext.getEnvironment());
+
+        try {
+            reader.loadBeanDefinitions(resource);
+        } catch (Exception e) {
+            throw new DeployerConfigurationException("Failed to load application context at " + resource, e);
+        }
+
+        return registry;
+    }
+
+    protected void registerBeanDefinitions(DefaultListableBeanFactory source, GenericApplicationContext context) {
+        for (String name : source.getBeanDefinitionNames()) {
+            BeanDefinition definition = source.getBeanDefinition(name);
+            if (definition instanceof AbstractBeanDefinition) {
+                definition = ((AbstractBeanDefinition) definition).cloneBeanDefinition();
+            } else {
+                definition = new GenericBeanDefinition(definition);
+            }
+
+            context.registerBeanDefinition(name, definition);
+
+            for (String alias : source.getAliases(name)) {
+                context.registerAlias(name, alias);
+            }
+        }
+    }
+
+    protected void scheduleDeployment(Target target, Configuration config) throws DeployerConfigurationException {
+        boolean enabled =  ConfigUtils.getBooleanProperty(config, TARGET_SCHEDULED_DEPLOYMENT_ENABLED_CONFIG_KEY, true);
+        String cron = ConfigUtils.getStringProperty(config, TARGET_SCHEDULED_DEPLOYMENT_CRON_CONFIG_KEY);
 
         if (enabled && StringUtils.isNotEmpty(cron)) {
-            logger.info("Deployment for target '{}' scheduled with cron {}", target.getId(), cron);
+            Trigger trigger = new CronTrigger(cron);
 
-            target.scheduleDeployment(taskScheduler, cron);
+            if (ConfigUtils.getBooleanProperty(config, TARGET_SCHEDULED_DEPLOYMENT_JITTER_ENABLED_CONFIG_KEY, false)) {
+                int maxDelay = ConfigUtils.getIntegerProperty(config, TARGET_SCHEDULED_DEPLOYMENT_JITTER_MAX_DELAY_CONFIG_KEY, 0);
+                long offset = OffsetTrigger.getOffsetForKey(target.getId(), maxDelay);
+
+                trigger = new OffsetTrigger(trigger, offset);
+
+                logger.info("Deployment for target '{}' scheduled with cron {} and offset of {} ms", target.getId(), cron, offset);
+            } else {
+                logger.info("Deployment for target '{}' scheduled with cron {}", target.getId(), cron);
+            }
+
+            target.scheduleDeployment(taskScheduler, trigger);
+        }
+    }
+
+    protected void scheduleMaintenance(TargetImpl target, Configuration config) throws DeployerConfigurationException {
+        boolean enabled = ConfigUtils.getBooleanProperty(config, TARGET_GIT_MAINTENANCE_ENABLED_CONFIG_KEY, false);
+        String cron = ConfigUtils.getStringProperty(config, TARGET_GIT_MAINTENANCE_CRON_CONFIG_KEY);
+        String localRepoPath = ConfigUtils.getStringProperty(config, TARGET_LOCAL_REPO_PATH_CONFIG_KEY);
+
+        if (enabled && StringUtils.isNotEmpty(cron) && StringUtils.isNotEmpty(localRepoPath)) {
+            boolean aggressive = ConfigUtils.getBooleanProperty(config, TARGET_GIT_MAINTENANCE_AGGRESSIVE_CONFIG_KEY, false);
+            GitMaintenanceTask task = new GitMaintenanceTask(target.getId(), new File(localRepoPath), aggressive, deploymentMetrics);
+
+            logger.info("Git maintenance for target '{}' scheduled with cron {}", target.getId(), cron);
+
+            target.scheduleMaintenance(taskScheduler, new CronTrigger(cron), task);
         }
     }
 
@@ -483,19 +907,79 @@ public class TargetServiceImpl implements TargetService, ApplicationListener<App
     }
 
     protected Target findLoadedTargetByConfigFile(File configFile) {
-        if (CollectionUtils.isNotEmpty(loadedTargets)) {
-            return loadedTargets.stream().filter(target -> target.getConfigurationFile().equals(configFile)).findFirst().orElse(null);
-        } else {
-            return null;
-        }
+        return loadedTargetsByConfigFile.get(configFile);
     }
 
     protected Target findLoadedTargetById(String id) {
-        if (CollectionUtils.isNotEmpty(loadedTargets)) {
-            return loadedTargets.stream().filter(target -> target.getId().equals(id)).findFirst().orElse(null);
-        } else {
-            return null;
+        return loadedTargetsById.get(id);
+    }
+
+    /**
+     * Registers a newly loaded target. A target with the same ID loaded from another config file is never replaced, since both
+     * would share the same local repository and stores: the new target is rejected instead.
+     */
+    protected void registerTarget(Target target) throws TargetServiceException {
+        Target existingTarget = loadedTargetsById.putIfAbsent(target.getId(), target);
+        if (existingTarget != null && existingTarget != target) {
+            throw new TargetServiceException(getDuplicateTargetMessage(target.getId(), target.getConfigurationFile(),
+                                                                       existingTarget.getConfigurationFile()));
         }
+
+        loadedTargetsByConfigFile.put(target.getConfigurationFile(), target);
+    }
+
+    protected void checkNotLoadedFromOtherConfigFile(String id, File configFile) throws TargetServiceException {
+        Target existingTarget = findLoadedTargetById(id);
+        if (existingTarget != null && !existingTarget.getConfigurationFile().equals(configFile)) {
+            throw new TargetServiceException(getDuplicateTargetMessage(id, configFile, existingTarget.getConfigurationFile()));
+        }
+    }
+
+    protected String getDuplicateTargetMessage(String id, File configFile, File existingConfigFile) {
+        return "Target '" + id + "' of config file " + configFile + " is already loaded from config file " + existingConfigFile;
+    }
+
+    protected boolean unregisterTarget(Target target) {
+        boolean removed = loadedTargetsById.remove(target.getId(), target);
+        loadedTargetsByConfigFile.remove(target.getConfigurationFile(), target);
+
+        return removed;
+    }
+
+    /**
+     * Acquires the lock of the specified config file. Since the lock can be removed by {@link #removeTargetLock(File)} while
+     * other threads are waiting for it, the lock is only returned if it's still the current one after being acquired.
+     */
+    protected Lock lockTarget(File configFile) {
+        while (true) {
+            Lock lock = targetLocks.computeIfAbsent(configFile, file -> new ReentrantLock());
+
+            lock.lock();
+
+            if (targetLocks.get(configFile) == lock) {
+                return lock;
+            } else {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Removes the lock of a config file that no longer has a target, so that locks don't pile up as targets are deleted. Must be
+     * called while holding the lock of the config file.
+     */
+    protected void removeTargetLock(File configFile) {
+        targetLocks.remove(configFile);
+    }
+
+    public enum ReloadMode {
+
+        HOT, RESTART;
+
+        public static ReloadMode fromString(String str) {
+            return valueOf(StringUtils.upperCase(StringUtils.trim(str)));
+        }
+
     }
 
     protected class CustomConfigFileFilter extends AbstractFileFilter {
@@ -16,19 +16,16 @@
  */
 package org.craftercms.deployer.impl.processors;
 
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Map;
 
 import org.apache.commons.configuration2.Configuration;
-import org.apache.commons.lang3.ArrayUtils;
-import org.craftercms.commons.lang.RegexUtils;
 import org.craftercms.deployer.api.ChangeSet;
 import org.craftercms.deployer.api.Deployment;
 import org.craftercms.deployer.api.ProcessorExecution;
 import org.craftercms.deployer.api.exceptions.DeployerException;
 import org.craftercms.deployer.impl.DeploymentConstants;
 import org.craftercms.deployer.utils.ConfigUtils;
+import org.craftercms.deployer.utils.PathFilter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -46,11 +43,13 @@ public abstract class AbstractMainDeploymentProcessor extends AbstractDeployment
 
     protected String[] includeFiles;
     protected String[] excludeFiles;
+    protected PathFilter pathFilter;
 
     @Override
     public void init(Configuration config) throws DeployerException {
         includeFiles = ConfigUtils.getStringArrayProperty(config, DeploymentConstants.PROCESSOR_INCLUDE_FILES_CONFIG_KEY);
         excludeFiles = ConfigUtils.getStringArrayProperty(config, DeploymentConstants.PROCESSOR_EXCLUDE_FILES_CONFIG_KEY);
+        pathFilter = PathFilter.create(includeFiles, excludeFiles);
 
         doInit(config);
     }
@@ -72,7 +71,9 @@ public abstract class AbstractMainDeploymentProcessor extends AbstractDeployment
                     deployment.setChangeSet(processedChangeSet);
                 }
 
-                execution.endExecution(Deployment.Status.SUCCESS);
+                if (!isExecutionEndedByProcessor()) {
+                    execution.endExecution(Deployment.Status.SUCCESS);
+                }
             } catch (Exception e) {
                 logger.error("Processor '" + name + "' for target '" + targetId + "' failed", e);
 
@@ -87,36 +88,16 @@ public abstract class AbstractMainDeploymentProcessor extends AbstractDeployment
     }
 
     protected ChangeSet getFilteredChangeSet(ChangeSet changeSet) {
-        if (changeSet != null && (ArrayUtils.isNotEmpty(includeFiles) || ArrayUtils.isNotEmpty(excludeFiles))) {
-            List<String> matchedCreatedFiles = new ArrayList<>();
-            List<String> matchedUpdatedFiles = new ArrayList<>();
-            List<String> matchedDeletedFiles = new ArrayList<>();
-
-            for (String path : changeSet.getCreatedFiles()) {
-                if (shouldIncludeFile(path)) {
-                    matchedCreatedFiles.add(path);
-                }
-            }
-            for (String path : changeSet.getUpdatedFiles()) {
-                if (shouldIncludeFile(path)) {
-                    matchedUpdatedFiles.add(path);
-                }
-            }
-            for (String path : changeSet.getDeletedFiles()) {
-                if (shouldIncludeFile(path)) {
-                    matchedDeletedFiles.add(path);
-                }
-            }
-
-            return new ChangeSet(matchedCreatedFiles, matchedUpdatedFiles, matchedDeletedFiles);
+        if (changeSet != null && pathFilter != null) {
+            // Processors with the same patterns share the same filtered view of the change set
+            return changeSet.filter(pathFilter.getKey(), pathFilter);
         } else {
             return changeSet;
         }
     }
 
     protected boolean shouldIncludeFile(String file) {
-        return (ArrayUtils.isEmpty(includeFiles) || RegexUtils.matchesAny(file, includeFiles)) &&
-               (ArrayUtils.isEmpty(excludeFiles) || !RegexUtils.matchesAny(file, excludeFiles));
+        return pathFilter == null || pathFilter.test(file);
     }
 
     protected boolean shouldExecute(Deployment deployment, ChangeSet filteredChangeSet) {
@@ -131,4 +112,13 @@ public abstract class AbstractMainDeploymentProcessor extends AbstractDeployment
 
     protected abstract boolean failDeploymentOnProcessorFailure();
 
+    /**
+     * Returns true if the processor ends the execution itself, normally because its work finishes asynchronously, after
+     * {@code doExecute} returns. Otherwise the execution is ended as successful as soon as {@code doExecute} returns. In both
+     * cases, an exception thrown by {@code doExecute} ends the execution as failed.
+     */
+    protected boolean isExecutionEndedByProcessor() {
+        return false;
+    }
+
 }
@@ -35,6 +35,8 @@ public abstract class AbstractPostDeploymentProcessor extends AbstractDeployment
 
     @Override
     public void execute(Deployment deployment) {
+        // Main processors can leave tasks running in parallel with the pipeline, so wait for them before ending
+        deployment.awaitPendingTasks();
         deployment.end(Deployment.Status.SUCCESS);
 
         if (shouldExecute(deployment)) {
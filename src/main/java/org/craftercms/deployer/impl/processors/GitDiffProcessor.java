@@ -18,8 +18,6 @@ package org.craftercms.deployer.impl.processors;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 
@@ -34,9 +32,8 @@ import org.craftercms.deployer.api.exceptions.DeployerException;
 import org.craftercms.deployer.impl.ProcessedCommitsStore;
 import org.craftercms.deployer.utils.GitUtils;
 import org.eclipse.jgit.api.Git;
-import org.eclipse.jgit.api.errors.GitAPIException;
-import org.eclipse.jgit.diff.DiffEntry;
 import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
 import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.lib.ObjectReader;
 import org.eclipse.jgit.lib.Repository;
@@ -46,6 +43,8 @@ import org.eclipse.jgit.revwalk.RevWalk;
 import org.eclipse.jgit.treewalk.AbstractTreeIterator;
 import org.eclipse.jgit.treewalk.CanonicalTreeParser;
 import org.eclipse.jgit.treewalk.EmptyTreeIterator;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Required;
@@ -54,7 +53,8 @@ import static org.craftercms.deployer.impl.DeploymentConstants.REPROCESS_ALL_FIL
 
 /**
  * Processor that, based on a previous processed commit that's stored, does a diff with the current commit of the deployment, to
- * find out the change set. If there is no previous processed commit, then the entire repository becomes the change set. This processor
+ * find out the change set. If there is no previous processed commit, or the commit no longer exists in the local repository (e.g. because
+ * the repository was re-cloned or the remote history was rewritten), then the entire repository becomes the change set. This processor
  * is used basically to create the change set and should be used before other processors that actually process the change set, like
  * {@link SearchIndexingProcessor}.
  *
@@ -110,9 +110,20 @@ public class GitDiffProcessor extends AbstractMainDeploymentProcessor {
         try (Git git = openLocalRepository()) {
             ObjectId previousCommitId = processedCommitsStore.load(targetId);
             ObjectId latestCommitId = getLatestCommitId(git);
+            boolean previousCommitMissing = previousCommitId != null && !git.getRepository().hasObject(previousCommitId);
+
+            if (previousCommitMissing) {
+                logger.warn("Processed commit {} not found in local repo {}. All files will be reprocessed", previousCommitId.name(),
+                            localRepoFolder);
+
+                previousCommitId = null;
+            }
+
             ChangeSet changeSet = resolveChangeSetFromCommits(git, previousCommitId, latestCommitId);
 
-            if (changeSet != null) {
+            if (changeSet != null && previousCommitMissing) {
+                execution.setStatusDetails("Processed commit not found in local repo. All files reprocessed");
+            } else if (changeSet != null) {
                 execution.setStatusDetails("Changes detected and resolved successfully");
             } else {
                 execution.setStatusDetails("No changes detected");
@@ -154,14 +165,23 @@ public class GitDiffProcessor extends AbstractMainDeploymentProcessor {
         if (!Objects.equals(fromCommitId, toCommitId)) {
             logger.info("Calculating change set from commits: {} -> {}", fromCommitIdStr, toCommitIdStr);
 
-            try (ObjectReader reader = git.getRepository().newObjectReader()) {
-                AbstractTreeIterator fromTreeIter = getTreeIteratorForCommit(git, reader, fromCommitId);
-                AbstractTreeIterator toTreeIter = getTreeIteratorForCommit(git, reader, toCommitId);
+            try (ObjectReader reader = git.getRepository().newObjectReader();
+                 TreeWalk treeWalk = new TreeWalk(reader)) {
+                treeWalk.addTree(getTreeIteratorForCommit(git, reader, fromCommitId));
+                treeWalk.addTree(getTreeIteratorForCommit(git, reader, toCommitId));
+                treeWalk.setRecursive(true);
+                treeWalk.setFilter(TreeFilter.ANY_DIFF);
 
-                List<DiffEntry> diffEntries = git.diff().setOldTree(fromTreeIter).setNewTree(toTreeIter).call();
+                // The changed paths are added to the change set as the trees are walked, instead of building the whole list of
+                // DiffEntry first, so memory doesn't depend on the diff metadata of every changed file
+                ChangeSet changeSet = new ChangeSet();
 
-                return processDiffEntries(diffEntries);
-            } catch (IOException | GitAPIException e) {
+                while (treeWalk.next()) {
+                    processTreeWalkEntry(treeWalk, changeSet);
+                }
+
+                return changeSet;
+            } catch (IOException e) {
                 throw new DeployerException("Failed to calculate change set from commits: " + fromCommitIdStr + " -> " + toCommitIdStr, e);
             }
         } else {
@@ -192,57 +212,22 @@ public class GitDiffProcessor extends AbstractMainDeploymentProcessor {
         }
     }
 
-    protected ChangeSet processDiffEntries(List<DiffEntry> diffEntries) {
-        List<String> createdFiles = new ArrayList<>();
-        List<String> updatedFiles = new ArrayList<>();
-        List<String> deletedFiles = new ArrayList<>();
-        String newPath;
-        String oldPath;
-
-        for (DiffEntry entry : diffEntries) {
-            switch (entry.getChangeType()) {
-                case MODIFY:
-                    newPath = asContentStoreUrl(entry.getNewPath());
-
-                    updatedFiles.add(newPath);
-
-                    logger.debug("Updated file: {}", newPath);
-                    break;
-                case DELETE:
-                    oldPath = asContentStoreUrl(entry.getOldPath());
+    protected void processTreeWalkEntry(TreeWalk treeWalk, ChangeSet changeSet) {
+        String path = asContentStoreUrl(treeWalk.getPathString());
 
-                    deletedFiles.add(oldPath);
+        if (treeWalk.getFileMode(0) == FileMode.MISSING) {
+            changeSet.addCreatedFile(path);
 
-                    logger.debug("Deleted file: {}", oldPath);
-                    break;
-                case RENAME:
-                    oldPath = asContentStoreUrl(entry.getOldPath());
-                    newPath = asContentStoreUrl(entry.getNewPath());
+            logger.debug("New file: {}", path);
+        } else if (treeWalk.getFileMode(1) == FileMode.MISSING) {
+            changeSet.addDeletedFile(path);
 
-                    deletedFiles.add(oldPath);
-                    createdFiles.add(newPath);
-
-                    logger.debug("Renamed file: {} -> {}", oldPath, newPath);
-                    break;
-                case COPY:
-                    oldPath = asContentStoreUrl(entry.getOldPath());
-                    newPath = asContentStoreUrl(entry.getNewPath());
-
-                    createdFiles.add(newPath);
-
-                    logger.debug("Copied file: {} -> {}", oldPath, newPath);
-                    break;
-                default: // ADD
-                    newPath = asContentStoreUrl(entry.getNewPath());
-
-                    createdFiles.add(newPath);
+            logger.debug("Deleted file: {}", path);
+        } else {
+            changeSet.addUpdatedFile(path);
 
-                    logger.debug("New file: {}", newPath);
-                    break;
-            }
+            logger.debug("Updated file: {}", path);
         }
-
-        return new ChangeSet(createdFiles, updatedFiles, deletedFiles);
     }
 
     protected String asContentStoreUrl(String path) {
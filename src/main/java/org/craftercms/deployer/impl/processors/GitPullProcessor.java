@@ -18,7 +18,9 @@ package org.craftercms.deployer.impl.processors;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Collection;
 import java.util.Map;
+import java.util.Objects;
 
 import org.apache.commons.configuration2.Configuration;
 import org.apache.commons.io.FileUtils;
@@ -28,21 +30,31 @@ import org.craftercms.deployer.api.Deployment;
 import org.craftercms.deployer.api.ProcessorExecution;
 import org.craftercms.deployer.api.exceptions.DeployerConfigurationException;
 import org.craftercms.deployer.api.exceptions.DeployerException;
+import org.craftercms.deployer.impl.DeploymentMetrics;
+import org.craftercms.deployer.impl.ProcessedCommitsStore;
+import org.craftercms.deployer.utils.BooleanUtils;
 import org.craftercms.deployer.utils.ConfigUtils;
 import org.craftercms.deployer.utils.GitUtils;
 import org.craftercms.deployer.utils.git.GitAuthenticationConfigurator;
 import org.craftercms.deployer.utils.git.SshUsernamePasswordAuthConfigurator;
 import org.craftercms.deployer.utils.git.SshRsaKeyPairAuthConfigurator;
+import org.craftercms.deployer.utils.git.SshSessionPool;
 import org.craftercms.deployer.utils.git.BasicUsernamePasswordAuthConfigurator;
 import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.api.MergeResult;
 import org.eclipse.jgit.api.PullResult;
 import org.eclipse.jgit.api.RebaseResult;
 import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.Repository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Required;
 
+import static org.craftercms.deployer.impl.DeploymentConstants.REPROCESS_ALL_FILES_PARAM_NAME;
+
 /**
  * Processor that clones/pulls a remote Git repository into a local path in the filesystem. It uses a {@link GitAuthenticationConfigurator}
  * to configure the Git connection authentication. A processor instance can be configured with the following YAML properties:
@@ -50,6 +62,8 @@ import org.springframework.beans.factory.annotation.Required;
  * <ul>
  *     <li><strong>remoteRepo.url:</strong> The URL of the remote Git repo to clone/pull</li>
  *     <li><strong>remoteRepo.branch:</strong> The branch of the remote Git repo to clone/pull</li>
+ *     <li><strong>remoteRepo.clone.singleBranch:</strong> If only the branch should be cloned (and fetched on later pulls),
+ *     instead of all the branches of the remote Git repo. Defaults to false.</li>
  *     <li><strong>remoteRepo.username:</strong> The username for authentication with the remote Git repo. Not needed when
  *     SSH with RSA key pair authentication is used.</li>
  *     <li><strong>remoteRepo.password:</strong> The password for authentication with the remote Git repo. Not needed when
@@ -60,12 +74,17 @@ import org.springframework.beans.factory.annotation.Required;
  *     RSA key pair authentication.</li>
  * </ul>
  *
+ * <p>When {@code skipIfUpToDate} is enabled, the processor first looks up the remote branch ref (like a {@code git ls-remote}).
+ * If it points to the same commit as the local tracking ref, and that commit has already been checked out and processed, the
+ * pull is skipped and the deployment is ended right away, so the rest of the pipeline (diff, indexing, etc.) doesn't run.</p>
+ *
  * @author avasquez
  */
 public class GitPullProcessor extends AbstractMainDeploymentProcessor {
 
     public static final String REMOTE_REPO_URL_CONFIG_KEY = "remoteRepo.url";
     public static final String REMOTE_REPO_BRANCH_CONFIG_KEY = "remoteRepo.branch";
+    public static final String REMOTE_REPO_CLONE_SINGLE_BRANCH_CONFIG_KEY = "remoteRepo.clone.singleBranch";
     public static final String REMOTE_REPO_USERNAME_CONFIG_KEY = "remoteRepo.username";
     public static final String REMOTE_REPO_PASSWORD_CONFIG_KEY = "remoteRepo.password";
     public static final String REMOTE_REPO_SSH_PRV_KEY_PATH_CONFIG_KEY = "remoteRepo.ssh.privateKey.path";
@@ -73,13 +92,27 @@ public class GitPullProcessor extends AbstractMainDeploymentProcessor {
 
     public static final String GIT_FOLDER_NAME = ".git";
 
+    public static final String SKIPPED_PULLS_COUNTER_NAME = "git.pull.skipped";
+    public static final String EXECUTED_PULLS_COUNTER_NAME = "git.pull.executed";
+
     private static final Logger logger = LoggerFactory.getLogger(GitPullProcessor.class);
 
     protected File localRepoFolder;
     protected boolean useRebase;
+    protected boolean skipIfUpToDate;
+    protected ProcessedCommitsStore processedCommitsStore;
+    protected DeploymentMetrics deploymentMetrics;
+    protected SshSessionPool sshSessionPool;
+    protected String bigFileThreshold;
+    protected Integer compression;
+    protected Boolean fileMode;
+    protected Integer packWindow;
+    protected Integer packDepth;
+    protected Integer packThreads;
 
     protected String remoteRepoUrl;
     protected String remoteRepoBranch;
+    protected boolean singleBranchClone;
     protected GitAuthenticationConfigurator authenticationConfigurator;
 
     /**
@@ -97,10 +130,83 @@ public class GitPullProcessor extends AbstractMainDeploymentProcessor {
         this.useRebase = useRebase;
     }
 
+    /**
+     * Sets whether the pull (and the rest of the deployment) should be skipped when the remote branch hasn't moved since the
+     * last processed commit.
+     */
+    public void setSkipIfUpToDate(boolean skipIfUpToDate) {
+        this.skipIfUpToDate = skipIfUpToDate;
+    }
+
+    /**
+     * Sets the store for processed commits, used to check that the local commit has already been processed before skipping a
+     * pull.
+     */
+    public void setProcessedCommitsStore(ProcessedCommitsStore processedCommitsStore) {
+        this.processedCommitsStore = processedCommitsStore;
+    }
+
+    /**
+     * Sets the metrics where the number of executed and skipped pulls are counted.
+     */
+    public void setDeploymentMetrics(DeploymentMetrics deploymentMetrics) {
+        this.deploymentMetrics = deploymentMetrics;
+    }
+
+    /**
+     * Sets the pool of SSH sessions shared between targets. If not set, a new SSH session is opened for every Git command.
+     */
+    public void setSshSessionPool(SshSessionPool sshSessionPool) {
+        this.sshSessionPool = sshSessionPool;
+    }
+
+    /**
+     * Sets the value of the Git {@code core.bigFileThreshold} config of the local repo.
+     */
+    public void setBigFileThreshold(String bigFileThreshold) {
+        this.bigFileThreshold = bigFileThreshold;
+    }
+
+    /**
+     * Sets the value of the Git {@code core.compression} config of the local repo.
+     */
+    public void setCompression(Integer compression) {
+        this.compression = compression;
+    }
+
+    /**
+     * Sets the value of the Git {@code core.fileMode} config of the local repo.
+     */
+    public void setFileMode(Boolean fileMode) {
+        this.fileMode = fileMode;
+    }
+
+    /**
+     * Sets the value of the Git {@code pack.window} config of the local repo.
+     */
+    public void setPackWindow(Integer packWindow) {
+        this.packWindow = packWindow;
+    }
+
+    /**
+     * Sets the value of the Git {@code pack.depth} config of the local repo.
+     */
+    public void setPackDepth(Integer packDepth) {
+        this.packDepth = packDepth;
+    }
+
+    /**
+     * Sets the value of the Git {@code pack.threads} config of the local repo.
+     */
+    public void setPackThreads(Integer packThreads) {
+        this.packThreads = packThreads;
+    }
+
     @Override
     protected void doInit(Configuration config) throws DeployerException {
         remoteRepoUrl = ConfigUtils.getRequiredStringProperty(config, REMOTE_REPO_URL_CONFIG_KEY);
         remoteRepoBranch = ConfigUtils.getStringProperty(config, REMOTE_REPO_BRANCH_CONFIG_KEY);
+        singleBranchClone = ConfigUtils.getBooleanProperty(config, REMOTE_REPO_CLONE_SINGLE_BRANCH_CONFIG_KEY, false);
         authenticationConfigurator = createAuthenticationConfigurator(config, remoteRepoUrl);
     }
 
@@ -120,7 +226,11 @@ public class GitPullProcessor extends AbstractMainDeploymentProcessor {
         File gitFolder = new File(localRepoFolder, GIT_FOLDER_NAME);
 
         if (localRepoFolder.exists() && gitFolder.exists()) {
-            doPull(execution);
+            if (skipIfUpToDate && !BooleanUtils.toBoolean(deployment.getParam(REPROCESS_ALL_FILES_PARAM_NAME)) && isUpToDate()) {
+                skipPull(deployment, execution);
+            } else {
+                doPull(execution);
+            }
         } else {
             doClone(execution);
         }
@@ -133,8 +243,82 @@ public class GitPullProcessor extends AbstractMainDeploymentProcessor {
         return true;
     }
 
+    /**
+     * Returns true if the remote branch points to the same commit as the local tracking branch, and that commit is both the
+     * current HEAD and the last processed commit. Any error during the check is logged and false is returned, so that a normal
+     * pull is done instead.
+     */
+    protected boolean isUpToDate() throws DeployerException {
+        try (Git git = openLocalRepository()) {
+            Repository repo = git.getRepository();
+            String branch = StringUtils.isNotEmpty(remoteRepoBranch)? remoteRepoBranch : repo.getBranch();
+            String remoteRefName = Constants.R_HEADS + branch;
+            String trackingRefName = Constants.R_REMOTES + Constants.DEFAULT_REMOTE_NAME + "/" + branch;
+
+            ObjectId remoteCommitId = lsRemote(git, remoteRefName);
+            if (remoteCommitId == null) {
+                logger.debug("Ref {} not found in remote repo {}", remoteRefName, remoteRepoUrl);
+
+                return false;
+            }
+
+            Ref trackingRef = repo.exactRef(trackingRefName);
+            ObjectId trackingCommitId = trackingRef != null? trackingRef.getObjectId() : null;
+            ObjectId headCommitId = repo.resolve(Constants.HEAD);
+            ObjectId processedCommitId = processedCommitsStore != null? processedCommitsStore.load(targetId) : headCommitId;
+
+            boolean upToDate = remoteCommitId.equals(trackingCommitId) && remoteCommitId.equals(headCommitId) &&
+                               Objects.equals(headCommitId, processedCommitId);
+
+            logger.debug("Ref probe for {}: remote = {}, tracking = {}, HEAD = {}, processed = {}", remoteRefName,
+                         remoteCommitId.name(), ObjectId.toString(trackingCommitId), ObjectId.toString(headCommitId),
+                         ObjectId.toString(processedCommitId));
+
+            return upToDate;
+        } catch (IOException | GitAPIException e) {
+            logger.warn("Unable to look up remote refs of repo " + remoteRepoUrl + ". A full pull will be done", e);
+
+            return false;
+        }
+    }
+
+    protected ObjectId lsRemote(Git git, String refName) throws GitAPIException {
+        Collection<Ref> refs = GitUtils.lsRemoteHeads(git, authenticationConfigurator);
+
+        for (Ref ref : refs) {
+            if (ref.getName().equals(refName)) {
+                return ref.getObjectId();
+            }
+        }
+
+        return null;
+    }
+
+    protected void skipPull(Deployment deployment, ProcessorExecution execution) {
+        long skippedCount = deploymentMetrics != null? deploymentMetrics.increment(targetId, SKIPPED_PULLS_COUNTER_NAME) : 0;
+        String details = "Local repository " + localRepoFolder + " up to date with remote repo " + remoteRepoUrl +
+                         " (remote ref unchanged). Pull and rest of the deployment skipped";
+
+        logger.info(details);
+
+        if (deploymentMetrics != null) {
+            execution.setStatusDetails(details + " (" + skippedCount + " pulls skipped so far)");
+        } else {
+            execution.setStatusDetails(details);
+        }
+
+        // Ending the deployment stops the rest of the processors from running
+        deployment.end(Deployment.Status.SUCCESS);
+    }
+
     protected void doPull(ProcessorExecution execution) throws DeployerException {
+        if (deploymentMetrics != null) {
+            deploymentMetrics.increment(targetId, EXECUTED_PULLS_COUNTER_NAME);
+        }
+
         try (Git git = openLocalRepository()) {
+            updateLocalRepositoryConfig(git);
+
             logger.info("Executing git pull for repository {}...", localRepoFolder);
 
             PullResult pullResult = GitUtils.pull(git, authenticationConfigurator, useRebase);
@@ -196,6 +380,19 @@ public class GitPullProcessor extends AbstractMainDeploymentProcessor {
         }
     }
 
+    protected void updateLocalRepositoryConfig(Git git) throws DeployerException {
+        try {
+            boolean coreChanged = GitUtils.updateCoreConfig(git, bigFileThreshold, compression, fileMode);
+            boolean packChanged = GitUtils.updatePackConfig(git, packWindow, packDepth, packThreads);
+
+            if (coreChanged || packChanged) {
+                logger.info("Git config of local repository {} updated", localRepoFolder);
+            }
+        } catch (IOException e) {
+            throw new DeployerException("Failed to update Git config of local repository " + localRepoFolder, e);
+        }
+    }
+
     protected Git openLocalRepository() throws DeployerException {
         try {
             logger.debug("Opening local Git repository at {}", localRepoFolder);
@@ -208,6 +405,8 @@ public class GitPullProcessor extends AbstractMainDeploymentProcessor {
 
     protected void doClone(ProcessorExecution execution) throws DeployerException {
         try (Git git = cloneRemoteRepository()) {
+            updateLocalRepositoryConfig(git);
+
             String details = "Successfully cloned Git remote repository " + remoteRepoUrl + " into " + localRepoFolder;
 
             logger.info(details);
@@ -231,7 +430,7 @@ public class GitPullProcessor extends AbstractMainDeploymentProcessor {
             logger.info("Cloning Git remote repository {} into {}", remoteRepoUrl, localRepoFolder);
 
             return GitUtils.cloneRemoteRepository(remoteRepoUrl, remoteRepoBranch, authenticationConfigurator, localRepoFolder,
-                                                  null, null, null);
+                                                  bigFileThreshold, compression, fileMode, singleBranchClone);
         } catch (IOException | GitAPIException | IllegalArgumentException e) {
             // Force delete so there's no invalid remains
             FileUtils.deleteQuietly(localRepoFolder);
@@ -250,7 +449,10 @@ public class GitPullProcessor extends AbstractMainDeploymentProcessor {
             if (StringUtils.isNotEmpty(password)) {
                 logger.debug("SSH username/password authentication will be used to connect to repo {}", repoUrl);
 
-                authConfigurator = new SshUsernamePasswordAuthConfigurator(password);
+                SshUsernamePasswordAuthConfigurator usernamePasswordAuthConfigurator = new SshUsernamePasswordAuthConfigurator(password);
+                usernamePasswordAuthConfigurator.setSessionPool(sshSessionPool);
+
+                authConfigurator = usernamePasswordAuthConfigurator;
             } else {
                 String privateKeyPath = ConfigUtils.getStringProperty(config, REMOTE_REPO_SSH_PRV_KEY_PATH_CONFIG_KEY);
                 String passphrase = ConfigUtils.getStringProperty(config, REMOTE_REPO_SSH_PRV_KEY_PASSPHRASE_CONFIG_KEY);
@@ -260,6 +462,7 @@ public class GitPullProcessor extends AbstractMainDeploymentProcessor {
                 SshRsaKeyPairAuthConfigurator keyPairAuthConfigurator = new SshRsaKeyPairAuthConfigurator();
                 keyPairAuthConfigurator.setPrivateKeyPath(privateKeyPath);
                 keyPairAuthConfigurator.setPassphrase(passphrase);
+                keyPairAuthConfigurator.setSessionPool(sshSessionPool);
 
                 authConfigurator = keyPairAuthConfigurator;
             }
@@ -17,16 +17,27 @@
 package org.craftercms.deployer.impl.processors;
 
 import java.io.IOException;
-import java.util.Map;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
-import javax.annotation.PreDestroy;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 import org.apache.commons.configuration2.Configuration;
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.http.HttpEntity;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpDelete;
+import org.apache.http.client.methods.HttpEntityEnclosingRequestBase;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpHead;
 import org.apache.http.client.methods.HttpOptions;
@@ -34,12 +45,14 @@ import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.methods.HttpPut;
 import org.apache.http.client.methods.HttpTrace;
 import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClients;
-import org.apache.http.util.EntityUtils;
 import org.craftercms.deployer.api.ChangeSet;
 import org.craftercms.deployer.api.Deployment;
 import org.craftercms.deployer.api.ProcessorExecution;
+import org.craftercms.deployer.api.exceptions.DeployerConfigurationException;
 import org.craftercms.deployer.api.exceptions.DeployerException;
 import org.craftercms.deployer.utils.ConfigUtils;
 import org.slf4j.Logger;
@@ -50,9 +63,25 @@ import org.slf4j.LoggerFactory;
  *
  * <ul>
  *     <li><strong>url:</strong> The URL to call</li>
+ *     <li><strong>urls:</strong> A list of URLs to call (like the URLs of several delivery nodes), instead of or besides
+ *     {@code url}</li>
  *     <li><strong>method:</strong> The HTTP method</li>
+ *     <li><strong>sendChangeSet:</strong> If the filtered change set should be sent as the JSON body of the request (only for
+ *     POST and PUT)</li>
+ *     <li><strong>batchSize:</strong> The max number of files of the change set sent on each request. When the change set
+ *     is bigger, it's split in several requests per URL</li>
+ *     <li><strong>parallelism:</strong> The max number of requests (of all URLs and batches) executed at the same time</li>
+ *     <li><strong>mode:</strong> How the call is executed: sync (by the deployment thread), async (fire and forget, the
+ *     deployment doesn't wait for it) or parallel (in parallel with the rest of the processors, but the deployment waits for
+ *     it before ending)</li>
+ *     <li><strong>retry.maxAttempts:</strong> The max number of attempts of a call that fails with an IO error or a 5xx
+ *     response</li>
+ *     <li><strong>retry.backoff:</strong> The delay in millis before the first retry, which doubles on each new retry</li>
  * </ul>
  *
+ * <p>The HTTP client is normally the pooled client shared by all targets, and only the first
+ * {@code maxLoggedBodyLength} chars of the response bodies are read for logging.</p>
+ *
  * @author avasquez
  */
 public class HttpMethodCallProcessor extends AbstractMainDeploymentProcessor {
@@ -60,52 +89,186 @@ public class HttpMethodCallProcessor extends AbstractMainDeploymentProcessor {
     private static final Logger logger = LoggerFactory.getLogger(HttpMethodCallProcessor.class);
 
     public static final String URL_CONFIG_KEY = "url";
+    public static final String URLS_CONFIG_KEY = "urls";
     public static final String METHOD_CONFIG_KEY = "method";
+    public static final String SEND_CHANGE_SET_CONFIG_KEY = "sendChangeSet";
+    public static final String BATCH_SIZE_CONFIG_KEY = "batchSize";
+    public static final String PARALLELISM_CONFIG_KEY = "parallelism";
+    public static final String MODE_CONFIG_KEY = "mode";
+    public static final String RETRY_MAX_ATTEMPTS_CONFIG_KEY = "retry.maxAttempts";
+    public static final String RETRY_BACKOFF_CONFIG_KEY = "retry.backoff";
 
-    protected String url;
+    protected List<String> urls;
     protected String method;
+    protected boolean sendChangeSet;
+    protected int batchSize;
+    protected int parallelism;
+    protected ObjectMapper objectMapper;
     protected CloseableHttpClient httpClient;
+    protected boolean closeHttpClient;
+    protected Executor httpCallExecutor;
+    protected Mode mode;
+    protected int retryMaxAttempts;
+    protected long retryBackoff;
+    protected int maxLoggedBodyLength;
+
+    public HttpMethodCallProcessor() {
+        mode = Mode.SYNC;
+        retryMaxAttempts = 1;
+        retryBackoff = 1000;
+        maxLoggedBodyLength = 1000;
+        parallelism = 1;
+    }
+
+    /**
+     * Sets the object mapper used to write the change set as JSON.
+     */
+    public void setObjectMapper(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Sets the default max number of requests executed at the same time.
+     */
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Sets the HTTP client used to execute the calls. If not set, a client is created just for this processor.
+     */
+    public void setHttpClient(CloseableHttpClient httpClient) {
+        this.httpClient = httpClient;
+    }
+
+    /**
+     * Sets the executor used to run the async and parallel calls.
+     */
+    public void setHttpCallExecutor(Executor httpCallExecutor) {
+        this.httpCallExecutor = httpCallExecutor;
+    }
+
+    /**
+     * Sets the default mode (sync, async or parallel) of the calls.
+     */
+    public void setMode(String mode) {
+        this.mode = Mode.fromString(mode);
+    }
+
+    /**
+     * Sets the default max number of attempts of a failed call.
+     */
+    public void setRetryMaxAttempts(int retryMaxAttempts) {
+        this.retryMaxAttempts = retryMaxAttempts;
+    }
+
+    /**
+     * Sets the default delay in millis before the first retry of a failed call.
+     */
+    public void setRetryBackoff(long retryBackoff) {
+        this.retryBackoff = retryBackoff;
+    }
+
+    /**
+     * Sets the max number of chars of the response bodies that are read for logging. 0 means the bodies are not logged.
+     */
+    public void setMaxLoggedBodyLength(int maxLoggedBodyLength) {
+        this.maxLoggedBodyLength = maxLoggedBodyLength;
+    }
 
     @Override
     protected void doInit(Configuration config) throws DeployerException {
-        url = ConfigUtils.getRequiredStringProperty(config, URL_CONFIG_KEY);
+        urls = new ArrayList<>();
+
+        String url = ConfigUtils.getStringProperty(config, URL_CONFIG_KEY);
+        if (StringUtils.isNotEmpty(url)) {
+            urls.add(url);
+        }
+
+        String[] moreUrls = ConfigUtils.getStringArrayProperty(config, URLS_CONFIG_KEY);
+        if (ArrayUtils.isNotEmpty(moreUrls)) {
+            urls.addAll(Arrays.asList(moreUrls));
+        }
+        if (urls.isEmpty()) {
+            throw new DeployerConfigurationException("Either '" + URL_CONFIG_KEY + "' or '" + URLS_CONFIG_KEY + "' should be " +
+                                                     "specified");
+        }
+
         method = ConfigUtils.getRequiredStringProperty(config, METHOD_CONFIG_KEY);
-        httpClient = HttpClients.createDefault();
+        sendChangeSet = ConfigUtils.getBooleanProperty(config, SEND_CHANGE_SET_CONFIG_KEY, false);
+        batchSize = ConfigUtils.getIntegerProperty(config, BATCH_SIZE_CONFIG_KEY, 0);
+        parallelism = ConfigUtils.getIntegerProperty(config, PARALLELISM_CONFIG_KEY, parallelism);
+        retryMaxAttempts = ConfigUtils.getIntegerProperty(config, RETRY_MAX_ATTEMPTS_CONFIG_KEY, retryMaxAttempts);
+        retryBackoff = ConfigUtils.getIntegerProperty(config, RETRY_BACKOFF_CONFIG_KEY, (int) retryBackoff);
+
+        String modeStr = ConfigUtils.getStringProperty(config, MODE_CONFIG_KEY);
+        if (StringUtils.isNotEmpty(modeStr)) {
+            try {
+                mode = Mode.fromString(modeStr);
+            } catch (IllegalArgumentException e) {
+                throw new DeployerConfigurationException("Invalid HTTP call mode '" + modeStr + "'", e);
+            }
+        }
+        if ((mode != Mode.SYNC || parallelism > 1) && httpCallExecutor == null) {
+            throw new DeployerConfigurationException("An HTTP call executor is required for " + mode + " calls or parallelism > 1");
+        }
+        if (sendChangeSet) {
+            if (!method.equalsIgnoreCase("post") && !method.equalsIgnoreCase("put")) {
+                throw new DeployerConfigurationException("The change set can only be sent with POST or PUT");
+            }
+            if (objectMapper == null) {
+                objectMapper = new ObjectMapper();
+            }
+        }
+
+        if (httpClient == null) {
+            httpClient = HttpClients.createDefault();
+            closeHttpClient = true;
+        }
     }
 
     @Override
     public void destroy() throws DeployerException {
-        IOUtils.closeQuietly(httpClient);
+        if (closeHttpClient) {
+            IOUtils.closeQuietly(httpClient);
+        }
     }
 
     @Override
     protected ChangeSet doExecute(Deployment deployment, ProcessorExecution execution,
                                   ChangeSet filteredChangeSet) throws DeployerException {
-        HttpUriRequest request = createRequest();
+        List<Call> calls = createCalls(filteredChangeSet);
 
-        logger.info("Executing request {}...", request);
-
-        try (CloseableHttpResponse response = httpClient.execute(request)) {
-            int status = response.getStatusLine().getStatusCode();
-            HttpEntity entity = response.getEntity();
-            String body = entity != null? EntityUtils.toString(entity) : null;
+        if (mode == Mode.SYNC && parallelism <= 1) {
+            List<CallResult> results = new ArrayList<>(calls.size());
+            for (Call call : calls) {
+                results.add(executeCallSafely(call));
+            }
 
-            if (StringUtils.isEmpty(body)) {
-                body = "empty";
+            handleResults(execution, results);
+        } else {
+            if (mode != Mode.SYNC) {
+                execution.setStatusDetails(calls.size() + " request(s) submitted (" + mode + ")");
             }
 
-            if (status >= 200 && status < 300) {
-                logger.info("Successful response for request {}: status = {}, body = {}", request, status, body);
+            CompletableFuture<Void> future = executeCallsInParallel(calls).handle((results, ex) -> {
+                if (ex != null) {
+                    logger.error("HTTP calls for target '" + targetId + "' failed", ex);
 
-                execution.setStatusDetails("Successful response for request " + request + ": status = " + status);
-            } else {
-                logger.error("Error response for request {}: status = {}, body = {}", request, status, body);
+                    execution.setStatusDetails(ex.toString());
+                    execution.endExecution(Deployment.Status.FAILURE);
+                } else {
+                    handleResults(execution, results);
+                }
 
-                execution.setStatusDetails("Error response for request " + request + ": status = " + status);
-                execution.endExecution(Deployment.Status.FAILURE);
+                return null;
+            });
+
+            if (mode == Mode.SYNC) {
+                future.join();
+            } else if (mode == Mode.PARALLEL) {
+                deployment.addPendingTask(future);
             }
-        } catch (IOException e) {
-            throw new DeployerException("IO error on HTTP request " + request, e);
         }
 
         return null;
@@ -116,24 +279,243 @@ public class HttpMethodCallProcessor extends AbstractMainDeploymentProcessor {
         return false;
     }
 
-    protected HttpUriRequest createRequest() throws DeployerException {
+    /**
+     * The execution is ended by {@link #handleResults(ProcessorExecution, List)} once all the calls are done, which in
+     * {@code async} and {@code parallel} mode is after {@code doExecute} returns.
+     */
+    @Override
+    protected boolean isExecutionEndedByProcessor() {
+        return true;
+    }
+
+    /**
+     * Creates a call per URL and batch of the change set (or just a call per URL if the change set shouldn't be sent).
+     */
+    protected List<Call> createCalls(ChangeSet changeSet) throws DeployerException {
+        List<String> bodies = new ArrayList<>();
+
+        if (sendChangeSet) {
+            for (ChangeSet batch : changeSet.split(batchSize)) {
+                try {
+                    bodies.add(objectMapper.writeValueAsString(batch));
+                } catch (JsonProcessingException e) {
+                    throw new DeployerException("Unable to write change set as JSON", e);
+                }
+            }
+        } else {
+            bodies.add(null);
+        }
+
+        List<Call> calls = new ArrayList<>(urls.size() * bodies.size());
+        for (String url : urls) {
+            for (String body : bodies) {
+                calls.add(new Call(url, body));
+            }
+        }
+
+        return calls;
+    }
+
+    /**
+     * Executes the calls with at most {@code parallelism} calls at the same time: the calls are distributed in that number of
+     * lanes, and each lane executes its calls one after the other in a thread of the executor. Lanes never wait for other
+     * tasks of the executor, so the executor can be safely shared.
+     */
+    protected CompletableFuture<List<CallResult>> executeCallsInParallel(List<Call> calls) {
+        int lanes = Math.max(1, Math.min(parallelism, calls.size()));
+        CallResult[] results = new CallResult[calls.size()];
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[lanes];
+
+        for (int lane = 0; lane < lanes; lane++) {
+            int firstCall = lane;
+
+            futures[lane] = CompletableFuture.runAsync(() -> {
+
+                for (int i = firstCall; i < calls.size(); i += lanes) {
+                    results[i] = executeCallSafely(calls.get(i));
+                }
+
+            }, httpCallExecutor);
+        }
+
+        return CompletableFuture.allOf(futures).thenApply(v -> Arrays.asList(results));
+    }
+
+    protected CallResult executeCallSafely(Call call) {
+        try {
+            return executeCall(call);
+        } catch (Exception e) {
+            logger.error("HTTP call " + method.toUpperCase() + " " + call.url + " for target '" + targetId + "' failed", e);
+
+            return new CallResult(null, -1, e.toString());
+        }
+    }
+
+    protected CallResult executeCall(Call call) throws DeployerException {
+        for (int attempt = 1; ; attempt++) {
+            HttpUriRequest request = createRequest(call.url, call.body);
+
+            logger.info("Executing request {}...", request);
+
+            try (CloseableHttpResponse response = httpClient.execute(request)) {
+                int status = response.getStatusLine().getStatusCode();
+                String body = readBody(response.getEntity());
+
+                if (status < 500 || attempt >= retryMaxAttempts) {
+                    return new CallResult(request, status, body);
+                }
+
+                logger.warn("Error response for request {} (attempt {} of {}): status = {}, body = {}", request, attempt,
+                            retryMaxAttempts, status, body);
+            } catch (IOException e) {
+                if (attempt >= retryMaxAttempts) {
+                    throw new DeployerException("IO error on HTTP request " + request, e);
+                }
+
+                logger.warn("IO error on HTTP request {} (attempt {} of {}): {}", request, attempt, retryMaxAttempts, e.toString());
+            }
+
+            try {
+                Thread.sleep(retryBackoff << (attempt - 1));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+
+                throw new DeployerException("Interrupted while waiting to retry HTTP request " + request, e);
+            }
+        }
+    }
+
+    protected void handleResults(ProcessorExecution execution, List<CallResult> results) {
+        int failed = 0;
+
+        for (CallResult result : results) {
+            if (result.isSuccessful()) {
+                logger.info("Successful response for request {}: status = {}, body = {}", result.request, result.status,
+                            result.body);
+            } else {
+                if (result.request != null) {
+                    logger.error("Error response for request {}: status = {}, body = {}", result.request, result.status,
+                                 result.body);
+                }
+
+                failed++;
+            }
+        }
+
+        if (results.size() == 1) {
+            CallResult result = results.get(0);
+            if (result.isSuccessful()) {
+                execution.setStatusDetails("Successful response for request " + result.request + ": status = " + result.status);
+            } else if (result.request != null) {
+                execution.setStatusDetails("Error response for request " + result.request + ": status = " + result.status);
+            } else {
+                execution.setStatusDetails(result.body);
+            }
+        } else {
+            execution.setStatusDetails((results.size() - failed) + " of " + results.size() + " requests successful");
+        }
+
+        execution.endExecution(failed > 0 ? Deployment.Status.FAILURE : Deployment.Status.SUCCESS);
+    }
+
+    /**
+     * Reads at most {@code maxLoggedBodyLength} chars of the body. The rest of the body is discarded when the response is
+     * closed, without buffering it.
+     */
+    protected String readBody(HttpEntity entity) throws IOException {
+        if (entity == null || maxLoggedBodyLength <= 0) {
+            return "empty";
+        }
+
+        Charset charset = null;
+        try {
+            charset = ContentType.getOrDefault(entity).getCharset();
+        } catch (Exception e) {
+            // Ignore, the default is used
+        }
+        if (charset == null) {
+            charset = StandardCharsets.UTF_8;
+        }
+
+        Reader reader = new InputStreamReader(entity.getContent(), charset);
+        char[] buffer = new char[maxLoggedBodyLength];
+        int length = IOUtils.read(reader, buffer);
+
+        if (length == 0) {
+            return "empty";
+        } else if (length == maxLoggedBodyLength && reader.read() != -1) {
+            return new String(buffer, 0, length) + "... (truncated)";
+        } else {
+            return new String(buffer, 0, length);
+        }
+    }
+
+    protected HttpUriRequest createRequest(String url, String body) throws DeployerException {
+        HttpUriRequest request;
+
         if (method.equalsIgnoreCase("get")) {
-            return new HttpGet(url);
+            request = new HttpGet(url);
         } else if (method.equalsIgnoreCase("post")) {
-            return new HttpPost(url);
+            request = new HttpPost(url);
         } else if (method.equalsIgnoreCase("put")) {
-            return new HttpPut(url);
+            request = new HttpPut(url);
         } else if (method.equalsIgnoreCase("delete")) {
-            return new HttpDelete(url);
+            request = new HttpDelete(url);
         } else if (method.equalsIgnoreCase("head")) {
-            return new HttpHead(url);
+            request = new HttpHead(url);
         } else if (method.equalsIgnoreCase("options")) {
-            return new HttpOptions(url);
+            request = new HttpOptions(url);
         } else if (method.equalsIgnoreCase("trace")) {
-            return new HttpTrace(url);
+            request = new HttpTrace(url);
         } else {
             throw new DeployerException("HTTP method '" + method + " not recognized");
         }
+
+        if (body != null && request instanceof HttpEntityEnclosingRequestBase) {
+            ((HttpEntityEnclosingRequestBase) request).setEntity(new StringEntity(body, ContentType.APPLICATION_JSON));
+        }
+
+        return request;
+    }
+
+    public enum Mode {
+
+        SYNC, ASYNC, PARALLEL;
+
+        public static Mode fromString(String str) {
+            return valueOf(StringUtils.upperCase(StringUtils.trim(str)));
+        }
+
+    }
+
+    protected static class Call {
+
+        protected final String url;
+        protected final String body;
+
+        public Call(String url, String body) {
+            this.url = url;
+            this.body = body;
+        }
+
+    }
+
+    protected static class CallResult {
+
+        protected final HttpUriRequest request;
+        protected final int status;
+        protected final String body;
+
+        public CallResult(HttpUriRequest request, int status, String body) {
+            this.request = request;
+            this.status = status;
+            this.body = body;
+        }
+
+        public boolean isSuccessful() {
+            return status >= 200 && status < 300;
+        }
+
     }
 
 }
@@ -1,8 +1,18 @@
 package org.craftercms.deployer.impl.processors;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
 
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.collections4.ListUtils;
@@ -14,7 +24,9 @@ import org.craftercms.core.store.impl.filesystem.FileSystemContentStoreAdapter;
 import org.craftercms.deployer.api.ChangeSet;
 import org.craftercms.deployer.api.Deployment;
 import org.craftercms.deployer.api.ProcessorExecution;
+import org.craftercms.deployer.api.exceptions.DeployerConfigurationException;
 import org.craftercms.deployer.api.exceptions.DeployerException;
+import org.craftercms.deployer.impl.SearchCommitCoalescer;
 import org.craftercms.deployer.utils.ConfigUtils;
 import org.craftercms.search.batch.BatchIndexer;
 import org.craftercms.search.batch.UpdateSet;
@@ -34,9 +46,16 @@ import org.springframework.beans.factory.annotation.Required;
  *     <li><strong>indexId:</strong> The specific index ID to use</li>
  *     <li><strong>indexIdFormat:</strong> The String.format, based onf the site name, that should be used to generate the index ID.
  *     E.g. a <emp>%s-default'</emp> format with a <em>mysite</em> site name will generate a <em>mysite-default</em> index ID.</li>
- *     <
+ *     <li><strong>commitStrategy:</strong> How the index is committed after the files have been indexed: {@code hard} (commit
+ *     right away), {@code deferred} (the commit is batched with the commits of other targets to the same index, and done
+ *     periodically by a {@link SearchCommitCoalescer}) or {@code none} (no explicit commit, the search server's auto commit
+ *     config, like Solr's {@code autoSoftCommit}, takes care of it). Overrides the target's default strategy.</li>
  * </ul>
  *
+ * <p>When the parallelism is greater than 1 and an indexing executor has been provided, the files are partitioned into chunks
+ * that are indexed concurrently (with at most {@code parallelism} chunks in flight at the same time), and a single commit is
+ * done at the end.</p>
+ *
  * @author avasquez
  */
 public class SearchIndexingProcessor extends AbstractMainDeploymentProcessor {
@@ -48,6 +67,8 @@ public class SearchIndexingProcessor extends AbstractMainDeploymentProcessor {
     public static final String INDEX_ID_CONFIG_KEY = "indexId";
     public static final String INDEX_ID_FORMAT_CONFIG_KEY = "indexIdFormat";
     public static final String IGNORE_INDEX_ID_CONFIG_KEY = "ignoreIndexId";
+    public static final String COMMIT_STRATEGY_CONFIG_KEY = "commitStrategy";
+    public static final String DEFAULT_COMMIT_STRATEGY_PROPERTY_NAME = "target.search.indexing.commit.strategy";
 
     protected String localRepoUrl;
     protected ContentStoreService contentStoreService;
@@ -56,6 +77,16 @@ public class SearchIndexingProcessor extends AbstractMainDeploymentProcessor {
     protected boolean xmlMergingEnabled;
     protected String indexId;
     protected Context context;
+    protected Executor indexingExecutor;
+    protected int parallelism;
+    protected int chunkSize;
+    protected String searchServerUrl;
+    protected CommitStrategy commitStrategy;
+    protected SearchCommitCoalescer commitCoalescer;
+
+    public SearchIndexingProcessor() {
+        commitStrategy = CommitStrategy.HARD;
+    }
 
     /**
      * Sets the URL of the local repository that will be passed to the {@link ContentStoreService} to retrieve the files to
@@ -104,6 +135,51 @@ public class SearchIndexingProcessor extends AbstractMainDeploymentProcessor {
         this.xmlMergingEnabled = xmlMergingEnabled;
     }
 
+    /**
+     * Sets the executor used to index chunks of files in parallel.
+     */
+    public void setIndexingExecutor(Executor indexingExecutor) {
+        this.indexingExecutor = indexingExecutor;
+    }
+
+    /**
+     * Sets the max number of chunks of files that can be indexed at the same time. 1 or less means all files are indexed
+     * sequentially by the deployment thread.
+     */
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Sets the number of files on each of the chunks indexed in parallel.
+     */
+    public void setChunkSize(int chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Sets the URL of the search server, used to identify the server on deferred commits.
+     */
+    public void setSearchServerUrl(String searchServerUrl) {
+        this.searchServerUrl = searchServerUrl;
+    }
+
+    /**
+     * Sets the default strategy (hard, deferred or none) used to commit the index after indexing.
+     *
+     * @throws DeployerConfigurationException if the strategy is not one of the valid values
+     */
+    public void setCommitStrategy(String commitStrategy) throws DeployerConfigurationException {
+        this.commitStrategy = parseCommitStrategy(commitStrategy, DEFAULT_COMMIT_STRATEGY_PROPERTY_NAME);
+    }
+
+    /**
+     * Sets the coalescer used for deferred commits.
+     */
+    public void setCommitCoalescer(SearchCommitCoalescer commitCoalescer) {
+        this.commitCoalescer = commitCoalescer;
+    }
+
     @Override
     protected void doInit(Configuration config) throws DeployerException {
         boolean ignoreIndexId = ConfigUtils.getBooleanProperty(config, IGNORE_INDEX_ID_CONFIG_KEY, false);
@@ -121,6 +197,14 @@ public class SearchIndexingProcessor extends AbstractMainDeploymentProcessor {
         if (CollectionUtils.isEmpty(batchIndexers)) {
             throw new IllegalStateException("At least one batch indexer should be provided");
         }
+
+        String commitStrategyStr = ConfigUtils.getStringProperty(config, COMMIT_STRATEGY_CONFIG_KEY);
+        if (StringUtils.isNotEmpty(commitStrategyStr)) {
+            commitStrategy = parseCommitStrategy(commitStrategyStr, COMMIT_STRATEGY_CONFIG_KEY);
+        }
+        if (commitStrategy == CommitStrategy.DEFERRED && commitCoalescer == null) {
+            throw new DeployerConfigurationException("A commit coalescer is required for deferred commits");
+        }
     }
 
     @Override
@@ -133,34 +217,26 @@ public class SearchIndexingProcessor extends AbstractMainDeploymentProcessor {
         logger.info("Performing search indexing...");
 
         ChangeSet changeSet = deployment.getChangeSet();
-        List<String> createdFiles = changeSet.getCreatedFiles();
-        List<String> updatedFiles = changeSet.getUpdatedFiles();
-        List<String> deletedFiles = changeSet.getDeletedFiles();
-        UpdateSet updateSet = new UpdateSet(ListUtils.union(createdFiles, updatedFiles), deletedFiles);
         UpdateStatus updateStatus = new UpdateStatus();
 
         execution.setStatusDetails(updateStatus);
 
         context = createContentStoreContext();
         try {
-            if (CollectionUtils.isNotEmpty(createdFiles)) {
-                for (BatchIndexer indexer : batchIndexers) {
-                    indexer.updateIndex(searchService, indexId, siteName, contentStoreService, context, updateSet, updateStatus);
-                }
-            }
-            if (CollectionUtils.isNotEmpty(updatedFiles)) {
-                for (BatchIndexer indexer : batchIndexers) {
-                    indexer.updateIndex(searchService, indexId, siteName, contentStoreService, context, updateSet, updateStatus);
-                }
-            }
-            if (CollectionUtils.isNotEmpty(deletedFiles)) {
+            if (isParallelIndexingEnabled()) {
+                indexInParallel(changeSet, updateStatus);
+            } else if (!changeSet.isEmpty()) {
+                // The update set contains all created, updated and deleted files, so each indexer needs to be called only once
+                List<String> updatePaths = ListUtils.union(changeSet.getCreatedFiles(), changeSet.getUpdatedFiles());
+                UpdateSet updateSet = new UpdateSet(updatePaths, changeSet.getDeletedFiles());
+
                 for (BatchIndexer indexer : batchIndexers) {
                     indexer.updateIndex(searchService, indexId, siteName, contentStoreService, context, updateSet, updateStatus);
                 }
             }
 
             if (updateStatus.getAttemptedUpdatesAndDeletes() > 0) {
-                searchService.commit(indexId);
+                commit();
             }
         } catch (Exception e) {
             throw new DeployerException("Error while performing search indexing", e);
@@ -176,6 +252,129 @@ public class SearchIndexingProcessor extends AbstractMainDeploymentProcessor {
         return false;
     }
 
+    protected void commit() {
+        switch (commitStrategy) {
+            case DEFERRED:
+                logger.debug("Commit of index '{}' deferred", indexId);
+
+                commitCoalescer.requestCommit(searchServerUrl, searchService, indexId);
+                break;
+            case NONE:
+                logger.debug("No explicit commit of index '{}' will be done", indexId);
+                break;
+            default:
+                searchService.commit(indexId);
+                break;
+        }
+    }
+
+    protected CommitStrategy parseCommitStrategy(String commitStrategy,
+                                                 String propertyName) throws DeployerConfigurationException {
+        try {
+            return CommitStrategy.fromString(commitStrategy);
+        } catch (IllegalArgumentException e) {
+            throw new DeployerConfigurationException("Invalid commit strategy '" + commitStrategy + "' for property '" +
+                                                     propertyName + "'. Valid values are " +
+                                                     Arrays.toString(CommitStrategy.values()), e);
+        }
+    }
+
+    protected boolean isParallelIndexingEnabled() {
+        return indexingExecutor != null && parallelism > 1 && chunkSize > 0;
+    }
+
+    protected void indexInParallel(ChangeSet changeSet, UpdateStatus updateStatus) throws DeployerException {
+        logger.info("Indexing files in chunks of {} with a parallelism of {}", chunkSize, parallelism);
+
+        // The chunks are created as the change set is streamed, and the semaphore provides the backpressure: a new chunk isn't
+        // created and submitted until one of the in-flight chunks is done
+        Iterator<String> updatePaths = Stream.concat(changeSet.streamCreatedFiles(), changeSet.streamUpdatedFiles()).iterator();
+        Iterator<String> deletePaths = changeSet.streamDeletedFiles().iterator();
+        Semaphore permits = new Semaphore(parallelism);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+
+        try {
+            while (updatePaths.hasNext() || deletePaths.hasNext()) {
+                permits.acquire();
+
+                if (failure.get() != null) {
+                    // Don't submit any more chunks after one failed
+                    permits.release();
+                    break;
+                }
+
+                UpdateSet chunk;
+                if (updatePaths.hasNext()) {
+                    chunk = new UpdateSet(nextChunk(updatePaths), Collections.emptyList());
+                } else {
+                    chunk = new UpdateSet(Collections.emptyList(), nextChunk(deletePaths));
+                }
+
+                CompletableFuture<Void> future = CompletableFuture.runAsync(() -> indexChunk(chunk, updateStatus), indexingExecutor);
+                future.whenComplete((result, ex) -> {
+                    if (ex != null) {
+                        failure.compareAndSet(null, ex instanceof CompletionException? ex.getCause() : ex);
+                    }
+
+                    permits.release();
+                });
+
+                futures.add(future);
+            }
+
+            logger.debug("{} chunks submitted for indexing", futures.size());
+
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[futures.size()])).get();
+        } catch (InterruptedException e) {
+            futures.forEach(future -> future.cancel(true));
+
+            Thread.currentThread().interrupt();
+
+            throw new DeployerException("Interrupted while waiting for parallel indexing to finish");
+        } catch (ExecutionException e) {
+            // Failure is recorded by the whenComplete callbacks
+        }
+
+        if (failure.get() != null) {
+            throw new DeployerException("Parallel indexing of a chunk of files failed", failure.get());
+        }
+    }
+
+    protected List<String> nextChunk(Iterator<String> paths) {
+        List<String> chunk = new ArrayList<>(chunkSize);
+        while (paths.hasNext() && chunk.size() < chunkSize) {
+            chunk.add(paths.next());
+        }
+
+        return chunk;
+    }
+
+    protected void indexChunk(UpdateSet chunk, UpdateStatus updateStatus) {
+        UpdateStatus chunkStatus = new UpdateStatus();
+
+        try {
+            for (BatchIndexer indexer : batchIndexers) {
+                indexer.updateIndex(searchService, indexId, siteName, contentStoreService, context, chunk, chunkStatus);
+            }
+        } catch (Exception e) {
+            throw new CompletionException(e);
+        } finally {
+            mergeUpdateStatus(chunkStatus, updateStatus);
+        }
+    }
+
+    protected void mergeUpdateStatus(UpdateStatus from, UpdateStatus to) {
+        synchronized (to) {
+            for (int i = 0; i < from.getAttemptedUpdatesAndDeletes(); i++) {
+                to.incrementAttemptedUpdatesAndDeletes();
+            }
+
+            from.getSuccessfulUpdates().forEach(to::addSuccessfulUpdate);
+            from.getSuccessfulDeletes().forEach(to::addSuccessfulDelete);
+        }
+    }
+
     protected Context createContentStoreContext() throws DeployerException {
         try {
             Context context = contentStoreService.createContext(FileSystemContentStoreAdapter.STORE_TYPE, null, null, null, localRepoUrl,
@@ -199,4 +398,15 @@ public class SearchIndexingProcessor extends AbstractMainDeploymentProcessor {
         }
     }
 
+    /**
+     * The strategies available to commit the index after indexing.
+     */
+    public enum CommitStrategy {
+        HARD, DEFERRED, NONE;
+
+        public static CommitStrategy fromString(String str) {
+            return valueOf(StringUtils.upperCase(StringUtils.trim(str)));
+        }
+    }
+
 }
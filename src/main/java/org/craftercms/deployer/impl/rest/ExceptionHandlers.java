@@ -18,6 +18,9 @@ package org.craftercms.deployer.impl.rest;
 
 import org.craftercms.commons.rest.BaseRestExceptionHandlers;
 import org.craftercms.commons.rest.RestServiceUtils;
+import org.craftercms.deployer.api.exceptions.DeploymentNotFoundException;
+import org.craftercms.deployer.api.exceptions.InvalidPatternException;
+import org.craftercms.deployer.api.exceptions.InvalidPercentileException;
 import org.craftercms.deployer.api.exceptions.TargetAlreadyExistsException;
 import org.craftercms.deployer.api.exceptions.TargetNotFoundException;
 import org.springframework.http.HttpHeaders;
@@ -48,6 +51,19 @@ public class ExceptionHandlers extends BaseRestExceptionHandlers {
         return handleExceptionInternal(ex, "Target not found", new HttpHeaders(), HttpStatus.NOT_FOUND, request);
     }
 
+    /**
+     * Handles a {@link DeploymentNotFoundException} by returning a 404 NOT FOUND.
+     *
+     * @param ex        the exception
+     * @param request   the current request
+     *
+     * @return the response entity, with the body and status
+     */
+    @ExceptionHandler(DeploymentNotFoundException.class)
+    public ResponseEntity<Object> handleDeploymentNotFoundException(DeploymentNotFoundException ex, WebRequest request) {
+        return handleExceptionInternal(ex, "Deployment not found", new HttpHeaders(), HttpStatus.NOT_FOUND, request);
+    }
+
     /**
      * Handles a {@link TargetAlreadyExistsException} by returning a 409 CONFLICT.
      *
@@ -65,4 +81,30 @@ public class ExceptionHandlers extends BaseRestExceptionHandlers {
         return handleExceptionInternal(ex, "Target already exists", headers, HttpStatus.CONFLICT, request);
     }
 
+    /**
+     * Handles an {@link InvalidPatternException} by returning a 400 BAD REQUEST.
+     *
+     * @param ex        the exception
+     * @param request   the current request
+     *
+     * @return the response entity, with the body and status
+     */
+    @ExceptionHandler(InvalidPatternException.class)
+    public ResponseEntity<Object> handleInvalidPatternException(InvalidPatternException ex, WebRequest request) {
+        return handleExceptionInternal(ex, ex.getMessage(), new HttpHeaders(), HttpStatus.BAD_REQUEST, request);
+    }
+
+    /**
+     * Handles an {@link InvalidPercentileException} by returning a 400 BAD REQUEST.
+     *
+     * @param ex        the exception
+     * @param request   the current request
+     *
+     * @return the response entity, with the body and status
+     */
+    @ExceptionHandler(InvalidPercentileException.class)
+    public ResponseEntity<Object> handleInvalidPercentileException(InvalidPercentileException ex, WebRequest request) {
+        return handleExceptionInternal(ex, ex.getMessage(), new HttpHeaders(), HttpStatus.BAD_REQUEST, request);
+    }
+
 }
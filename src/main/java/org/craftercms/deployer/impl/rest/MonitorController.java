@@ -19,13 +19,18 @@
 package org.craftercms.deployer.impl.rest;
 
 import java.io.IOException;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.craftercms.commons.monitoring.MemoryMonitor;
 import org.craftercms.commons.monitoring.StatusMonitor;
 import org.craftercms.commons.monitoring.VersionMonitor;
+import org.craftercms.deployer.impl.DeploymentMetrics;
+import org.craftercms.deployer.impl.TargetLoadingMetrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -56,11 +61,24 @@ public class MonitorController {
      * Version service URL.
      */
     private static final String VERSION_URL = "/version";
+    /**
+     * Metrics service URL.
+     */
+    private static final String METRICS_URL = "/metrics";
+    /**
+     * Startup service URL.
+     */
+    private static final String STARTUP_URL = "/startup";
     /**
      * Class LOGGER.
      */
     private static final Logger LOGGER = LoggerFactory.getLogger(MonitorController.class);
 
+    @Autowired
+    private DeploymentMetrics deploymentMetrics;
+
+    @Autowired
+    private TargetLoadingMetrics targetLoadingMetrics;
 
     /**
      * Uses Crafter Commons Memory Monitor POJO to get current JVM Memory stats.
@@ -97,4 +115,31 @@ public class MonitorController {
             throw new IOException("Unable to read manifest file", ex);
         }
     }
+
+    /**
+     * Returns the deployment counters (like skipped pulls), summed across all targets and per target.
+     * @return a map with the {@code totals} and the {@code targets} counters
+     */
+    @RequestMapping(value = METRICS_URL, method = RequestMethod.GET)
+    public ResponseEntity<Map<String, Object>> metrics() {
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("totals", deploymentMetrics.getTotalCounters());
+        metrics.put("targets", deploymentMetrics.getTargetCounters());
+
+        return new ResponseEntity<>(metrics, HttpStatus.OK);
+    }
+
+    /**
+     * Returns how the targets were loaded: a {@code summary} of the initial load on startup (duration, ready/loading/failed
+     * counts, time per load phase and slowest targets), and the last load of each target config file.
+     * @return a map with the {@code summary} and the {@code targets} loads
+     */
+    @RequestMapping(value = STARTUP_URL, method = RequestMethod.GET)
+    public ResponseEntity<Map<String, Object>> startup() {
+        Map<String, Object> startup = new HashMap<>();
+        startup.put("summary", targetLoadingMetrics.getStartupSummary());
+        startup.put("targets", targetLoadingMetrics.getLoads());
+
+        return new ResponseEntity<>(startup, HttpStatus.OK);
+    }
 }
@@ -16,36 +16,51 @@
  */
 package org.craftercms.deployer.impl.rest;
 
+import java.time.ZonedDateTime;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
 
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.collections4.MapUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
 import org.craftercms.commons.rest.RestServiceUtils;
 import org.craftercms.commons.rest.Result;
 import org.craftercms.commons.validation.ValidationException;
 import org.craftercms.commons.validation.ValidationResult;
+import org.craftercms.deployer.api.BulkDeployment;
 import org.craftercms.deployer.api.Deployment;
+import org.craftercms.deployer.api.DeploymentDurationStatistics;
+import org.craftercms.deployer.api.DeploymentRecord;
 import org.craftercms.deployer.api.DeploymentService;
 import org.craftercms.deployer.api.Target;
 import org.craftercms.deployer.api.TargetService;
 import org.craftercms.deployer.api.exceptions.DeployerException;
 import org.craftercms.deployer.utils.BooleanUtils;
+import org.craftercms.deployer.utils.concurrent.SerialExecutor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.format.annotation.DateTimeFormat.ISO;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import static org.craftercms.deployer.impl.rest.RestConstants.DEPLOYMENT_ID_PATH_VAR_NAME;
 import static org.craftercms.deployer.impl.rest.RestConstants.ENV_PATH_VAR_NAME;
 import static org.craftercms.deployer.impl.rest.RestConstants.SITE_NAME_PATH_VAR_NAME;
 import static org.craftercms.deployer.impl.rest.RestConstants.WAIT_TILL_DONE_PARAM_NAME;
@@ -72,17 +87,38 @@ public class TargetController {
                                                             "{" + SITE_NAME_PATH_VAR_NAME + "}";
     public static final String GET_ALL_DEPLOYMENTS_URL = "/deployments/get-all/{" + ENV_PATH_VAR_NAME + "}/" +
                                                          "{" + SITE_NAME_PATH_VAR_NAME + "}";
+    public static final String GET_DEPLOYMENT_URL = "/deployments/get/{" + DEPLOYMENT_ID_PATH_VAR_NAME + "}";
+    public static final String GET_DEPLOYMENT_EVENTS_URL = "/deployments/events/{" + DEPLOYMENT_ID_PATH_VAR_NAME + "}";
+    public static final String GET_DEPLOYMENT_HISTORY_URL = "/deployments/history/{" + ENV_PATH_VAR_NAME + "}/" +
+                                                            "{" + SITE_NAME_PATH_VAR_NAME + "}";
+    public static final String GET_DEPLOYMENT_HISTORY_STATS_URL = "/deployments/history-stats/{" + ENV_PATH_VAR_NAME + "}/" +
+                                                                  "{" + SITE_NAME_PATH_VAR_NAME + "}";
 
     public static final String REPLACE_PARAM_NAME = "replace";
     public static final String TEMPLATE_NAME_PARAM_NAME = "template_name";
+    public static final String ENV_PATTERN_PARAM_NAME = "env_pattern";
+    public static final String SITE_NAME_PATTERN_PARAM_NAME = "site_name_pattern";
+    public static final String TIMEOUT_PARAM_NAME = "timeout";
+    public static final String WAIT_PARAM_NAME = "wait";
+    public static final String STATUS_PARAM_NAME = "status";
+    public static final String FROM_PARAM_NAME = "from";
+    public static final String TO_PARAM_NAME = "to";
+    public static final String LIMIT_PARAM_NAME = "limit";
+    public static final String PERCENTILES_PARAM_NAME = "percentiles";
+
+    public static final String DEPLOYMENT_PROGRESS_EVENT_NAME = "progress";
+    public static final String DEPLOYMENT_DONE_EVENT_NAME = "done";
 
     protected TargetService targetService;
     protected DeploymentService deploymentService;
+    protected Executor deploymentEventsExecutor;
 
     @Autowired
-    public TargetController(TargetService targetService, DeploymentService deploymentService) {
+    public TargetController(TargetService targetService, DeploymentService deploymentService,
+                            @Qualifier("deploymentEventsTaskExecutor") Executor deploymentEventsExecutor) {
         this.targetService = targetService;
         this.deploymentService = deploymentService;
+        this.deploymentEventsExecutor = deploymentEventsExecutor;
     }
 
     /**
@@ -199,22 +235,26 @@ public class TargetController {
     }
 
     /**
-     * Deploys the {@link Target} with the specified environment and site name.
+     * Deploys the {@link Target} with the specified environment and site name. The deployment is only queued, and the response
+     * includes its ID, which can be used to follow its progress through {@link #getDeployment(String, long)} or
+     * {@link #getDeploymentEvents(String)}. When {@code wait_till_done} is true, the response is sent when the deployment is done,
+     * but without blocking the request thread while waiting.
      *
      * @param env       the target's environment
      * @param siteName  the target's site name
      * @param params    any additional parameters that can be used by the {@link org.craftercms.deployer.api.DeploymentProcessor}s, for
      *                  example {@code reprocess_all_files}
      *
-     * @return the response entity with a 200 OK status
+     * @return the deferred response entity with the deployment and a 200 OK status (or 202 ACCEPTED if not waiting till the
+     * deployment is done)
      *
      * @throws DeployerException if an error occurred
      */
     @RequestMapping(value = DEPLOY_TARGET_URL, method = RequestMethod.POST)
-    public ResponseEntity<Result> deployTarget(@PathVariable(ENV_PATH_VAR_NAME) String env,
-                                               @PathVariable(SITE_NAME_PATH_VAR_NAME) String siteName,
-                                               @RequestBody(required = false) Map<String, Object> params)
-                            throws DeployerException, ExecutionException, InterruptedException {
+    public DeferredResult<ResponseEntity<Deployment>> deployTarget(@PathVariable(ENV_PATH_VAR_NAME) String env,
+                                                                   @PathVariable(SITE_NAME_PATH_VAR_NAME) String siteName,
+                                                                   @RequestBody(required = false) Map<String, Object> params)
+        throws DeployerException {
         if (params == null) {
             params = new HashMap<>();
         }
@@ -224,35 +264,57 @@ public class TargetController {
             waitTillDone = BooleanUtils.toBoolean(params.remove(WAIT_TILL_DONE_PARAM_NAME));
         }
 
-        deploymentService.deployTarget(env, siteName, waitTillDone, params);
+        Deployment deployment = deploymentService.deployTarget(env, siteName, false, params);
+        HttpHeaders headers = RestServiceUtils.setLocationHeader(new HttpHeaders(), BASE_URL + GET_DEPLOYMENT_URL,
+                                                                 deployment.getId());
+        // A timeout of 0 disables the async request timeout, a deployment can take a long time
+        DeferredResult<ResponseEntity<Deployment>> result = new DeferredResult<>(0L);
+
+        if (waitTillDone) {
+            deployment.getCompletionFuture().whenComplete(
+                (dep, ex) -> result.setResult(new ResponseEntity<>(deployment, headers, HttpStatus.OK)));
+        } else {
+            result.setResult(new ResponseEntity<>(deployment, headers, HttpStatus.ACCEPTED));
+        }
 
-        return ResponseEntity.status(HttpStatus.ACCEPTED).body(Result.OK);
+        return result;
     }
 
     /**
-     * Deploys all current {@link Target}s.
+     * Deploys all current {@link Target}s, or the ones that match the {@code env_pattern} and {@code site_name_pattern} regexes.
+     * When {@code wait_till_done} is true, the targets are deployed in parallel (with a configured max parallelism), and the
+     * response is sent when all deployments are done or the {@code timeout} (in millis) elapses.
      *
      * @param params    any additional parameters that can be used by the {@link org.craftercms.deployer.api.DeploymentProcessor}s, for
      *                  example {@code reprocess_all_files}
      *
-     * @return the response entity with a 200 OK status
+     * @return the response entity with the aggregate result of the deployments and a 200 OK status (or 202 ACCEPTED if not
+     * waiting till the deployments are done)
      *
      * @throws DeployerException if an error occurred
      */
     @RequestMapping(value = DEPLOY_ALL_TARGETS_URL, method = RequestMethod.POST)
-    public ResponseEntity<Result> deployAllTargets(@RequestBody(required = false) Map<String, Object> params) throws DeployerException {
+    public ResponseEntity<BulkDeployment> deployAllTargets(@RequestBody(required = false) Map<String, Object> params)
+        throws DeployerException {
         if (params == null) {
             params = new HashMap<>();
         }
 
         boolean waitTillDone = false;
+        String envPattern = null;
+        String siteNamePattern = null;
+        long timeout = -1;
+
         if (MapUtils.isNotEmpty(params)) {
-           waitTillDone = BooleanUtils.toBoolean(params.remove(WAIT_TILL_DONE_PARAM_NAME));
+            waitTillDone = BooleanUtils.toBoolean(params.remove(WAIT_TILL_DONE_PARAM_NAME));
+            envPattern = Objects.toString(params.remove(ENV_PATTERN_PARAM_NAME), null);
+            siteNamePattern = Objects.toString(params.remove(SITE_NAME_PATTERN_PARAM_NAME), null);
+            timeout = NumberUtils.toLong(Objects.toString(params.remove(TIMEOUT_PARAM_NAME), null), -1);
         }
 
-        deploymentService.deployAllTargets(waitTillDone, params);
+        BulkDeployment bulkDeployment = deploymentService.deployTargets(envPattern, siteNamePattern, waitTillDone, timeout, params);
 
-        return ResponseEntity.status(HttpStatus.ACCEPTED).body(Result.OK);
+        return ResponseEntity.status(waitTillDone? HttpStatus.OK : HttpStatus.ACCEPTED).body(bulkDeployment);
     }
 
     /**
@@ -325,4 +387,147 @@ public class TargetController {
                                     HttpStatus.OK);
     }
 
+    /**
+     * Returns a deployment by its ID. If {@code wait} is specified and the deployment hasn't finished, the response is held until
+     * the deployment is done or {@code wait} millis have elapsed (long polling), whichever comes first.
+     *
+     * @param id    the ID of the deployment
+     * @param wait  the max number of millis to wait for the deployment to be done (0 to return right away)
+     *
+     * @return the deferred response entity with the deployment and a 200 OK status
+     *
+     * @throws DeployerException if an error occurred
+     */
+    @RequestMapping(value = GET_DEPLOYMENT_URL, method = RequestMethod.GET)
+    public DeferredResult<ResponseEntity<Deployment>> getDeployment(@PathVariable(DEPLOYMENT_ID_PATH_VAR_NAME) String id,
+                                                                    @RequestParam(value = WAIT_PARAM_NAME, defaultValue = "0")
+                                                                    long wait) throws DeployerException {
+        Deployment deployment = deploymentService.getDeployment(id);
+        HttpHeaders headers = RestServiceUtils.setLocationHeader(new HttpHeaders(), BASE_URL + GET_DEPLOYMENT_URL, id);
+        DeferredResult<ResponseEntity<Deployment>> result = new DeferredResult<>(wait > 0? wait : null);
+
+        if (wait > 0 && !deployment.getCompletionFuture().isDone()) {
+            // On timeout, return the deployment as it is at the moment
+            result.onTimeout(() -> result.setResult(new ResponseEntity<>(deployment, headers, HttpStatus.OK)));
+
+            deployment.getCompletionFuture().whenComplete(
+                (dep, ex) -> result.setResult(new ResponseEntity<>(deployment, headers, HttpStatus.OK)));
+        } else {
+            result.setResult(new ResponseEntity<>(deployment, headers, HttpStatus.OK));
+        }
+
+        return result;
+    }
+
+    /**
+     * Streams the progress of a deployment as server-sent events: a {@code progress} event with the deployment each time a
+     * processor starts or the deployment ends, and a final {@code done} event when the deployment is completely done, after which
+     * the stream is closed.
+     *
+     * @param id the ID of the deployment
+     *
+     * @return the emitter of the events
+     *
+     * @throws DeployerException if an error occurred
+     */
+    @RequestMapping(value = GET_DEPLOYMENT_EVENTS_URL, method = RequestMethod.GET)
+    public SseEmitter getDeploymentEvents(@PathVariable(DEPLOYMENT_ID_PATH_VAR_NAME) String id) throws DeployerException {
+        Deployment deployment = deploymentService.getDeployment(id);
+        // A timeout of 0 disables the async request timeout, the stream is closed when the deployment is done
+        SseEmitter emitter = new SseEmitter(0L);
+        // The events are sent outside the deployment thread (so a slow client doesn't hold up the deployment), but in order
+        Executor eventsExecutor = new SerialExecutor(deploymentEventsExecutor);
+        Consumer<Deployment> listener = dep -> sendDeploymentEvent(emitter, DEPLOYMENT_PROGRESS_EVENT_NAME, dep);
+
+        deployment.addProgressListener(listener, eventsExecutor);
+
+        emitter.onCompletion(() -> deployment.removeProgressListener(listener));
+        emitter.onTimeout(() -> deployment.removeProgressListener(listener));
+
+        // Send the current state right away, so clients don't miss what happened before they subscribed
+        sendDeploymentEvent(emitter, DEPLOYMENT_PROGRESS_EVENT_NAME, deployment);
+
+        deployment.getCompletionFuture().whenCompleteAsync((dep, ex) -> {
+            deployment.removeProgressListener(listener);
+
+            sendDeploymentEvent(emitter, DEPLOYMENT_DONE_EVENT_NAME, deployment);
+
+            emitter.complete();
+        }, eventsExecutor);
+
+        return emitter;
+    }
+
+    /**
+     * Returns the finished deployments of a target kept in the deployment history, most recent first.
+     *
+     * @param env       the target's environment
+     * @param siteName  the target's site name
+     * @param status    the status of the deployments (optional)
+     * @param from      the min start date of the deployments, in ISO format (optional)
+     * @param to        the max start date (exclusive) of the deployments, in ISO format (optional)
+     * @param limit     the max number of deployments to return
+     *
+     * @return the finished deployments of the target
+     *
+     * @throws DeployerException if an error occurred
+     */
+    @RequestMapping(value = GET_DEPLOYMENT_HISTORY_URL, method = RequestMethod.GET)
+    public ResponseEntity<List<DeploymentRecord>> getDeploymentHistory(
+        @PathVariable(ENV_PATH_VAR_NAME) String env,
+        @PathVariable(SITE_NAME_PATH_VAR_NAME) String siteName,
+        @RequestParam(value = STATUS_PARAM_NAME, required = false) Deployment.Status status,
+        @RequestParam(value = FROM_PARAM_NAME, required = false) @DateTimeFormat(iso = ISO.DATE_TIME) ZonedDateTime from,
+        @RequestParam(value = TO_PARAM_NAME, required = false) @DateTimeFormat(iso = ISO.DATE_TIME) ZonedDateTime to,
+        @RequestParam(value = LIMIT_PARAM_NAME, defaultValue = "100") int limit) throws DeployerException {
+        List<DeploymentRecord> deployments = deploymentService.getDeploymentHistory(env, siteName, status, from, to, limit);
+
+        return new ResponseEntity<>(deployments,
+                                    RestServiceUtils.setLocationHeader(new HttpHeaders(), BASE_URL + GET_DEPLOYMENT_HISTORY_URL,
+                                                                       env, siteName),
+                                    HttpStatus.OK);
+    }
+
+    /**
+     * Returns the duration statistics (count, min, max, average and percentiles) of the finished deployments of a target kept in
+     * the deployment history.
+     *
+     * @param env           the target's environment
+     * @param siteName      the target's site name
+     * @param status        the status of the deployments (optional)
+     * @param from          the min start date of the deployments, in ISO format (optional)
+     * @param to            the max start date (exclusive) of the deployments, in ISO format (optional)
+     * @param percentiles   the duration percentiles to calculate
+     *
+     * @return the duration statistics
+     *
+     * @throws DeployerException if an error occurred
+     */
+    @RequestMapping(value = GET_DEPLOYMENT_HISTORY_STATS_URL, method = RequestMethod.GET)
+    public ResponseEntity<DeploymentDurationStatistics> getDeploymentHistoryStats(
+        @PathVariable(ENV_PATH_VAR_NAME) String env,
+        @PathVariable(SITE_NAME_PATH_VAR_NAME) String siteName,
+        @RequestParam(value = STATUS_PARAM_NAME, required = false) Deployment.Status status,
+        @RequestParam(value = FROM_PARAM_NAME, required = false) @DateTimeFormat(iso = ISO.DATE_TIME) ZonedDateTime from,
+        @RequestParam(value = TO_PARAM_NAME, required = false) @DateTimeFormat(iso = ISO.DATE_TIME) ZonedDateTime to,
+        @RequestParam(value = PERCENTILES_PARAM_NAME, defaultValue = "50,90,95,99") double[] percentiles)
+        throws DeployerException {
+        DeploymentDurationStatistics stats = deploymentService.getDeploymentDurationStatistics(env, siteName, status, from, to,
+                                                                                               percentiles);
+
+        return new ResponseEntity<>(stats,
+                                    RestServiceUtils.setLocationHeader(new HttpHeaders(),
+                                                                       BASE_URL + GET_DEPLOYMENT_HISTORY_STATS_URL, env, siteName),
+                                    HttpStatus.OK);
+    }
+
+    protected void sendDeploymentEvent(SseEmitter emitter, String name, Deployment deployment) {
+        try {
+            emitter.send(SseEmitter.event().id(deployment.getId()).name(name).data(deployment, MediaType.APPLICATION_JSON));
+        } catch (Exception e) {
+            // The client probably disconnected
+            emitter.completeWithError(e);
+        }
+    }
+
 }
@@ -0,0 +1,126 @@
+/*
+ * Copyright (C) 2007-2017 Crafter Software Corporation.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.craftercms.deployer.utils;
+
+import java.io.IOException;
+
+import org.craftercms.deployer.api.exceptions.DeployerConfigurationException;
+import org.springframework.core.io.Resource;
+
+/**
+ * Holds the parsed content of a {@link Resource}, so that a resource shared by several components (like the base target
+ * configuration) is parsed only once. The resource is parsed again when its last modified date changes, and the cached value
+ * is discarded when the resource stops existing.
+ *
+ * @param <T> the type of the parsed content
+ *
+ * @author avasquez
+ */
+public class CachedResource<T> {
+
+    protected final Resource resource;
+    protected final Parser<T> parser;
+    protected volatile Entry<T> entry;
+
+    public CachedResource(Resource resource, Parser<T> parser) {
+        this.resource = resource;
+        this.parser = parser;
+    }
+
+    public Resource getResource() {
+        return resource;
+    }
+
+    /**
+     * Returns the parsed content of the resource, parsing the resource first if it hasn't been parsed yet or if it has changed
+     * since the last time it was parsed. The returned value is shared, so callers shouldn't modify it.
+     *
+     * @return the parsed content, or null if the resource doesn't exist
+     *
+     * @throws DeployerConfigurationException if the resource couldn't be parsed
+     */
+    public T get() throws DeployerConfigurationException {
+        if (!resource.exists()) {
+            entry = null;
+
+            return null;
+        }
+
+        long lastModified = getLastModified();
+        Entry<T> current = entry;
+
+        if (current == null || current.lastModified != lastModified) {
+            synchronized (this) {
+                current = entry;
+                if (current == null || current.lastModified != lastModified) {
+                    try {
+                        current = new Entry<>(parser.parse(resource), lastModified);
+                    } catch (DeployerConfigurationException e) {
+                        throw e;
+                    } catch (Exception e) {
+                        throw new DeployerConfigurationException("Failed to parse " + resource, e);
+                    }
+
+                    entry = current;
+                }
+            }
+        }
+
+        return current.value;
+    }
+
+    /**
+     * Discards the cached value, so the resource is parsed again on the next {@link #get()}.
+     */
+    public void invalidate() {
+        entry = null;
+    }
+
+    protected long getLastModified() {
+        try {
+            return resource.lastModified();
+        } catch (IOException e) {
+            // Resources without a last modified date (like some classpath resources) can't change
+            return 0;
+        }
+    }
+
+    /**
+     * Parses the content of a resource.
+     *
+     * @param <T> the type of the parsed content
+     */
+    @FunctionalInterface
+    public interface Parser<T> {
+
+        T parse(Resource resource) throws Exception;
+
+    }
+
+    protected static class Entry<T> {
+
+        protected final T value;
+        protected final long lastModified;
+
+        public Entry(T value, long lastModified) {
+            this.value = value;
+            this.lastModified = lastModified;
+        }
+
+    }
+
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2007-2017 Crafter Software Corporation.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.craftercms.deployer.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import org.springframework.core.io.Resource;
+
+/**
+ * Builder of a SHA-256 digest of the content of several files, used to detect actual changes of a configuration regardless of
+ * the modification dates of its files. Each part is added with its length, so different splits of the same bytes produce different
+ * digests, and missing files are also taken into account.
+ *
+ * @author avasquez
+ */
+public class ContentDigest {
+
+    public static final String ALGORITHM = "SHA-256";
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    protected MessageDigest digest;
+
+    public ContentDigest() {
+        try {
+            digest = MessageDigest.getInstance(ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            // Should never happen, every JVM must support SHA-256
+            throw new IllegalStateException(ALGORITHM + " not supported", e);
+        }
+    }
+
+    /**
+     * Adds the specified bytes to the digest, or a marker of a missing part if the bytes are null.
+     */
+    public ContentDigest update(byte[] bytes) {
+        digest.update(ByteBuffer.allocate(4).putInt(bytes != null ? bytes.length : -1).array());
+        if (bytes != null) {
+            digest.update(bytes);
+        }
+
+        return this;
+    }
+
+    /**
+     * Adds the content of the specified file to the digest, or a marker of a missing part if the file doesn't exist.
+     */
+    public ContentDigest update(File file) throws IOException {
+        return update(file.exists() ? Files.readAllBytes(file.toPath()) : null);
+    }
+
+    /**
+     * Returns the digest as a hex string. The builder can't be used after calling this method.
+     */
+    public String toHexString() {
+        return toHexString(digest.digest());
+    }
+
+    /**
+     * Returns the SHA-256 digest of the content of the specified resource.
+     */
+    public static byte[] digest(Resource resource) throws IOException {
+        ContentDigest contentDigest = new ContentDigest();
+        byte[] buffer = new byte[8192];
+        int read;
+
+        try (InputStream in = resource.getInputStream()) {
+            while ((read = in.read(buffer)) != -1) {
+                contentDigest.digest.update(buffer, 0, read);
+            }
+        }
+
+        return contentDigest.digest.digest();
+    }
+
+    public static String toHexString(byte[] bytes) {
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[i * 2] = HEX_DIGITS[(bytes[i] >> 4) & 0xF];
+            chars[i * 2 + 1] = HEX_DIGITS[bytes[i] & 0xF];
+        }
+
+        return new String(chars);
+    }
+
+}
@@ -18,14 +18,22 @@ package org.craftercms.deployer.utils;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Objects;
+import java.util.Properties;
 
 import org.apache.commons.lang3.StringUtils;
 import org.craftercms.deployer.utils.git.GitAuthenticationConfigurator;
 import org.eclipse.jgit.api.CloneCommand;
+import org.eclipse.jgit.api.GarbageCollectCommand;
 import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.LsRemoteCommand;
 import org.eclipse.jgit.api.PullCommand;
 import org.eclipse.jgit.api.PullResult;
 import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.Ref;
 import org.eclipse.jgit.lib.StoredConfig;
 import org.eclipse.jgit.transport.CredentialsProvider;
 import org.eclipse.jgit.transport.SshSessionFactory;
@@ -42,6 +50,12 @@ public abstract class GitUtils {
     public static final String BIG_FILE_THRESHOLD_CONFIG_PARAM = "bigFileThreshold";
     public static final String COMPRESSION_CONFIG_PARAM = "compression";
     public static final String FILE_MODE_CONFIG_PARAM = "fileMode";
+    public static final String REMOTE_CONFIG_SECTION = "remote";
+    public static final String FETCH_CONFIG_PARAM = "fetch";
+    public static final String PACK_CONFIG_SECTION = "pack";
+    public static final String WINDOW_CONFIG_PARAM = "window";
+    public static final String DEPTH_CONFIG_PARAM = "depth";
+    public static final String THREADS_CONFIG_PARAM = "threads";
 
     public static final String BIG_FILE_THRESHOLD_DEFAULT = "20m";
     public static final int COMPRESSION_DEFAULT = 0;
@@ -74,6 +88,8 @@ public abstract class GitUtils {
      * @param bigFileThreshold  the value of the Git {@code core.bigFileThreshold} config property
      * @param compression       the value of the Git {@code core.compression} config property
      * @param fileMode          the value of the Git {@code core.fileMode} config property
+     * @param singleBranch      if only the specified branch should be cloned and fetched on later pulls. When no branch is
+     *                          specified, all branches are cloned, but later pulls only fetch the checked out (default) branch
      *
      * @return the Git instance used to handle the cloned repository
      *
@@ -81,14 +97,19 @@ public abstract class GitUtils {
      * @throws IOException      if an IO error occurs
      */
     public static Git cloneRemoteRepository(String remoteRepoUrl, String branch, GitAuthenticationConfigurator authConfigurator,
-                                            File localFolder, String bigFileThreshold, Integer compression, Boolean fileMode)
-        throws GitAPIException, IOException{
+                                            File localFolder, String bigFileThreshold, Integer compression, Boolean fileMode,
+                                            boolean singleBranch) throws GitAPIException, IOException{
         CloneCommand command = Git.cloneRepository();
         command.setURI(remoteRepoUrl);
         command.setDirectory(localFolder);
 
         if (StringUtils.isNotEmpty(branch)) {
             command.setBranch(branch);
+
+            if (singleBranch) {
+                command.setCloneAllBranches(false);
+                command.setBranchesToClone(Collections.singletonList(Constants.R_HEADS + branch));
+            }
         }
 
         if (authConfigurator != null) {
@@ -111,6 +132,16 @@ public abstract class GitUtils {
         config.setString(CORE_CONFIG_SECTION, null, BIG_FILE_THRESHOLD_CONFIG_PARAM, bigFileThreshold);
         config.setInt(CORE_CONFIG_SECTION, null, COMPRESSION_CONFIG_PARAM, compression);
         config.setBoolean(CORE_CONFIG_SECTION, null, FILE_MODE_CONFIG_PARAM, fileMode);
+
+        if (singleBranch) {
+            // Restrict the fetch refspec to the cloned branch, so that later pulls don't fetch all other branches
+            String clonedBranch = git.getRepository().getBranch();
+            String refSpec = "+" + Constants.R_HEADS + clonedBranch + ":" + Constants.R_REMOTES + Constants.DEFAULT_REMOTE_NAME +
+                             "/" + clonedBranch;
+
+            config.setString(REMOTE_CONFIG_SECTION, Constants.DEFAULT_REMOTE_NAME, FETCH_CONFIG_PARAM, refSpec);
+        }
+
         config.save();
 
         return git;
@@ -140,4 +171,109 @@ public abstract class GitUtils {
         return command.call();
     }
 
+    /**
+     * Updates the Git {@code core} config of the repository. Null values are ignored, and the config is only saved if a value
+     * changed.
+     *
+     * @param git               the Git instance used to handle the repository
+     * @param bigFileThreshold  the value of the Git {@code core.bigFileThreshold} config property
+     * @param compression       the value of the Git {@code core.compression} config property
+     * @param fileMode          the value of the Git {@code core.fileMode} config property
+     *
+     * @return true if the config was changed
+     *
+     * @throws IOException if the config couldn't be saved
+     */
+    public static boolean updateCoreConfig(Git git, String bigFileThreshold, Integer compression,
+                                           Boolean fileMode) throws IOException {
+        StoredConfig config = git.getRepository().getConfig();
+        boolean changed = setIfChanged(config, CORE_CONFIG_SECTION, BIG_FILE_THRESHOLD_CONFIG_PARAM, bigFileThreshold);
+        changed |= setIfChanged(config, CORE_CONFIG_SECTION, COMPRESSION_CONFIG_PARAM, compression);
+        changed |= setIfChanged(config, CORE_CONFIG_SECTION, FILE_MODE_CONFIG_PARAM, fileMode);
+
+        if (changed) {
+            config.save();
+        }
+
+        return changed;
+    }
+
+    /**
+     * Updates the Git {@code pack} config of the repository, used when the repository is repacked (see
+     * {@link #garbageCollect(Git, boolean)}). Null values are ignored, and the config is only saved if a value changed.
+     *
+     * @param git       the Git instance used to handle the repository
+     * @param window    the value of the Git {@code pack.window} config property
+     * @param depth     the value of the Git {@code pack.depth} config property
+     * @param threads   the value of the Git {@code pack.threads} config property
+     *
+     * @return true if the config was changed
+     *
+     * @throws IOException if the config couldn't be saved
+     */
+    public static boolean updatePackConfig(Git git, Integer window, Integer depth, Integer threads) throws IOException {
+        StoredConfig config = git.getRepository().getConfig();
+        boolean changed = setIfChanged(config, PACK_CONFIG_SECTION, WINDOW_CONFIG_PARAM, window);
+        changed |= setIfChanged(config, PACK_CONFIG_SECTION, DEPTH_CONFIG_PARAM, depth);
+        changed |= setIfChanged(config, PACK_CONFIG_SECTION, THREADS_CONFIG_PARAM, threads);
+
+        if (changed) {
+            config.save();
+        }
+
+        return changed;
+    }
+
+    /**
+     * Executes a Git gc on the repository, which packs refs and loose objects, repacks existing packs and prunes unreachable
+     * objects.
+     *
+     * @param git           the Git instance used to handle the repository
+     * @param aggressive    if the repacking should spend more time to find better deltas
+     *
+     * @return the statistics of the repository after the gc
+     *
+     * @throws GitAPIException if a Git related error occurs
+     */
+    public static Properties garbageCollect(Git git, boolean aggressive) throws GitAPIException {
+        GarbageCollectCommand command = git.gc();
+        command.setAggressive(aggressive);
+
+        return command.call();
+    }
+
+    /**
+     * Looks up the branch refs of the {@code origin} remote of the repository, without fetching any objects (like a
+     * {@code git ls-remote --heads}).
+     *
+     * @param git               the Git instance used to handle the repository
+     * @param authConfigurator  the {@link GitAuthenticationConfigurator} class used to configure the authentication with the remote
+     *                          repository
+     *
+     * @return the remote branch refs
+     *
+     * @throws GitAPIException if a Git related error occurs
+     */
+    public static Collection<Ref> lsRemoteHeads(Git git, GitAuthenticationConfigurator authConfigurator) throws GitAPIException {
+        LsRemoteCommand command = git.lsRemote();
+        command.setRemote(Constants.DEFAULT_REMOTE_NAME);
+        command.setHeads(true);
+
+        if (authConfigurator != null) {
+            authConfigurator.configureAuthentication(command);
+        }
+
+        return command.call();
+    }
+
+    private static boolean setIfChanged(StoredConfig config, String section, String name, Object value) {
+        if (value != null && !Objects.equals(config.getString(section, null, name), value.toString())) {
+            config.setString(section, null, name, value.toString());
+
+            return true;
+        } else {
+            return false;
+        }
+    }
+
 }
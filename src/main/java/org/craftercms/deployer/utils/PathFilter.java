@@ -0,0 +1,202 @@
+/*
+ * Copyright (C) 2007-2017 Crafter Software Corporation.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.craftercms.deployer.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+import org.apache.commons.lang3.ArrayUtils;
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Path predicate built from include and exclude regexes, compiled once. A path matches if it fully matches at least one of the
+ * include regexes (or there are no includes), and doesn't fully match any of the exclude regexes. To avoid running a regex per
+ * pattern, each set of patterns is split into:
+ *
+ * <ul>
+ *     <li>Literal paths (patterns without regex metacharacters), which are checked with a hash lookup.</li>
+ *     <li>Literal prefixes (patterns like {@code ^/site/.*$}), which are checked with {@code startsWith}.</li>
+ *     <li>The rest of the patterns, which are combined in a single alternation regex.</li>
+ * </ul>
+ *
+ * <p>Filters with the same patterns have the same {@link #getKey()}, so it can be used to share the results of filtering.</p>
+ *
+ * @author avasquez
+ */
+public class PathFilter implements Predicate<String> {
+
+    private static final String REGEX_METACHARS = "\\^$.|?*+()[]{}";
+
+    protected final Key key;
+    protected final CompiledPatterns includes;
+    protected final CompiledPatterns excludes;
+
+    /**
+     * Creates a new filter for the specified patterns.
+     *
+     * @param includePatterns the include regexes (can be null or empty)
+     * @param excludePatterns the exclude regexes (can be null or empty)
+     *
+     * @return the filter, or null if there are no include or exclude patterns
+     */
+    public static PathFilter create(String[] includePatterns, String[] excludePatterns) {
+        if (ArrayUtils.isNotEmpty(includePatterns) || ArrayUtils.isNotEmpty(excludePatterns)) {
+            return new PathFilter(includePatterns, excludePatterns);
+        } else {
+            return null;
+        }
+    }
+
+    public PathFilter(String[] includePatterns, String[] excludePatterns) {
+        this.key = new Key(includePatterns, excludePatterns);
+        this.includes = ArrayUtils.isNotEmpty(includePatterns) ? new CompiledPatterns(includePatterns) : null;
+        this.excludes = ArrayUtils.isNotEmpty(excludePatterns) ? new CompiledPatterns(excludePatterns) : null;
+    }
+
+    /**
+     * Returns a key that uniquely identifies the patterns of this filter.
+     */
+    public Key getKey() {
+        return key;
+    }
+
+    @Override
+    public boolean test(String path) {
+        return (includes == null || includes.matches(path)) && (excludes == null || !excludes.matches(path));
+    }
+
+    @Override
+    public String toString() {
+        return key.toString();
+    }
+
+    /**
+     * Value object with the include and exclude patterns of a filter, equal to the key of any other filter with the same patterns
+     * in the same order.
+     */
+    public static class Key {
+
+        protected final List<String> includePatterns;
+        protected final List<String> excludePatterns;
+
+        public Key(String[] includePatterns, String[] excludePatterns) {
+            this.includePatterns = asList(includePatterns);
+            this.excludePatterns = asList(excludePatterns);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+
+            Key key = (Key) o;
+
+            return includePatterns.equals(key.includePatterns) && excludePatterns.equals(key.excludePatterns);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(includePatterns, excludePatterns);
+        }
+
+        @Override
+        public String toString() {
+            return "includes=" + includePatterns + ";excludes=" + excludePatterns;
+        }
+
+        private static List<String> asList(String[] patterns) {
+            // Copied, so later changes to the array don't change the key
+            return ArrayUtils.isNotEmpty(patterns) ? Arrays.asList(patterns.clone()) : Collections.emptyList();
+        }
+
+    }
+
+    protected static class CompiledPatterns {
+
+        protected Set<String> literals;
+        protected String[] prefixes;
+        protected Pattern regex;
+
+        public CompiledPatterns(String[] patterns) {
+            List<String> prefixList = new ArrayList<>();
+            List<String> regexList = new ArrayList<>();
+
+            literals = new HashSet<>();
+
+            for (String pattern : patterns) {
+                String prefix = getLiteralPrefix(pattern);
+                if (isLiteral(pattern)) {
+                    literals.add(pattern);
+                } else if (prefix != null) {
+                    prefixList.add(prefix);
+                } else {
+                    regexList.add("(?:" + pattern + ")");
+                }
+            }
+
+            prefixes = prefixList.toArray(new String[prefixList.size()]);
+
+            if (!regexList.isEmpty()) {
+                regex = Pattern.compile(StringUtils.join(regexList, '|'));
+            }
+        }
+
+        public boolean matches(String path) {
+            if (literals.contains(path)) {
+                return true;
+            }
+            for (String prefix : prefixes) {
+                if (path.startsWith(prefix)) {
+                    return true;
+                }
+            }
+
+            return regex != null && regex.matcher(path).matches();
+        }
+
+        protected static boolean isLiteral(String pattern) {
+            return StringUtils.containsNone(pattern, REGEX_METACHARS);
+        }
+
+        protected static String getLiteralPrefix(String pattern) {
+            String prefix = StringUtils.removeStart(pattern, "^");
+            prefix = StringUtils.removeEnd(prefix, "$");
+
+            if (prefix.endsWith(".*")) {
+                prefix = prefix.substring(0, prefix.length() - 2);
+                if (isLiteral(prefix)) {
+                    return prefix;
+                }
+            }
+
+            return null;
+        }
+
+    }
+
+}
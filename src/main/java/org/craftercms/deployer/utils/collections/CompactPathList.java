@@ -0,0 +1,229 @@
+/*
+ * Copyright (C) 2007-2017 Crafter Software Corporation.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.craftercms.deployer.utils.collections;
+
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+
+/**
+ * Append-only list of paths that's stored front coded: each path only keeps the bytes that differ from the previous path (plus
+ * the length of the shared prefix), all in a single byte array. Paths that share long prefixes, like the sorted paths of a Git
+ * tree walk, take a fraction of the memory of the equivalent {@code String} objects. To keep random access cheap, every
+ * {@code blockSize} paths one path is stored in full, so {@link #get(int)} never has to decode more than a block. Sequential
+ * access (through {@link #iterator()} or a {@link Cursor}) decodes each path only once, from the previous one.
+ *
+ * <p>The list is not synchronized: it should be filled by a single thread, and can then be read concurrently.</p>
+ *
+ * @author avasquez
+ */
+public class CompactPathList extends AbstractList<String> implements RandomAccess {
+
+    public static final int DEFAULT_BLOCK_SIZE = 16;
+
+    protected final int blockSize;
+    protected byte[] data;
+    protected int dataSize;
+    protected int[] offsets;
+    protected int size;
+    protected byte[] lastPath;
+
+    public CompactPathList() {
+        this(DEFAULT_BLOCK_SIZE);
+    }
+
+    public CompactPathList(int blockSize) {
+        this.blockSize = blockSize;
+        this.data = new byte[256];
+        this.offsets = new int[16];
+        this.lastPath = new byte[0];
+    }
+
+    @Override
+    public boolean add(String path) {
+        byte[] bytes = path.getBytes(StandardCharsets.UTF_8);
+        int prefixLength = 0;
+
+        if (size % blockSize != 0) {
+            int maxPrefixLength = Math.min(bytes.length, lastPath.length);
+            while (prefixLength < maxPrefixLength && bytes[prefixLength] == lastPath[prefixLength]) {
+                prefixLength++;
+            }
+        }
+
+        int suffixLength = bytes.length - prefixLength;
+
+        if (size == offsets.length) {
+            offsets = Arrays.copyOf(offsets, size + (size >> 1) + 1);
+        }
+        // 2 var ints take at most 10 bytes
+        ensureDataCapacity(dataSize + 10 + suffixLength);
+
+        offsets[size++] = dataSize;
+
+        writeVarInt(prefixLength);
+        writeVarInt(suffixLength);
+        System.arraycopy(bytes, prefixLength, data, dataSize, suffixLength);
+
+        dataSize += suffixLength;
+        lastPath = bytes;
+        modCount++;
+
+        return true;
+    }
+
+    @Override
+    public String get(int index) {
+        return cursor().get(index);
+    }
+
+    @Override
+    public Iterator<String> iterator() {
+        Cursor cursor = cursor();
+
+        return new Iterator<String>() {
+
+            protected int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < size;
+            }
+
+            @Override
+            public String next() {
+                if (next >= size) {
+                    throw new NoSuchElementException();
+                }
+
+                return cursor.get(next++);
+            }
+
+        };
+    }
+
+    /**
+     * Returns a new cursor to read the paths of this list. A cursor is not thread safe.
+     */
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Releases the unused capacity of the internal arrays.
+     */
+    public void trimToSize() {
+        data = Arrays.copyOf(data, dataSize);
+        offsets = Arrays.copyOf(offsets, size);
+    }
+
+    /**
+     * Returns the approximate number of bytes used by the internal arrays.
+     */
+    public long getMemoryUsage() {
+        return data.length + 4L * offsets.length;
+    }
+
+    /**
+     * Reads paths of the list reusing the path decoded by the previous call: when paths are read in ascending index order, each
+     * one is decoded just once from the previous one, instead of from the start of its block.
+     */
+    public class Cursor {
+
+        protected byte[] buffer;
+        protected int length;
+        protected int index;
+        protected int[] pos;
+
+        protected Cursor() {
+            buffer = new byte[64];
+            index = -1;
+            pos = new int[1];
+        }
+
+        public String get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+            }
+
+            int blockStart = index - (index % blockSize);
+            // Continue from the last decoded path if it's in the same block and not after the requested one
+            int from = this.index >= blockStart && this.index <= index ? this.index + 1 : blockStart;
+
+            for (int i = from; i <= index; i++) {
+                decode(i);
+            }
+
+            this.index = index;
+
+            return new String(buffer, 0, length, StandardCharsets.UTF_8);
+        }
+
+        protected void decode(int i) {
+            pos[0] = offsets[i];
+
+            int prefixLength = readVarInt(pos);
+            int suffixLength = readVarInt(pos);
+
+            length = prefixLength + suffixLength;
+            if (length > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(length, buffer.length * 2));
+            }
+
+            System.arraycopy(data, pos[0], buffer, prefixLength, suffixLength);
+        }
+
+    }
+
+    protected void ensureDataCapacity(int capacity) {
+        if (capacity > data.length) {
+            data = Arrays.copyOf(data, Math.max(capacity, data.length + (data.length >> 1)));
+        }
+    }
+
+    protected void writeVarInt(int value) {
+        while ((value & ~0x7F) != 0) {
+            data[dataSize++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+
+        data[dataSize++] = (byte) value;
+    }
+
+    protected int readVarInt(int[] pos) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+
+        do {
+            b = data[pos[0]++];
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+
+        return value;
+    }
+
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2007-2017 Crafter Software Corporation.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.craftercms.deployer.utils.concurrent;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * {@link Executor} that runs the submitted tasks one at a time, in submission order, on top of another (normally shared)
+ * executor. Several serial executors can then multiplex their tasks over the same bounded set of worker threads, while each one
+ * still guarantees that no two of its tasks run concurrently.
+ *
+ * @author avasquez
+ */
+public class SerialExecutor implements Executor {
+
+    protected final Executor executor;
+    protected final Queue<Runnable> tasks;
+    protected Runnable active;
+
+    public SerialExecutor(Executor executor) {
+        this.executor = executor;
+        this.tasks = new ArrayDeque<>();
+    }
+
+    @Override
+    public synchronized void execute(Runnable task) {
+        tasks.add(() -> {
+            try {
+                task.run();
+            } finally {
+                scheduleNext();
+            }
+        });
+
+        if (active == null) {
+            scheduleNext();
+        }
+    }
+
+    /**
+     * Returns the number of tasks waiting to be run (not including the active one).
+     */
+    public synchronized int getQueueSize() {
+        return tasks.size();
+    }
+
+    /**
+     * Returns true if there's a task currently being run or scheduled to run in the underlying executor.
+     */
+    public synchronized boolean isActive() {
+        return active != null;
+    }
+
+    /**
+     * Removes all tasks waiting to be run.
+     *
+     * @return the removed tasks
+     */
+    public synchronized List<Runnable> clear() {
+        List<Runnable> removed = new ArrayList<>(tasks);
+        tasks.clear();
+
+        return removed;
+    }
+
+    protected synchronized void scheduleNext() {
+        active = tasks.poll();
+
+        if (active != null) {
+            try {
+                executor.execute(active);
+            } catch (RejectedExecutionException e) {
+                active = null;
+
+                throw e;
+            }
+        }
+    }
+
+}
@@ -16,8 +16,11 @@
  */
 package org.craftercms.deployer.utils.git;
 
+import java.nio.charset.StandardCharsets;
+
 import com.jcraft.jsch.Session;
 
+import org.craftercms.deployer.utils.ContentDigest;
 import org.eclipse.jgit.api.TransportCommand;
 import org.eclipse.jgit.transport.JschConfigSessionFactory;
 import org.eclipse.jgit.transport.OpenSshConfig;
@@ -26,19 +29,60 @@ import org.eclipse.jgit.transport.SshTransport;
 
 /**
  * {@link GitAuthenticationConfigurator} that configures the {@code TransportCommand} to use SSH, but without providing
- * any authentication functionality. Actual authentication functionality is provided by subclasses.
+ * any authentication functionality. Actual authentication functionality is provided by subclasses. When a {@link SshSessionPool}
+ * is set, the SSH sessions are taken from (and returned to) the pool, so they can be reused by later commands.
  *
  * @author avasquez
  */
 public abstract class AbstractSshAuthConfigurator implements GitAuthenticationConfigurator {
 
+    protected SshSessionPool sessionPool;
+    protected SshSessionFactory sessionFactory;
+
+    public void setSessionPool(SshSessionPool sessionPool) {
+        this.sessionPool = sessionPool;
+    }
+
     @Override
     public void configureAuthentication(TransportCommand command) {
-        SshSessionFactory sessionFactory = createSessionFactory();
+        SshSessionFactory sessionFactory = getSessionFactory();
 
         command.setTransportConfigCallback(transport -> ((SshTransport) transport).setSshSessionFactory(sessionFactory));
     }
 
+    protected synchronized SshSessionFactory getSessionFactory() {
+        if (sessionFactory == null) {
+            sessionFactory = createSessionFactory();
+
+            if (sessionPool != null) {
+                sessionFactory = sessionPool.getSessionFactory(sessionFactory, getCredentialsKey());
+            }
+        }
+
+        return sessionFactory;
+    }
+
+    /**
+     * Returns a key that identifies the credentials used by this configurator, so that pooled sessions are only shared between
+     * configurators with the same credentials.
+     */
+    protected String getCredentialsKey() {
+        return getClass().getName();
+    }
+
+    /**
+     * Returns a SHA-256 digest of the specified secrets (which can be null), so they can be part of the credentials key without
+     * keeping them in plain text in the session pool.
+     */
+    protected String digestSecrets(String... secrets) {
+        ContentDigest digest = new ContentDigest();
+        for (String secret : secrets) {
+            digest.update(secret != null ? secret.getBytes(StandardCharsets.UTF_8) : null);
+        }
+
+        return digest.toHexString();
+    }
+
     protected SshSessionFactory createSessionFactory() {
         return new JschConfigSessionFactory() {
 
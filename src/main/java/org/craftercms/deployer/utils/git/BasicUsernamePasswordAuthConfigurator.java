@@ -17,6 +17,7 @@
 package org.craftercms.deployer.utils.git;
 
 import org.eclipse.jgit.api.TransportCommand;
+import org.eclipse.jgit.transport.CredentialsProvider;
 import org.eclipse.jgit.transport.UsernamePasswordCredentialsProvider;
 
 /**
@@ -26,17 +27,16 @@ import org.eclipse.jgit.transport.UsernamePasswordCredentialsProvider;
  */
 public class BasicUsernamePasswordAuthConfigurator implements GitAuthenticationConfigurator {
 
-    private String username;
-    private String password;
+    private CredentialsProvider credentialsProvider;
 
     public BasicUsernamePasswordAuthConfigurator(String username, String password) {
-        this.username = username;
-        this.password = password;
+        // The provider is stateless, so it can be reused by all commands
+        this.credentialsProvider = new UsernamePasswordCredentialsProvider(username, password);
     }
 
     @Override
     public void configureAuthentication(TransportCommand command) {
-        command.setCredentialsProvider(new UsernamePasswordCredentialsProvider(username, password));
+        command.setCredentialsProvider(credentialsProvider);
     }
 
 }
@@ -46,6 +46,11 @@ public class SshRsaKeyPairAuthConfigurator extends AbstractSshAuthConfigurator {
         this.passphrase = passphrase;
     }
 
+    @Override
+    protected String getCredentialsKey() {
+        return super.getCredentialsKey() + ":" + privateKeyPath + ":" + digestSecrets(passphrase);
+    }
+
     @Override
     protected SshSessionFactory createSessionFactory() {
         return new JschConfigSessionFactory() {
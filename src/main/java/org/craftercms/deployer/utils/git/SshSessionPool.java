@@ -0,0 +1,242 @@
+/*
+ * Copyright (C) 2007-2017 Crafter Software Corporation.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.craftercms.deployer.utils.git;
+
+import java.io.IOException;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentMap;
+
+import org.eclipse.jgit.errors.TransportException;
+import org.eclipse.jgit.transport.CredentialsProvider;
+import org.eclipse.jgit.transport.RemoteSession;
+import org.eclipse.jgit.transport.SshSessionFactory;
+import org.eclipse.jgit.transport.URIish;
+import org.eclipse.jgit.util.FS;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Pool of connected SSH sessions, shared by all targets, so that repeated fetches against the same remote reuse an already
+ * established (and authenticated) session instead of doing a new SSH handshake each time. Sessions are keyed by the remote
+ * user, host and port plus a key that identifies the credentials used, so targets with different credentials never share a
+ * session. Released sessions are kept idle for a limited time, after which they're disconnected by
+ * {@link #evictIdleSessions()}.
+ *
+ * @author avasquez
+ */
+public class SshSessionPool {
+
+    private static final Logger logger = LoggerFactory.getLogger(SshSessionPool.class);
+
+    protected long idleTimeout;
+    protected int maxIdleSessionsPerKey;
+    protected ConcurrentMap<String, Deque<PooledSession>> idleSessions;
+
+    /**
+     * Creates the pool.
+     *
+     * @param idleTimeout           the time in millis a session can stay idle in the pool before being disconnected
+     * @param maxIdleSessionsPerKey the max number of idle sessions kept for the same remote and credentials
+     */
+    public SshSessionPool(long idleTimeout, int maxIdleSessionsPerKey) {
+        this.idleTimeout = idleTimeout;
+        this.maxIdleSessionsPerKey = maxIdleSessionsPerKey;
+        this.idleSessions = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Returns a {@link SshSessionFactory} that takes the sessions from this pool, and only uses the actual factory when there's
+     * no idle session available for the remote.
+     *
+     * @param actualFactory     the factory used to create new sessions
+     * @param credentialsKey    a key that identifies the credentials configured in the actual factory
+     *
+     * @return the pooled session factory
+     */
+    public SshSessionFactory getSessionFactory(SshSessionFactory actualFactory, String credentialsKey) {
+        return new PooledSshSessionFactory(actualFactory, credentialsKey);
+    }
+
+    /**
+     * Returns the number of idle sessions currently in the pool.
+     */
+    public int getIdleSessionsCount() {
+        return idleSessions.values().stream().mapToInt(Deque::size).sum();
+    }
+
+    /**
+     * Disconnects the sessions that have been idle for longer than the idle timeout.
+     *
+     * @return the number of sessions disconnected
+     */
+    public int evictIdleSessions() {
+        long now = System.currentTimeMillis();
+        int evicted = 0;
+
+        for (Deque<PooledSession> sessions : idleSessions.values()) {
+            for (Iterator<PooledSession> iter = sessions.iterator(); iter.hasNext();) {
+                PooledSession session = iter.next();
+
+                if (now - session.releaseTime >= idleTimeout && sessions.removeFirstOccurrence(session)) {
+                    session.disconnect();
+                    evicted++;
+                }
+            }
+        }
+
+        if (evicted > 0) {
+            logger.debug("{} idle SSH session(s) evicted from pool", evicted);
+        }
+
+        return evicted;
+    }
+
+    /**
+     * Disconnects all idle sessions.
+     */
+    public void close() {
+        for (Deque<PooledSession> sessions : idleSessions.values()) {
+            PooledSession session;
+            while ((session = sessions.pollFirst()) != null) {
+                session.disconnect();
+            }
+        }
+    }
+
+    protected PooledSession borrowSession(String key) {
+        Deque<PooledSession> sessions = idleSessions.get(key);
+        if (sessions != null) {
+            long now = System.currentTimeMillis();
+            PooledSession session;
+
+            while ((session = sessions.pollFirst()) != null) {
+                if (now - session.releaseTime < idleTimeout) {
+                    logger.debug("Reusing pooled SSH session for {}", session.uri);
+
+                    session.reused = true;
+
+                    return session;
+                } else {
+                    session.disconnect();
+                }
+            }
+        }
+
+        return null;
+    }
+
+    protected void releaseSession(PooledSession session) {
+        Deque<PooledSession> sessions = idleSessions.computeIfAbsent(session.key, k -> new ConcurrentLinkedDeque<>());
+
+        if (sessions.size() < maxIdleSessionsPerKey) {
+            session.releaseTime = System.currentTimeMillis();
+
+            sessions.addFirst(session);
+        } else {
+            session.disconnect();
+        }
+    }
+
+    protected class PooledSshSessionFactory extends SshSessionFactory {
+
+        protected SshSessionFactory actualFactory;
+        protected String credentialsKey;
+
+        public PooledSshSessionFactory(SshSessionFactory actualFactory, String credentialsKey) {
+            this.actualFactory = actualFactory;
+            this.credentialsKey = credentialsKey;
+        }
+
+        @Override
+        public RemoteSession getSession(URIish uri, CredentialsProvider credentialsProvider, FS fs,
+                                        int tms) throws TransportException {
+            String key = credentialsKey + "|" + uri.getUser() + "@" + uri.getHost() + ":" + uri.getPort();
+            PooledSession session = borrowSession(key);
+
+            if (session == null) {
+                session = new PooledSession(key, uri, credentialsProvider, fs, tms, this);
+            }
+
+            return session;
+        }
+
+        @Override
+        public void releaseSession(RemoteSession session) {
+            if (session instanceof PooledSession) {
+                SshSessionPool.this.releaseSession((PooledSession) session);
+            } else {
+                actualFactory.releaseSession(session);
+            }
+        }
+
+    }
+
+    protected static class PooledSession implements RemoteSession {
+
+        protected final String key;
+        protected final URIish uri;
+        protected final CredentialsProvider credentialsProvider;
+        protected final FS fs;
+        protected final int tms;
+        protected final PooledSshSessionFactory factory;
+        protected RemoteSession actualSession;
+        protected volatile boolean reused;
+        protected volatile long releaseTime;
+
+        public PooledSession(String key, URIish uri, CredentialsProvider credentialsProvider, FS fs, int tms,
+                             PooledSshSessionFactory factory) throws TransportException {
+            this.key = key;
+            this.uri = uri;
+            this.credentialsProvider = credentialsProvider;
+            this.fs = fs;
+            this.tms = tms;
+            this.factory = factory;
+            this.actualSession = factory.actualFactory.getSession(uri, credentialsProvider, fs, tms);
+        }
+
+        @Override
+        public Process exec(String commandName, int timeout) throws IOException {
+            try {
+                return actualSession.exec(commandName, timeout);
+            } catch (IOException e) {
+                if (!reused) {
+                    throw e;
+                }
+
+                // The pooled session could have been closed by the server while idle, so reconnect once and retry
+                logger.debug("Pooled SSH session for " + uri + " is no longer usable. Opening a new one", e);
+
+                factory.actualFactory.releaseSession(actualSession);
+
+                actualSession = factory.actualFactory.getSession(uri, credentialsProvider, fs, tms);
+                reused = false;
+
+                return actualSession.exec(commandName, timeout);
+            }
+        }
+
+        @Override
+        public void disconnect() {
+            factory.actualFactory.releaseSession(actualSession);
+        }
+
+    }
+
+}
@@ -36,6 +36,11 @@ public class SshUsernamePasswordAuthConfigurator extends AbstractSshAuthConfigur
         this.password = password;
     }
 
+    @Override
+    protected String getCredentialsKey() {
+        return super.getCredentialsKey() + ":" + digestSecrets(password);
+    }
+
     @Override
     protected SshSessionFactory createSessionFactory() {
         return new JschConfigSessionFactory() {
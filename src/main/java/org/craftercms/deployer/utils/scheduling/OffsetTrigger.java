@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2007-2017 Crafter Software Corporation.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.craftercms.deployer.utils.scheduling;
+
+import java.util.Date;
+
+import org.springframework.scheduling.Trigger;
+import org.springframework.scheduling.TriggerContext;
+import org.springframework.scheduling.support.SimpleTriggerContext;
+
+/**
+ * {@link Trigger} decorator that shifts every execution time of the actual trigger by a fixed offset. Used to spread tasks that
+ * share the same cron expression (like target deployments) across the cron period, instead of having all of them fire at the
+ * same time.
+ *
+ * @author avasquez
+ */
+public class OffsetTrigger implements Trigger {
+
+    protected Trigger actualTrigger;
+    protected long offset;
+
+    /**
+     * Creates the trigger from the actual trigger and the offset.
+     *
+     * @param actualTrigger the trigger whose execution times will be shifted
+     * @param offset        the offset in millis
+     */
+    public OffsetTrigger(Trigger actualTrigger, long offset) {
+        this.actualTrigger = actualTrigger;
+        this.offset = offset;
+    }
+
+    /**
+     * Returns the offset in millis.
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    @Override
+    public Date nextExecutionTime(TriggerContext triggerContext) {
+        // The actual trigger needs to see the times without the offset, so that it resolves the same execution times it would
+        // resolve if it wasn't decorated.
+        TriggerContext actualContext;
+
+        if (triggerContext.lastCompletionTime() != null) {
+            actualContext = new SimpleTriggerContext(shift(triggerContext.lastScheduledExecutionTime(), -offset),
+                                                     shift(triggerContext.lastActualExecutionTime(), -offset),
+                                                     shift(triggerContext.lastCompletionTime(), -offset));
+        } else {
+            Date now = shift(new Date(), -offset);
+
+            actualContext = new SimpleTriggerContext(now, now, now);
+        }
+
+        return shift(actualTrigger.nextExecutionTime(actualContext), offset);
+    }
+
+    protected Date shift(Date date, long millis) {
+        return date != null? new Date(date.getTime() + millis) : null;
+    }
+
+    /**
+     * Returns the offset for a specific key (like a target ID), which is always the same for the same key and is between 0
+     * (inclusive) and the specified max offset (exclusive).
+     *
+     * @param key       the key used to calculate the offset
+     * @param maxOffset the max offset in millis
+     *
+     * @return the offset
+     */
+    public static long getOffsetForKey(String key, long maxOffset) {
+        return maxOffset > 0? Math.floorMod((long) key.hashCode(), maxOffset) : 0;
+    }
+
+}
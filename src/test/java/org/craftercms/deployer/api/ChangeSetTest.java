@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2007-2017 Crafter Software Corporation.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.craftercms.deployer.api;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for {@link ChangeSet}.
+ *
+ * @author avasquez
+ */
+public class ChangeSetTest {
+
+    @Test
+    public void testGetFiles() throws Exception {
+        List<String> createdFiles = Arrays.asList("/site/website/index.xml", "/site/website/about/index.xml",
+                                                  "/static-assets/images/caf\u00e9.png");
+        List<String> updatedFiles = Collections.singletonList("/site/website/about/index.xml");
+        List<String> deletedFiles = Collections.emptyList();
+
+        ChangeSet changeSet = new ChangeSet(createdFiles, updatedFiles, deletedFiles);
+
+        assertEquals(createdFiles, changeSet.getCreatedFiles());
+        assertEquals(updatedFiles, changeSet.getUpdatedFiles());
+        assertEquals(deletedFiles, changeSet.getDeletedFiles());
+        assertFalse(changeSet.isEmpty());
+        assertTrue(new ChangeSet().isEmpty());
+    }
+
+    @Test
+    public void testFilter() throws Exception {
+        ChangeSet changeSet = new ChangeSet();
+        changeSet.addCreatedFile("/site/website/index.xml");
+        changeSet.addCreatedFile("/static-assets/css/main.css");
+        changeSet.addUpdatedFile("/site/components/header.xml");
+        changeSet.addDeletedFile("/static-assets/js/main.js");
+
+        ChangeSet filteredChangeSet = changeSet.filter(path -> path.startsWith("/site/"));
+
+        assertEquals(Collections.singletonList("/site/website/index.xml"), filteredChangeSet.getCreatedFiles());
+        assertEquals(Collections.singletonList("/site/components/header.xml"), filteredChangeSet.getUpdatedFiles());
+        assertTrue(filteredChangeSet.getDeletedFiles().isEmpty());
+
+        // Adding to the original change set doesn't affect the filtered one
+        changeSet.addCreatedFile("/site/website/about/index.xml");
+
+        assertEquals(3, changeSet.getCreatedFiles().size());
+        assertEquals(1, filteredChangeSet.getCreatedFiles().size());
+        assertEquals("/site/website/about/index.xml", changeSet.getCreatedFiles().get(2));
+    }
+
+    @Test
+    public void testCachedFilter() throws Exception {
+        ChangeSet changeSet = new ChangeSet();
+        changeSet.addCreatedFile("/site/website/index.xml");
+
+        ChangeSet filteredChangeSet = changeSet.filter("site", path -> path.startsWith("/site/"));
+
+        assertSame(filteredChangeSet, changeSet.filter("site", path -> path.startsWith("/site/")));
+
+        changeSet.addCreatedFile("/site/website/about/index.xml");
+
+        assertNotSame(filteredChangeSet, changeSet.filter("site", path -> path.startsWith("/site/")));
+        assertEquals(2, changeSet.filter("site", path -> path.startsWith("/site/")).getCreatedFiles().size());
+    }
+
+    @Test
+    public void testSplit() throws Exception {
+        ChangeSet changeSet = new ChangeSet(Arrays.asList("/a", "/b", "/c"), Collections.singletonList("/d"),
+                                            Arrays.asList("/e", "/f"));
+
+        List<ChangeSet> batches = changeSet.split(4);
+
+        assertEquals(2, batches.size());
+        assertEquals(Arrays.asList("/a", "/b", "/c"), batches.get(0).getCreatedFiles());
+        assertEquals(Collections.singletonList("/d"), batches.get(0).getUpdatedFiles());
+        assertTrue(batches.get(0).getDeletedFiles().isEmpty());
+        assertTrue(batches.get(1).getCreatedFiles().isEmpty());
+        assertTrue(batches.get(1).getUpdatedFiles().isEmpty());
+        assertEquals(Arrays.asList("/e", "/f"), batches.get(1).getDeletedFiles());
+        assertSame(changeSet, changeSet.split(6).get(0));
+    }
+
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright (C) 2007-2017 Crafter Software Corporation.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.craftercms.deployer.impl;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.ZonedDateTime;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.craftercms.deployer.api.Deployment;
+import org.craftercms.deployer.api.DeploymentDurationStatistics;
+import org.craftercms.deployer.api.DeploymentRecord;
+import org.craftercms.deployer.api.Target;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Unit tests for {@link DeploymentHistoryStoreImpl}.
+ *
+ * @author avasquez
+ */
+public class DeploymentHistoryStoreImplTest {
+
+    private static final String TARGET_ID = "foobar-test";
+
+    private DeploymentHistoryStoreImpl store;
+    private File historyFolder;
+    private ZonedDateTime now;
+
+    @Before
+    public void setUp() throws Exception {
+        historyFolder = Files.createTempDirectory("deployment-history").toFile();
+        store = createStore(5);
+        now = ZonedDateTime.now();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        FileUtils.forceDelete(historyFolder);
+    }
+
+    @Test
+    public void testRecord() throws Exception {
+        Deployment deployment = new Deployment(mock(Target.class));
+        deployment.start();
+        deployment.end(Deployment.Status.SUCCESS);
+
+        store.record(TARGET_ID, deployment);
+
+        List<DeploymentRecord> records = store.find(TARGET_ID, null, null, null, 0);
+
+        assertEquals(1, records.size());
+        assertEquals(deployment.getId(), records.get(0).getId());
+        assertEquals(deployment.getDuration().longValue(), records.get(0).getDuration());
+
+        // A new store should load the history from disk
+        records = createStore(5).find(TARGET_ID, Deployment.Status.SUCCESS, null, null, 0);
+
+        assertEquals(1, records.size());
+        assertEquals(deployment.getId(), records.get(0).getId());
+        assertEquals(deployment.getEnd().toInstant(), records.get(0).getEnd().toInstant());
+    }
+
+    @Test
+    public void testRetention() throws Exception {
+        for (int i = 0; i < 12; i++) {
+            add(Integer.toString(i), 12 - i, 1000, Deployment.Status.SUCCESS);
+        }
+
+        List<DeploymentRecord> records = store.find(TARGET_ID, null, null, null, 0);
+
+        assertEquals(5, records.size());
+        assertEquals("11", records.get(0).getId());
+        assertEquals("7", records.get(4).getId());
+        // The log is compacted when it has twice the max count lines
+        assertTrue(FileUtils.readLines(new File(historyFolder, TARGET_ID + ".history"), StandardCharsets.UTF_8).size() < 10);
+
+        records = createStore(5).find(TARGET_ID, null, null, null, 0);
+
+        assertEquals(5, records.size());
+        assertEquals("11", records.get(0).getId());
+
+        // Records older than the max age are dropped
+        store.setMaxAge(4 * 60 * 1000 + 30000);
+
+        records = store.find(TARGET_ID, null, null, null, 0);
+
+        assertEquals(4, records.size());
+        assertEquals("8", records.get(3).getId());
+    }
+
+    @Test
+    public void testFind() throws Exception {
+        add("1", 30, 1000, Deployment.Status.SUCCESS);
+        add("2", 20, 1000, Deployment.Status.FAILURE);
+        add("3", 10, 1000, Deployment.Status.SUCCESS);
+
+        List<DeploymentRecord> records = store.find(TARGET_ID, Deployment.Status.SUCCESS, null, null, 0);
+
+        assertEquals(2, records.size());
+        assertEquals("3", records.get(0).getId());
+        assertEquals("1", records.get(1).getId());
+
+        records = store.find(TARGET_ID, null, now.minusMinutes(25), now.minusMinutes(10), 0);
+
+        assertEquals(1, records.size());
+        assertEquals("2", records.get(0).getId());
+
+        records = store.find(TARGET_ID, null, null, null, 2);
+
+        assertEquals(2, records.size());
+        assertEquals("3", records.get(0).getId());
+    }
+
+    @Test
+    public void testDurationStatistics() throws Exception {
+        store = createStore(100);
+
+        for (int i = 1; i <= 100; i++) {
+            add(Integer.toString(i), 100 - i, i * 10, i % 10 == 0 ? Deployment.Status.FAILURE : Deployment.Status.SUCCESS);
+        }
+
+        DeploymentDurationStatistics stats = store.getDurationStatistics(TARGET_ID, null, null, null, 50, 90, 99.9);
+
+        assertEquals(100, stats.getCount());
+        assertEquals(10, stats.getMin());
+        assertEquals(1000, stats.getMax());
+        assertEquals(505, stats.getAverage());
+        assertEquals(500, stats.getPercentiles().get("p50").longValue());
+        assertEquals(900, stats.getPercentiles().get("p90").longValue());
+        assertEquals(1000, stats.getPercentiles().get("p99.9").longValue());
+
+        stats = store.getDurationStatistics(TARGET_ID, Deployment.Status.FAILURE, null, null, 50);
+
+        assertEquals(10, stats.getCount());
+        assertEquals(100, stats.getMin());
+        assertEquals(500, stats.getPercentiles().get("p50").longValue());
+
+        stats = store.getDurationStatistics("nonexistent", null, null, null, 50);
+
+        assertEquals(0, stats.getCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidPercentile() throws Exception {
+        store.getDurationStatistics(TARGET_ID, null, null, null, 50, 101);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidMaxCount() throws Exception {
+        createStore(0);
+    }
+
+    private void add(String id, int minutesAgo, long duration, Deployment.Status status) throws Exception {
+        ZonedDateTime start = now.minusMinutes(minutesAgo);
+
+        store.getHistory(TARGET_ID).add(new DeploymentRecord(id, start, start, start.plusNanos(duration * 1000000), status, 0, 0,
+                                                             0));
+    }
+
+    private DeploymentHistoryStoreImpl createStore(int maxCount) {
+        DeploymentHistoryStoreImpl store = new DeploymentHistoryStoreImpl();
+        store.setStoreFolder(historyFolder);
+        store.setMaxCount(maxCount);
+
+        return store;
+    }
+
+}
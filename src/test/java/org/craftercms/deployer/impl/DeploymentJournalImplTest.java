@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) 2007-2017 Crafter Software Corporation.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.craftercms.deployer.impl;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link DeploymentJournalImpl}.
+ *
+ * @author avasquez
+ */
+public class DeploymentJournalImplTest {
+
+    private static final String TARGET_ID = "foobar-test";
+
+    private DeploymentJournalImpl journal;
+    private File journalFolder;
+
+    @Before
+    public void setUp() throws Exception {
+        journalFolder = Files.createTempDirectory("deployment-journal").toFile();
+        journal = createJournal();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        journal.close();
+
+        FileUtils.forceDelete(journalFolder);
+    }
+
+    @Test
+    public void testUnfinishedAfterRestart() throws Exception {
+        journal.enqueued(TARGET_ID, "1", Collections.singletonMap("reprocess_all_files", true));
+        journal.enqueued(TARGET_ID, "2", Collections.emptyMap());
+        journal.enqueued(TARGET_ID, "3", Collections.emptyMap());
+        journal.started(TARGET_ID, "1");
+        journal.finished(TARGET_ID, "1");
+        journal.started(TARGET_ID, "2");
+        journal.close();
+
+        // Simulate a record that was partially written when the process died
+        File journalFile = new File(journalFolder, TARGET_ID + ".journal");
+        FileUtils.write(journalFile, "{\"op\":\"finished\",\"i", StandardCharsets.UTF_8, true);
+
+        journal = createJournal();
+
+        List<DeploymentJournal.Entry> unfinished = journal.getUnfinished(TARGET_ID);
+
+        assertEquals(2, unfinished.size());
+        assertEquals("2", unfinished.get(0).getDeploymentId());
+        assertTrue(unfinished.get(0).isStarted());
+        assertEquals("3", unfinished.get(1).getDeploymentId());
+        assertFalse(unfinished.get(1).isStarted());
+
+        // The file is compacted on open
+        assertEquals(3, FileUtils.readLines(journalFile, StandardCharsets.UTF_8).size());
+    }
+
+    @Test
+    public void testCompaction() throws Exception {
+        journal.setCompactionThreshold(10);
+
+        for (int i = 0; i < 20; i++) {
+            journal.enqueued(TARGET_ID, Integer.toString(i), Collections.emptyMap());
+            journal.finished(TARGET_ID, Integer.toString(i));
+        }
+
+        journal.enqueued(TARGET_ID, "last", Collections.singletonMap("from_commit_id", "abc"));
+
+        File journalFile = new File(journalFolder, TARGET_ID + ".journal");
+
+        assertTrue(FileUtils.readLines(journalFile, StandardCharsets.UTF_8).size() < 10);
+
+        journal.close();
+        journal = createJournal();
+
+        List<DeploymentJournal.Entry> unfinished = journal.getUnfinished(TARGET_ID);
+
+        assertEquals(1, unfinished.size());
+        assertEquals("abc", unfinished.get(0).getParams().get("from_commit_id"));
+    }
+
+    @Test
+    public void testDelete() throws Exception {
+        journal.enqueued(TARGET_ID, "1", Collections.emptyMap());
+        journal.delete(TARGET_ID);
+
+        assertFalse(new File(journalFolder, TARGET_ID + ".journal").exists());
+        assertTrue(journal.getUnfinished(TARGET_ID).isEmpty());
+    }
+
+    @Test
+    public void testDisabled() throws Exception {
+        journal.setEnabled(false);
+        journal.enqueued(TARGET_ID, "1", Collections.emptyMap());
+
+        assertTrue(journal.getUnfinished(TARGET_ID).isEmpty());
+        assertFalse(new File(journalFolder, TARGET_ID + ".journal").exists());
+    }
+
+    private DeploymentJournalImpl createJournal() {
+        DeploymentJournalImpl journal = new DeploymentJournalImpl();
+        journal.setStoreFolder(journalFolder);
+        journal.setEnabled(true);
+        journal.setFsyncPolicy("always");
+
+        return journal;
+    }
+
+}
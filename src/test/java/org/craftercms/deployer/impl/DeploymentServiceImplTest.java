@@ -19,18 +19,27 @@ package org.craftercms.deployer.impl;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Executors;
 
+import org.craftercms.deployer.api.BulkDeployment;
 import org.craftercms.deployer.api.Deployment;
 import org.craftercms.deployer.api.Target;
 import org.craftercms.deployer.api.TargetService;
+import org.craftercms.deployer.api.exceptions.DeploymentNotFoundException;
+import org.craftercms.deployer.api.exceptions.InvalidPatternException;
+import org.craftercms.deployer.api.exceptions.InvalidPercentileException;
 import org.junit.Before;
 import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Matchers.anyBoolean;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -47,7 +56,8 @@ public class DeploymentServiceImplTest {
 
     @Before
     public void setUp() throws Exception {
-        deploymentService = new DeploymentServiceImpl(createTargetService());
+        deploymentService = new DeploymentServiceImpl(createTargetService(), 2, 0, Executors.newCachedThreadPool(),
+                                                      mock(DeploymentHistoryStore.class));
     }
 
     @Test
@@ -61,6 +71,41 @@ public class DeploymentServiceImplTest {
         verify(barfooTarget).deploy(eq(false), any());
     }
 
+    @Test
+    public void testDeployTargetsInParallel() throws Exception {
+        BulkDeployment bulkDeployment = deploymentService.deployTargets(null, "foo.*", true, 0, Collections.emptyMap());
+
+        assertFalse(bulkDeployment.isRunning());
+        assertEquals(1, bulkDeployment.getTargetsCount());
+        assertEquals(1, bulkDeployment.getSuccessfulCount());
+
+        verify(foobarTarget).deploy(eq(true), any());
+        verify(barfooTarget, never()).deploy(anyBoolean(), any());
+    }
+
+    @Test
+    public void testDeployTargetsInParallelWithFailingTarget() throws Exception {
+        when(barfooTarget.deploy(eq(true), any())).thenThrow(new IllegalStateException("Target closed"));
+
+        BulkDeployment bulkDeployment = deploymentService.deployTargets(null, null, true, 0, Collections.emptyMap());
+
+        assertFalse(bulkDeployment.isRunning());
+        assertEquals(2, bulkDeployment.getTargetsCount());
+        assertEquals(1, bulkDeployment.getSuccessfulCount());
+        assertEquals(1, bulkDeployment.getFailedCount());
+        assertEquals(0, bulkDeployment.getUnfinishedCount());
+    }
+
+    @Test(expected = InvalidPatternException.class)
+    public void testDeployTargetsWithInvalidPattern() throws Exception {
+        deploymentService.deployTargets("test", "foo(", true, 0, Collections.emptyMap());
+    }
+
+    @Test(expected = InvalidPercentileException.class)
+    public void testGetDeploymentDurationStatisticsWithInvalidPercentile() throws Exception {
+        deploymentService.getDeploymentDurationStatistics("test", "foobar", null, null, null, 50, -1);
+    }
+
     @Test
     public void testDeployTarget() throws Exception {
         Deployment deployment = deploymentService.deployTarget("test", "foobar", false, Collections.emptyMap());
@@ -70,12 +115,30 @@ public class DeploymentServiceImplTest {
         verify(foobarTarget).deploy(eq(false), any());
     }
 
+    @Test
+    public void testGetDeployment() throws Exception {
+        Deployment deployment = createFinishedDeployment(barfooTarget);
+        when(barfooTarget.getDeployment(deployment.getId())).thenReturn(deployment);
+
+        assertSame(deployment, deploymentService.getDeployment(deployment.getId()));
+    }
+
+    @Test(expected = DeploymentNotFoundException.class)
+    public void testGetNonExistingDeployment() throws Exception {
+        deploymentService.getDeployment("nonexistent");
+    }
+
     private TargetService createTargetService() throws Exception {
         foobarTarget = mock(Target.class);
         barfooTarget = mock(Target.class);
 
         when(foobarTarget.deploy(eq(false), any())).thenReturn(mock(Deployment.class));
         when(barfooTarget.deploy(eq(false), any())).thenReturn(mock(Deployment.class));
+        when(foobarTarget.deploy(eq(true), any())).thenReturn(createFinishedDeployment(foobarTarget));
+        when(foobarTarget.getEnv()).thenReturn("test");
+        when(foobarTarget.getSiteName()).thenReturn("foobar");
+        when(barfooTarget.getEnv()).thenReturn("test");
+        when(barfooTarget.getSiteName()).thenReturn("barfoo");
 
         TargetService targetService = mock(TargetService.class);
         when(targetService.getAllTargets()).thenReturn(Arrays.asList(foobarTarget, barfooTarget));
@@ -84,4 +147,12 @@ public class DeploymentServiceImplTest {
         return targetService;
     }
 
+    private Deployment createFinishedDeployment(Target target) {
+        Deployment deployment = new Deployment(target);
+        deployment.start();
+        deployment.end(Deployment.Status.SUCCESS);
+
+        return deployment;
+    }
+
 }
@@ -0,0 +1,153 @@
+/*
+ * Copyright (C) 2007-2017 Crafter Software Corporation.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.craftercms.deployer.impl;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.craftercms.deployer.api.Deployment;
+import org.craftercms.deployer.api.DeploymentPipeline;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.Constants;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Unit tests for {@link GitMaintenanceTask}.
+ *
+ * @author avasquez
+ */
+public class GitMaintenanceTaskTest {
+
+    private static final String TARGET_ID = "test-test";
+
+    private File repoFolder;
+    private DeploymentMetrics deploymentMetrics;
+    private ExecutorService deploymentTaskExecutor;
+
+    @Before
+    public void setUp() throws Exception {
+        repoFolder = Files.createTempDirectory("local-repo").toFile();
+        deploymentMetrics = new DeploymentMetrics();
+        deploymentTaskExecutor = Executors.newFixedThreadPool(2);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        deploymentTaskExecutor.shutdownNow();
+
+        FileUtils.deleteQuietly(repoFolder);
+    }
+
+    @Test
+    public void testRun() throws Exception {
+        createRepository();
+
+        new GitMaintenanceTask(TARGET_ID, repoFolder, false, deploymentMetrics).run();
+
+        assertEquals(1, deploymentMetrics.get(TARGET_ID, GitMaintenanceTask.RUNS_COUNTER_NAME));
+    }
+
+    @Test
+    public void testRunWithoutRepository() throws Exception {
+        new GitMaintenanceTask(TARGET_ID, repoFolder, false, deploymentMetrics).run();
+
+        assertEquals(0, deploymentMetrics.get(TARGET_ID, GitMaintenanceTask.RUNS_COUNTER_NAME));
+    }
+
+    @Test
+    public void testRunFailureIsLogged() throws Exception {
+        // A .git folder that's not a valid repository makes the gc fail
+        FileUtils.forceMkdir(new File(repoFolder, Constants.DOT_GIT));
+
+        new GitMaintenanceTask(TARGET_ID, repoFolder, false, deploymentMetrics).run();
+
+        assertEquals(0, deploymentMetrics.get(TARGET_ID, GitMaintenanceTask.RUNS_COUNTER_NAME));
+    }
+
+    @Test
+    public void testNotRunDuringDeployment() throws Exception {
+        createRepository();
+
+        CountDownLatch deploymentStarted = new CountDownLatch(1);
+        CountDownLatch deploymentReleased = new CountDownLatch(1);
+        DeploymentPipeline pipeline = mock(DeploymentPipeline.class);
+
+        doAnswer(invocation -> {
+            Deployment deployment = (Deployment) invocation.getArguments()[0];
+            deployment.start();
+
+            deploymentStarted.countDown();
+            deploymentReleased.await(5, TimeUnit.SECONDS);
+
+            // The maintenance task must not have run while the deployment holds the target
+            assertEquals(0, deploymentMetrics.get(TARGET_ID, GitMaintenanceTask.RUNS_COUNTER_NAME));
+
+            deployment.end(Deployment.Status.SUCCESS);
+
+            return null;
+        }).when(pipeline).execute(any(Deployment.class));
+
+        TargetImpl target = new TargetImpl("test", "test", pipeline, null, null, null, deploymentTaskExecutor);
+        GitMaintenanceTask maintenanceTask = new GitMaintenanceTask(TARGET_ID, repoFolder, false, deploymentMetrics);
+
+        Deployment deployment = target.deploy(new HashMap<>());
+
+        assertTrue(deploymentStarted.await(5, TimeUnit.SECONDS));
+
+        // Maintenance triggered while another run is still queued is skipped
+        target.queueMaintenance(maintenanceTask);
+        target.queueMaintenance(maintenanceTask);
+
+        Thread.sleep(500);
+
+        assertEquals(0, deploymentMetrics.get(TARGET_ID, GitMaintenanceTask.RUNS_COUNTER_NAME));
+
+        deploymentReleased.countDown();
+        deployment.getCompletionFuture().get(5, TimeUnit.SECONDS);
+
+        Thread.sleep(2000);
+
+        assertEquals(Deployment.Status.SUCCESS, deployment.getStatus());
+        assertEquals(1, deploymentMetrics.get(TARGET_ID, GitMaintenanceTask.RUNS_COUNTER_NAME));
+
+        target.close();
+    }
+
+    private void createRepository() throws Exception {
+        try (Git git = Git.init().setDirectory(repoFolder).call()) {
+            FileUtils.writeStringToFile(new File(repoFolder, "index.xml"), "<page/>", "UTF-8");
+
+            git.add().addFilepattern(".").call();
+            git.commit().setMessage("Initial commit").call();
+        }
+    }
+
+}
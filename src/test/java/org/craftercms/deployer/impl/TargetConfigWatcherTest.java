@@ -0,0 +1,73 @@
+/*
+ * Copyright (C) 2007-2017 Crafter Software Corporation.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.craftercms.deployer.impl;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import org.apache.commons.io.FileUtils;
+import org.craftercms.deployer.api.TargetService;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Unit tests for {@link TargetConfigWatcher}.
+ *
+ * @author avasquez
+ */
+public class TargetConfigWatcherTest {
+
+    private File targetsFolder;
+    private TargetService targetService;
+    private TargetConfigWatcher watcher;
+
+    @Before
+    public void setUp() throws Exception {
+        targetsFolder = Files.createTempDirectory("targets").toFile();
+        targetService = mock(TargetService.class);
+        watcher = new TargetConfigWatcher(targetsFolder, true, 200, targetService, Runnable::run);
+        watcher.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        watcher.stop();
+
+        FileUtils.forceDelete(targetsFolder);
+    }
+
+    @Test
+    public void testConfigFileChanges() throws Exception {
+        File configFile = new File(targetsFolder, "foobar-test.yaml");
+
+        // Several writes in a row should cause a single resolve
+        FileUtils.writeStringToFile(configFile, "target:\n", "UTF-8");
+        FileUtils.writeStringToFile(configFile, "target:\n  env: test\n", "UTF-8");
+
+        verify(targetService, timeout(15000)).resolveTarget(configFile);
+
+        FileUtils.writeStringToFile(new File(targetsFolder, "foobar-test-context.xml"), "<beans/>", "UTF-8");
+
+        verify(targetService, timeout(15000).times(2)).resolveTarget(configFile);
+    }
+
+}
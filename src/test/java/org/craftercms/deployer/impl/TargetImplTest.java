@@ -16,18 +16,38 @@
  */
 package org.craftercms.deployer.impl;
 
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
+import org.apache.commons.io.FileUtils;
+import org.craftercms.deployer.api.ChangeSet;
 import org.craftercms.deployer.api.Deployment;
 import org.craftercms.deployer.api.DeploymentPipeline;
+import org.craftercms.deployer.utils.BooleanUtils;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 
 /**
  * Unit tests for {@link TargetImpl}.
@@ -40,12 +60,20 @@ public class TargetImplTest {
     private static final String TEST_SITE_NAME = "test";
 
     private volatile int count;
+    private ExecutorService deploymentTaskExecutor;
     private TargetImpl target;
 
     @Before
     public void setUp() throws Exception {
         count = 0;
-        target = new TargetImpl(TEST_ENV, TEST_SITE_NAME, createDeploymentPipeline(), null, null, null);
+        // More than one thread, to check that deployments of the same target are still run one at a time
+        deploymentTaskExecutor = Executors.newFixedThreadPool(3);
+        target = new TargetImpl(TEST_ENV, TEST_SITE_NAME, createDeploymentPipeline(), null, null, null, deploymentTaskExecutor);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        deploymentTaskExecutor.shutdownNow();
     }
 
     @Test
@@ -67,6 +95,279 @@ public class TargetImplTest {
         assertEquals(3, count);
     }
 
+    @Test
+    public void testDeployWithCoalescing() throws Exception {
+        target.setCoalesceDeployments(true);
+
+        Deployment dep1 = target.deploy(false, new HashMap<>());
+
+        Thread.sleep(500);
+
+        // dep1 should be running by now, so the rest should be merged into a single pending deployment
+        Deployment dep2 = target.deploy(false, new HashMap<>());
+        Deployment dep3 = target.deploy(false, Collections.singletonMap(DeploymentConstants.REPROCESS_ALL_FILES_PARAM_NAME, true));
+        Deployment dep4 = target.deploy(false, Collections.singletonMap(DeploymentConstants.REPROCESS_ALL_FILES_PARAM_NAME, false));
+
+        assertSame(dep2, dep3);
+        assertSame(dep2, dep4);
+        assertEquals(2, target.getAllDeployments().size());
+        assertTrue(BooleanUtils.toBoolean(dep2.getParam(DeploymentConstants.REPROCESS_ALL_FILES_PARAM_NAME)));
+
+        Thread.sleep(5000);
+
+        assertEquals(Deployment.Status.SUCCESS, dep1.getStatus());
+        assertEquals(Deployment.Status.SUCCESS, dep2.getStatus());
+        assertEquals(2, count);
+    }
+
+    @Test
+    public void testDeployHandle() throws Exception {
+        List<Deployment> progress = new CopyOnWriteArrayList<>();
+
+        Deployment deployment = target.deploy(new HashMap<>());
+        deployment.addProgressListener(progress::add, Runnable::run);
+
+        assertSame(deployment, target.getDeployment(deployment.getId()));
+        assertSame(deployment, deployment.getCompletionFuture().get(5, TimeUnit.SECONDS));
+        assertEquals(Deployment.Status.SUCCESS, deployment.getStatus());
+        assertFalse(progress.isEmpty());
+        // Finished deployments can still be found by ID
+        assertSame(deployment, target.getDeployment(deployment.getId()));
+        assertNull(target.getDeployment("nonexistent"));
+    }
+
+    @Test
+    public void testFinishedDeploymentsRetention() throws Exception {
+        target.setMaxFinishedDeployments(2);
+
+        Deployment dep1 = target.deploy(false, new HashMap<>());
+        Deployment dep2 = target.deploy(false, new HashMap<>());
+        Deployment dep3 = target.deploy(false, new HashMap<>());
+
+        dep1.setChangeSet(new ChangeSet());
+        dep2.setChangeSet(new ChangeSet());
+        dep3.setChangeSet(new ChangeSet());
+
+        dep3.getCompletionFuture().get(10, TimeUnit.SECONDS);
+
+        // Only the last 2 are kept, and only the most recent one with its change set
+        assertNull(target.getDeployment(dep1.getId()));
+        assertSame(dep2, target.getDeployment(dep2.getId()));
+        assertNull(dep2.getChangeSet());
+        assertSame(dep3, target.getDeployment(dep3.getId()));
+        assertNotNull(dep3.getChangeSet());
+    }
+
+    @Test
+    public void testScheduledDeploymentBackoff() throws Exception {
+        target.setScheduledDeploymentBackoff(2, 4);
+
+        TargetImpl.ScheduledDeploymentTask task = target.new ScheduledDeploymentTask();
+
+        // Below the threshold no run is skipped
+        target.consecutiveNoChangeDeployments = 1;
+
+        assertFalse(task.shouldBackOff());
+
+        // At the threshold 1 run is skipped, then 2, 4, and never more than the max
+        target.consecutiveNoChangeDeployments = 2;
+
+        assertSkippedRuns(task, 1);
+
+        target.consecutiveNoChangeDeployments = 3;
+
+        assertSkippedRuns(task, 2);
+
+        target.consecutiveNoChangeDeployments = 4;
+
+        assertSkippedRuns(task, 4);
+
+        target.consecutiveNoChangeDeployments = 10;
+
+        assertSkippedRuns(task, 4);
+    }
+
+    @Test
+    public void testScheduledDeploymentBackoffReset() throws Exception {
+        DeploymentPipeline pipeline = mock(DeploymentPipeline.class);
+        doAnswer(invocationOnMock -> {
+            Deployment deployment = (Deployment)invocationOnMock.getArguments()[0];
+            deployment.start();
+
+            if (deployment.getParam("changes") != null) {
+                deployment.setChangeSet(new ChangeSet(Collections.singletonList("/site/foo.xml"), Collections.emptyList(),
+                                                      Collections.emptyList()));
+            }
+
+            deployment.end(Deployment.Status.SUCCESS);
+
+            return null;
+        }).when(pipeline).execute(any(Deployment.class));
+
+        target = new TargetImpl(TEST_ENV, TEST_SITE_NAME, pipeline, null, null, null, deploymentTaskExecutor);
+        target.setScheduledDeploymentBackoff(1, 4);
+
+        TargetImpl.ScheduledDeploymentTask task = target.new ScheduledDeploymentTask();
+
+        target.deploy(true, new HashMap<>());
+        target.deploy(true, new HashMap<>());
+
+        assertEquals(2, target.consecutiveNoChangeDeployments);
+        assertTrue(task.shouldBackOff());
+
+        target.deploy(true, Collections.singletonMap("changes", true));
+
+        // A deployment with changes resets the backoff
+        assertEquals(0, target.consecutiveNoChangeDeployments);
+        assertFalse(task.shouldBackOff());
+    }
+
+    @Test
+    public void testScheduledDeploymentsLimiter() throws Exception {
+        CountDownLatch latch = new CountDownLatch(1);
+        DeploymentPipeline pipeline = mock(DeploymentPipeline.class);
+        doAnswer(invocationOnMock -> {
+            Deployment deployment = (Deployment)invocationOnMock.getArguments()[0];
+            deployment.start();
+
+            latch.await(5, TimeUnit.SECONDS);
+
+            throw new IllegalStateException("Deployment failed");
+        }).when(pipeline).execute(any(Deployment.class));
+
+        Semaphore limiter = new Semaphore(1);
+        TargetImpl target1 = new TargetImpl(TEST_ENV, "site1", pipeline, null, null, null, deploymentTaskExecutor);
+        TargetImpl target2 = new TargetImpl(TEST_ENV, "site2", pipeline, null, null, null, deploymentTaskExecutor);
+        target1.setScheduledDeploymentsLimiter(limiter);
+        target2.setScheduledDeploymentsLimiter(limiter);
+
+        TargetImpl.ScheduledDeploymentTask task1 = target1.new ScheduledDeploymentTask();
+        TargetImpl.ScheduledDeploymentTask task2 = target2.new ScheduledDeploymentTask();
+
+        task1.run();
+        task2.run();
+
+        // The only permit is taken by target1, so the scheduled run of target2 is skipped
+        assertNotNull(task1.future);
+        assertNull(task2.future);
+        assertEquals(0, limiter.availablePermits());
+
+        latch.countDown();
+
+        // The permit is released even if the deployment fails
+        long timeout = System.currentTimeMillis() + 5000;
+        while (limiter.availablePermits() == 0 && System.currentTimeMillis() < timeout) {
+            Thread.sleep(100);
+        }
+
+        assertEquals(1, limiter.availablePermits());
+
+        task2.run();
+
+        assertNotNull(task2.future);
+    }
+
+    @Test
+    public void testReloadDuringDeployment() throws Exception {
+        DeploymentPipeline oldPipeline = target.deploymentPipeline;
+        DeploymentPipeline newPipeline = createDeploymentPipeline();
+
+        Deployment dep1 = target.deploy(false, new HashMap<>());
+
+        Thread.sleep(500);
+
+        Deployment dep2 = target.deploy(false, new HashMap<>());
+
+        // dep1 is running, so the swap should wait till it finishes, and dep2 should run with the new pipeline
+        target.reload(newPipeline, null, null, "digest");
+
+        assertSame(oldPipeline, target.deploymentPipeline);
+
+        dep2.getCompletionFuture().get(10, TimeUnit.SECONDS);
+
+        assertEquals(Deployment.Status.SUCCESS, dep1.getStatus());
+        assertEquals(Deployment.Status.SUCCESS, dep2.getStatus());
+        assertSame(newPipeline, target.deploymentPipeline);
+        assertEquals("digest", target.getConfigurationDigest());
+
+        verify(oldPipeline).execute(dep1);
+        verify(oldPipeline).destroy();
+        verify(newPipeline).execute(dep2);
+    }
+
+    @Test
+    public void testReloadRequestedBeforePipelineUnlock() throws Exception {
+        DeploymentPipeline newPipeline = createDeploymentPipeline();
+        ExecutorService deploymentThread = Executors.newSingleThreadExecutor();
+
+        try {
+            // Like a deployment that has already checked for pending reloads but hasn't released the lock yet
+            deploymentThread.submit(() -> target.pipelineLock.lock()).get();
+
+            target.reload(newPipeline, null, null, "digest");
+
+            assertNotSame(newPipeline, target.deploymentPipeline);
+
+            deploymentThread.submit(() -> {
+                target.pipelineLock.unlock();
+                target.tryApplyPendingReload();
+            }).get();
+
+            assertSame(newPipeline, target.deploymentPipeline);
+        } finally {
+            deploymentThread.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testReplayUnfinishedDeployments() throws Exception {
+        File journalFolder = Files.createTempDirectory("deployment-journal").toFile();
+        try {
+            DeploymentJournalImpl journal = new DeploymentJournalImpl();
+            journal.setStoreFolder(journalFolder);
+            journal.setEnabled(true);
+
+            target.setDeploymentJournal(journal);
+
+            target.deploy(false, new HashMap<>());
+            target.deploy(false, Collections.singletonMap(DeploymentConstants.REPROCESS_ALL_FILES_PARAM_NAME, true));
+
+            Thread.sleep(500);
+
+            // The first deployment is interrupted and the second one never starts
+            target.close();
+
+            assertEquals(2, journal.getUnfinished(target.getId()).size());
+
+            TargetImpl newTarget = new TargetImpl(TEST_ENV, TEST_SITE_NAME, createDeploymentPipeline(), null, null, null,
+                                                  deploymentTaskExecutor);
+            newTarget.setDeploymentJournal(journal);
+
+            List<Deployment> deployments = newTarget.replayUnfinishedDeployments();
+
+            assertEquals(2, deployments.size());
+            assertTrue(BooleanUtils.toBoolean(deployments.get(1).getParam(DeploymentConstants.REPROCESS_ALL_FILES_PARAM_NAME)));
+
+            deployments.get(1).getCompletionFuture().get(10, TimeUnit.SECONDS);
+
+            assertEquals(Deployment.Status.SUCCESS, deployments.get(0).getStatus());
+            assertEquals(Deployment.Status.SUCCESS, deployments.get(1).getStatus());
+            assertTrue(journal.getUnfinished(target.getId()).isEmpty());
+
+            journal.close();
+        } finally {
+            FileUtils.forceDelete(journalFolder);
+        }
+    }
+
+    private void assertSkippedRuns(TargetImpl.ScheduledDeploymentTask task, int skippedRuns) {
+        for (int i = 0; i < skippedRuns; i++) {
+            assertTrue(task.shouldBackOff());
+        }
+
+        assertFalse(task.shouldBackOff());
+    }
+
     private DeploymentPipeline createDeploymentPipeline() {
         DeploymentPipeline pipeline = mock(DeploymentPipeline.class);
         doAnswer(invocationOnMock -> {
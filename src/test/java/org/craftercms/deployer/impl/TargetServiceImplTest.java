@@ -22,15 +22,22 @@ import com.github.jknack.handlebars.springmvc.SpringTemplateLoader;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.RandomStringUtils;
 import org.craftercms.deployer.api.DeploymentPipeline;
 import org.craftercms.deployer.api.Target;
 import org.craftercms.deployer.api.exceptions.DeployerException;
+import org.craftercms.deployer.api.exceptions.TargetServiceException;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -42,9 +49,15 @@ import org.springframework.scheduling.TaskScheduler;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.anyString;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -56,10 +69,16 @@ public class TargetServiceImplTest {
 
     private TargetServiceImpl targetService;
     private File targetsFolder;
+    private ExecutorService targetLoadingExecutor;
+    private TargetLoadingMetrics targetLoadingMetrics;
+    private DeploymentPipelineFactory deploymentPipelineFactory;
 
     @Before
     public void setUp() throws Exception {
         targetsFolder = createTargetsFolder();
+        targetLoadingExecutor = Executors.newFixedThreadPool(2);
+        targetLoadingMetrics = new TargetLoadingMetrics();
+        deploymentPipelineFactory = createDeploymentPipelineFactory();
 
         targetService = new TargetServiceImpl(
             targetsFolder,
@@ -68,15 +87,24 @@ public class TargetServiceImplTest {
             new ClassPathResource("test-base-target-context.xml"),
             new ClassPathResource("test-base-target-context-override.xml"),
             "test",
+            0,
             createHandlebars(),
             new ClassPathXmlApplicationContext("test-application-context.xml"),
-            createDeploymentPipelineFactory(),
+            deploymentPipelineFactory,
             createTaskScheduler(),
-            createProcessedCommitsStore());
+            createDeploymentTaskExecutor(),
+            createProcessedCommitsStore(),
+            new DeploymentMetrics(),
+            2,
+            targetLoadingExecutor,
+            targetLoadingMetrics,
+            mock(DeploymentJournal.class),
+            mock(DeploymentHistoryStore.class));
     }
 
     @After
     public void tearDown() throws Exception {
+        targetLoadingExecutor.shutdownNow();
         FileUtils.forceDelete(targetsFolder);
     }
 
@@ -93,6 +121,25 @@ public class TargetServiceImplTest {
         assertEquals("foobar-test", target.getId());
     }
 
+    @Test
+    public void testResolveTargetsInParallel() throws Exception {
+        for (int i = 0; i < 4; i++) {
+            String config = FileUtils.readFileToString(new File(targetsFolder, "foobar-test.yaml"), "UTF-8");
+
+            FileUtils.writeStringToFile(new File(targetsFolder, "site" + i + "-test.yaml"),
+                                        config.replace("siteName: foobar", "siteName: site" + i), "UTF-8");
+        }
+
+        List<Target> targets = targetService.resolveTargets();
+
+        assertEquals(5, targets.size());
+        assertEquals(5, targetLoadingMetrics.getLoads().size());
+
+        for (TargetLoadingMetrics.TargetLoad load : targetLoadingMetrics.getLoads()) {
+            assertEquals(TargetLoadingMetrics.Status.READY, load.getStatus());
+        }
+    }
+
     @Test
     public void testResolveTargetsNoConfigModified() throws Exception {
         List<Target> targets = targetService.resolveTargets();
@@ -119,10 +166,39 @@ public class TargetServiceImplTest {
         assertEquals(1, targets.size());
 
         Target target1 = targets.get(0);
+        ZonedDateTime loadDate1 = target1.getLoadDate();
+        String configDigest1 = target1.getConfigurationDigest();
+
+        Thread.sleep(1000);
+
+        FileUtils.writeStringToFile(new File(targetsFolder, "foobar-test.yaml"), "# Modified\n", "UTF-8", true);
+
+        targets = targetService.resolveTargets();
+
+        assertEquals(1, targets.size());
+
+        Target target2 = targets.get(0);
+
+        // The target is reloaded in place
+        assertSame(target1, target2);
+        assertNotEquals(loadDate1, target2.getLoadDate());
+        assertNotEquals(configDigest1, target2.getConfigurationDigest());
+    }
+
+    @Test
+    public void testResolveTargetsOnlyTouched() throws Exception {
+        List<Target> targets = targetService.resolveTargets();
+
+        assertEquals(1, targets.size());
+
+        Target target1 = targets.get(0);
+
+        assertNotNull(target1.getConfigurationDigest());
 
         Thread.sleep(1000);
 
         FileUtils.touch(new File(targetsFolder, "foobar-test.yaml"));
+        FileUtils.touch(new File(targetsFolder, "foobar-test-context.xml"));
 
         targets = targetService.resolveTargets();
 
@@ -130,7 +206,8 @@ public class TargetServiceImplTest {
 
         Target target2 = targets.get(0);
 
-        assertNotEquals(target1.getLoadDate(), target2.getLoadDate());
+        assertSame(target1, target2);
+        assertEquals(target1.getConfigurationDigest(), target2.getConfigurationDigest());
     }
 
     @Test
@@ -140,10 +217,12 @@ public class TargetServiceImplTest {
         assertEquals(1, targets.size());
 
         Target target1 = targets.get(0);
+        ZonedDateTime loadDate1 = target1.getLoadDate();
+        String configDigest1 = target1.getConfigurationDigest();
 
         Thread.sleep(1000);
 
-        FileUtils.touch(new File(targetsFolder, "foobar-test-context.xml"));
+        FileUtils.writeStringToFile(new File(targetsFolder, "foobar-test-context.xml"), "<!-- Modified -->\n", "UTF-8", true);
 
         targets = targetService.resolveTargets();
 
@@ -151,7 +230,66 @@ public class TargetServiceImplTest {
 
         Target target2 = targets.get(0);
 
-        assertNotEquals(target1.getLoadDate(), target2.getLoadDate());
+        // The target is reloaded in place
+        assertSame(target1, target2);
+        assertNotEquals(loadDate1, target2.getLoadDate());
+        assertNotEquals(configDigest1, target2.getConfigurationDigest());
+    }
+
+    @Test
+    public void testResolveTargetsWithPendingReload() throws Exception {
+        TargetImpl target = (TargetImpl) targetService.resolveTargets().get(0);
+        ExecutorService deploymentThread = Executors.newSingleThreadExecutor();
+
+        try {
+            // Like a long deployment that's running, so reloads have to wait till it finishes
+            deploymentThread.submit(() -> target.pipelineLock.lock()).get();
+
+            FileUtils.writeStringToFile(new File(targetsFolder, "foobar-test.yaml"), "# Modified\n", "UTF-8", true);
+
+            targetService.resolveTargets();
+
+            String pendingDigest = target.getPendingConfigurationDigest();
+
+            assertNotNull(pendingDigest);
+            assertNotEquals(pendingDigest, target.getConfigurationDigest());
+
+            // The pending reload already has the changes, so they shouldn't be loaded again
+            targetService.resolveTargets();
+
+            assertEquals(pendingDigest, target.getPendingConfigurationDigest());
+            verify(deploymentPipelineFactory, times(2)).getPipeline(any(), any(), anyString());
+
+            deploymentThread.submit(() -> {
+                target.pipelineLock.unlock();
+                target.tryApplyPendingReload();
+            }).get();
+
+            assertNull(target.getPendingConfigurationDigest());
+            assertEquals(pendingDigest, target.getConfigurationDigest());
+        } finally {
+            deploymentThread.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testResolveTargetWithDuplicateId() throws Exception {
+        Target target = targetService.resolveTargets().get(0);
+        File configFile = new File(targetsFolder, "foobar-test.yaml");
+        File duplicateConfigFile = new File(targetsFolder, "foobar-test-copy.yaml");
+
+        FileUtils.copyFile(configFile, duplicateConfigFile);
+
+        try {
+            targetService.resolveTarget(duplicateConfigFile);
+            fail("Expected " + TargetServiceException.class.getSimpleName());
+        } catch (TargetServiceException e) {
+            // Expected
+        }
+
+        // The target of the original config file is still loaded
+        assertSame(target, targetService.getTarget("test", "foobar"));
+        assertEquals(configFile, target.getConfigurationFile());
     }
 
     @Test
@@ -202,11 +340,51 @@ public class TargetServiceImplTest {
 
         targetService.deleteTarget("test", "foobar");
 
+        // The lock of the deleted target's config file is not kept
+        assertTrue(targetService.targetLocks.isEmpty());
+
         targets = targetService.resolveTargets();
 
         assertEquals(0, targets.size());
     }
 
+    @Test
+    public void testResolveTargetWithDeletedConfigFile() throws Exception {
+        Target target = targetService.resolveTargets().get(0);
+        File configFile = target.getConfigurationFile();
+
+        FileUtils.forceDelete(configFile);
+
+        assertNull(targetService.resolveTarget(configFile));
+        assertTrue(targetService.getAllTargets().isEmpty());
+        // The lock of the deleted config file is not kept
+        assertTrue(targetService.targetLocks.isEmpty());
+    }
+
+    @Test
+    public void testCreateTargetsConcurrently() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<Target>> futures = new ArrayList<>();
+
+        try {
+            for (int i = 0; i < 4; i++) {
+                String siteName = "site" + i;
+                futures.add(executor.submit(() -> targetService.createTarget("test", siteName, true, "test",
+                                                                             Collections.emptyMap())));
+            }
+
+            for (Future<Target> future : futures) {
+                Target target = future.get();
+
+                assertSame(target, targetService.getTarget(target.getEnv(), target.getSiteName()));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(4, targetService.getAllTargets().size());
+    }
+
     private File createTargetsFolder() throws IOException {
         File tempTargetsFolder = Files.createTempDirectory("targets").toFile();
         File classpathTargetsFolder = new ClassPathResource("targets").getFile();
@@ -227,6 +405,10 @@ public class TargetServiceImplTest {
         return mock(TaskScheduler.class);
     }
 
+    private Executor createDeploymentTaskExecutor() {
+        return mock(Executor.class);
+    }
+
     private ProcessedCommitsStore createProcessedCommitsStore() {
         return mock(ProcessedCommitsStore.class);
     }
@@ -0,0 +1,179 @@
+/*
+ * Copyright (C) 2007-2017 Crafter Software Corporation.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.craftercms.deployer.impl.processors;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.apache.commons.configuration2.BaseConfiguration;
+import org.apache.commons.io.FileUtils;
+import org.craftercms.deployer.api.ChangeSet;
+import org.craftercms.deployer.api.Deployment;
+import org.craftercms.deployer.api.ProcessorExecution;
+import org.craftercms.deployer.api.Target;
+import org.craftercms.deployer.impl.ProcessedCommitsStoreImpl;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.ObjectId;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Unit tests for {@link GitDiffProcessor}, against a local repo.
+ *
+ * @author avasquez
+ */
+public class GitDiffProcessorTest {
+
+    private static final String TARGET_ID = "test-test";
+    private static final ObjectId MISSING_COMMIT_ID = ObjectId.fromString("ca33348b3f4a3dc6ed05acd25e349a30dfbe7108");
+
+    private File repoFolder;
+    private File processedCommitsFolder;
+    private Git git;
+    private ProcessedCommitsStoreImpl processedCommitsStore;
+    private GitDiffProcessor processor;
+
+    @Before
+    public void setUp() throws Exception {
+        repoFolder = Files.createTempDirectory("local-repo").toFile();
+        processedCommitsFolder = Files.createTempDirectory("processed-commits").toFile();
+        git = Git.init().setDirectory(repoFolder).call();
+
+        processedCommitsStore = new ProcessedCommitsStoreImpl();
+        processedCommitsStore.setStoreFolder(processedCommitsFolder);
+
+        processor = new GitDiffProcessor();
+        processor.setBeanName("gitDiffProcessor");
+        processor.setEnv("test");
+        processor.setSiteName("test");
+        processor.setTargetId(TARGET_ID);
+        processor.setLocalRepoFolder(repoFolder);
+        processor.setProcessedCommitsStore(processedCommitsStore);
+        processor.init(new BaseConfiguration());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        git.close();
+
+        FileUtils.deleteQuietly(repoFolder);
+        FileUtils.deleteQuietly(processedCommitsFolder);
+    }
+
+    @Test
+    public void testChangeSetClassification() throws Exception {
+        writeFile("site/website/index.xml", "<page/>");
+        writeFile("site/website/about/index.xml", "<page/>");
+        writeFile("site/website/old/index.xml", "<page/>");
+        writeFile("static-assets/css/main.css", "body {}");
+
+        commit("Initial commit");
+
+        // No processed commit yet, so all files are created
+        Deployment deployment = createDeployment();
+
+        processor.execute(deployment);
+
+        assertEquals(4, deployment.getChangeSet().getCreatedFiles().size());
+        assertTrue(deployment.getChangeSet().getUpdatedFiles().isEmpty());
+        assertTrue(deployment.getChangeSet().getDeletedFiles().isEmpty());
+
+        writeFile("site/website/index.xml", "<page><title>Home</title></page>");
+        writeFile("site/website/news/index.xml", "<page/>");
+        FileUtils.forceDelete(new File(repoFolder, "site/website/old/index.xml"));
+        // Renames are reported as the old path deleted and the new path created
+        FileUtils.moveFile(new File(repoFolder, "static-assets/css/main.css"), new File(repoFolder, "static-assets/css/site.css"));
+
+        ObjectId headCommitId = commit("Second commit");
+
+        deployment = createDeployment();
+
+        processor.execute(deployment);
+
+        ChangeSet changeSet = deployment.getChangeSet();
+
+        assertEquals(Arrays.asList("/site/website/news/index.xml", "/static-assets/css/site.css"), changeSet.getCreatedFiles());
+        assertEquals(Collections.singletonList("/site/website/index.xml"), changeSet.getUpdatedFiles());
+        assertEquals(Arrays.asList("/site/website/old/index.xml", "/static-assets/css/main.css"), changeSet.getDeletedFiles());
+        assertEquals("Changes detected and resolved successfully", getExecution(deployment).getStatusDetails());
+        assertEquals(headCommitId, processedCommitsStore.load(TARGET_ID));
+
+        // Nothing changed since the last processed commit
+        deployment = createDeployment();
+
+        processor.execute(deployment);
+
+        assertNull(deployment.getChangeSet());
+        assertEquals("No changes detected", getExecution(deployment).getStatusDetails());
+    }
+
+    @Test
+    public void testMissingProcessedCommit() throws Exception {
+        writeFile("site/website/index.xml", "<page/>");
+        writeFile("static-assets/css/main.css", "body {}");
+
+        ObjectId headCommitId = commit("Initial commit");
+
+        // Like after the repo is re-cloned, or the remote history is rewritten
+        processedCommitsStore.store(TARGET_ID, MISSING_COMMIT_ID);
+
+        Deployment deployment = createDeployment();
+
+        processor.execute(deployment);
+
+        ChangeSet changeSet = deployment.getChangeSet();
+
+        assertNotNull(changeSet);
+        assertEquals(Arrays.asList("/site/website/index.xml", "/static-assets/css/main.css"), changeSet.getCreatedFiles());
+        assertTrue(changeSet.getUpdatedFiles().isEmpty());
+        assertTrue(changeSet.getDeletedFiles().isEmpty());
+        assertEquals(Deployment.Status.SUCCESS, getExecution(deployment).getStatus());
+        assertEquals("Processed commit not found in local repo. All files reprocessed", getExecution(deployment).getStatusDetails());
+        assertEquals(headCommitId, processedCommitsStore.load(TARGET_ID));
+    }
+
+    private void writeFile(String path, String content) throws Exception {
+        FileUtils.writeStringToFile(new File(repoFolder, path), content, "UTF-8");
+    }
+
+    private ObjectId commit(String message) throws Exception {
+        git.add().addFilepattern(".").call();
+
+        return git.commit().setAll(true).setMessage(message).call().getId();
+    }
+
+    private Deployment createDeployment() {
+        Deployment deployment = new Deployment(mock(Target.class));
+        deployment.start();
+
+        return deployment;
+    }
+
+    private ProcessorExecution getExecution(Deployment deployment) {
+        return deployment.getProcessorExecutions().get(0);
+    }
+
+}
@@ -0,0 +1,260 @@
+/*
+ * Copyright (C) 2007-2017 Crafter Software Corporation.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.craftercms.deployer.impl.processors;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import org.apache.commons.configuration2.BaseConfiguration;
+import org.apache.commons.io.FileUtils;
+import org.craftercms.deployer.api.Deployment;
+import org.craftercms.deployer.api.ProcessorExecution;
+import org.craftercms.deployer.api.Target;
+import org.craftercms.deployer.impl.DeploymentMetrics;
+import org.craftercms.deployer.impl.ProcessedCommitsStore;
+import org.craftercms.deployer.utils.GitUtils;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.api.errors.TransportException;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.transport.RefSpec;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link GitPullProcessor}, against a local bare repo.
+ *
+ * @author avasquez
+ */
+public class GitPullProcessorTest {
+
+    private static final String TARGET_ID = "test-test";
+
+    private File remoteRepoFolder;
+    private File workRepoFolder;
+    private File localRepoFolder;
+    private Git workGit;
+    private DeploymentMetrics deploymentMetrics;
+    private ProcessedCommitsStore processedCommitsStore;
+
+    @Before
+    public void setUp() throws Exception {
+        remoteRepoFolder = Files.createTempDirectory("remote-repo").toFile();
+        workRepoFolder = Files.createTempDirectory("work-repo").toFile();
+        localRepoFolder = new File(Files.createTempDirectory("local-repo").toFile(), "sandbox");
+
+        Git.init().setBare(true).setDirectory(remoteRepoFolder).call().close();
+
+        workGit = Git.init().setDirectory(workRepoFolder).call();
+
+        deploymentMetrics = new DeploymentMetrics();
+        processedCommitsStore = mock(ProcessedCommitsStore.class);
+
+        pushCommit("index.xml", "v1");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        workGit.close();
+
+        FileUtils.deleteQuietly(remoteRepoFolder);
+        FileUtils.deleteQuietly(workRepoFolder);
+        FileUtils.deleteQuietly(localRepoFolder.getParentFile());
+    }
+
+    @Test
+    public void testPullSkippedWhenUpToDate() throws Exception {
+        GitPullProcessor processor = createProcessor();
+
+        cloneAndMarkProcessed(processor);
+
+        Deployment deployment = createDeployment();
+
+        processor.execute(deployment);
+
+        // The processor ends the deployment so that the rest of the pipeline doesn't run
+        assertFalse(deployment.isRunning());
+        assertEquals(Deployment.Status.SUCCESS, deployment.getStatus());
+        assertEquals(Deployment.Status.SUCCESS, getExecution(deployment).getStatus());
+        assertEquals(1, deploymentMetrics.get(TARGET_ID, GitPullProcessor.SKIPPED_PULLS_COUNTER_NAME));
+        assertEquals(0, deploymentMetrics.get(TARGET_ID, GitPullProcessor.EXECUTED_PULLS_COUNTER_NAME));
+    }
+
+    @Test
+    public void testPullExecutedWhenRemoteChanged() throws Exception {
+        GitPullProcessor processor = createProcessor();
+
+        cloneAndMarkProcessed(processor);
+
+        ObjectId newCommitId = pushCommit("index.xml", "v2");
+        Deployment deployment = createDeployment();
+
+        processor.execute(deployment);
+
+        assertTrue(deployment.isRunning());
+        assertEquals(Deployment.Status.SUCCESS, getExecution(deployment).getStatus());
+        assertEquals(newCommitId, getLocalHead());
+        assertEquals(0, deploymentMetrics.get(TARGET_ID, GitPullProcessor.SKIPPED_PULLS_COUNTER_NAME));
+        assertEquals(1, deploymentMetrics.get(TARGET_ID, GitPullProcessor.EXECUTED_PULLS_COUNTER_NAME));
+    }
+
+    @Test
+    public void testPullExecutedWhenProbeFails() throws Exception {
+        GitPullProcessor processor = new GitPullProcessor() {
+
+            @Override
+            protected ObjectId lsRemote(Git git, String refName) throws GitAPIException {
+                throw new TransportException("Probe failed");
+            }
+
+        };
+
+        initProcessor(processor);
+        cloneAndMarkProcessed(processor);
+
+        ObjectId newCommitId = pushCommit("index.xml", "v2");
+        Deployment deployment = createDeployment();
+
+        processor.execute(deployment);
+
+        assertTrue(deployment.isRunning());
+        assertEquals(Deployment.Status.SUCCESS, getExecution(deployment).getStatus());
+        assertEquals(newCommitId, getLocalHead());
+        assertEquals(0, deploymentMetrics.get(TARGET_ID, GitPullProcessor.SKIPPED_PULLS_COUNTER_NAME));
+        assertEquals(1, deploymentMetrics.get(TARGET_ID, GitPullProcessor.EXECUTED_PULLS_COUNTER_NAME));
+    }
+
+    @Test
+    public void testSingleBranchClone() throws Exception {
+        workGit.branchCreate().setName("other").call();
+        workGit.push()
+               .setRemote(remoteRepoFolder.getAbsolutePath())
+               .setRefSpecs(new RefSpec(Constants.R_HEADS + "other:" + Constants.R_HEADS + "other"))
+               .call();
+
+        BaseConfiguration config = createConfiguration();
+        config.setProperty(GitPullProcessor.REMOTE_REPO_BRANCH_CONFIG_KEY, Constants.MASTER);
+        config.setProperty(GitPullProcessor.REMOTE_REPO_CLONE_SINGLE_BRANCH_CONFIG_KEY, true);
+
+        GitPullProcessor processor = new GitPullProcessor();
+
+        initProcessor(processor, config);
+
+        Deployment deployment = createDeployment();
+
+        processor.execute(deployment);
+
+        assertEquals(Deployment.Status.SUCCESS, getExecution(deployment).getStatus());
+
+        try (Git git = Git.open(localRepoFolder)) {
+            Repository repo = git.getRepository();
+
+            assertEquals(Constants.MASTER, repo.getBranch());
+            assertNotNull(repo.exactRef(Constants.R_REMOTES + Constants.DEFAULT_REMOTE_NAME + "/" + Constants.MASTER));
+            assertNull(repo.exactRef(Constants.R_REMOTES + Constants.DEFAULT_REMOTE_NAME + "/other"));
+            // Later pulls only fetch the cloned branch
+            assertEquals("+refs/heads/master:refs/remotes/origin/master",
+                         repo.getConfig().getString(GitUtils.REMOTE_CONFIG_SECTION, Constants.DEFAULT_REMOTE_NAME,
+                                                    GitUtils.FETCH_CONFIG_PARAM));
+        }
+    }
+
+    private GitPullProcessor createProcessor() throws Exception {
+        GitPullProcessor processor = new GitPullProcessor();
+
+        initProcessor(processor);
+
+        return processor;
+    }
+
+    private BaseConfiguration createConfiguration() {
+        BaseConfiguration config = new BaseConfiguration();
+        config.setProperty(GitPullProcessor.REMOTE_REPO_URL_CONFIG_KEY, remoteRepoFolder.getAbsolutePath());
+
+        return config;
+    }
+
+    private void initProcessor(GitPullProcessor processor) throws Exception {
+        initProcessor(processor, createConfiguration());
+    }
+
+    private void initProcessor(GitPullProcessor processor, BaseConfiguration config) throws Exception {
+        processor.setBeanName("gitPullProcessor");
+        processor.setEnv("test");
+        processor.setSiteName("test");
+        processor.setTargetId(TARGET_ID);
+        processor.setLocalRepoFolder(localRepoFolder);
+        processor.setSkipIfUpToDate(true);
+        processor.setProcessedCommitsStore(processedCommitsStore);
+        processor.setDeploymentMetrics(deploymentMetrics);
+        processor.init(config);
+    }
+
+    private void cloneAndMarkProcessed(GitPullProcessor processor) throws Exception {
+        Deployment deployment = createDeployment();
+
+        processor.execute(deployment);
+
+        assertEquals(Deployment.Status.SUCCESS, getExecution(deployment).getStatus());
+
+        when(processedCommitsStore.load(TARGET_ID)).thenReturn(getLocalHead());
+    }
+
+    private ObjectId pushCommit(String path, String content) throws Exception {
+        FileUtils.writeStringToFile(new File(workRepoFolder, path), content, "UTF-8");
+
+        workGit.add().addFilepattern(path).call();
+
+        ObjectId commitId = workGit.commit().setMessage("Update " + path + " to " + content).call().getId();
+
+        workGit.push()
+               .setRemote(remoteRepoFolder.getAbsolutePath())
+               .setRefSpecs(new RefSpec(Constants.R_HEADS + Constants.MASTER + ":" + Constants.R_HEADS + Constants.MASTER))
+               .call();
+
+        return commitId;
+    }
+
+    private ObjectId getLocalHead() throws Exception {
+        try (Git git = Git.open(localRepoFolder)) {
+            return git.getRepository().resolve(Constants.HEAD);
+        }
+    }
+
+    private Deployment createDeployment() {
+        Deployment deployment = new Deployment(mock(Target.class));
+        deployment.start();
+
+        return deployment;
+    }
+
+    private ProcessorExecution getExecution(Deployment deployment) {
+        return deployment.getProcessorExecutions().get(0);
+    }
+
+}
@@ -0,0 +1,251 @@
+/*
+ * Copyright (C) 2007-2017 Crafter Software Corporation.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.craftercms.deployer.impl.processors;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.commons.configuration2.BaseConfiguration;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.StatusLine;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.util.EntityUtils;
+import org.craftercms.deployer.api.ChangeSet;
+import org.craftercms.deployer.api.Deployment;
+import org.craftercms.deployer.api.ProcessorExecution;
+import org.craftercms.deployer.api.Target;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class HttpMethodCallProcessorTest {
+
+    private HttpMethodCallProcessor processor;
+    private CloseableHttpClient httpClient;
+    private List<String> requests;
+    private AtomicInteger failuresLeft;
+    private ExecutorService httpCallExecutor;
+
+    @Before
+    public void setUp() throws Exception {
+        requests = Collections.synchronizedList(new ArrayList<>());
+        failuresLeft = new AtomicInteger();
+        httpClient = createHttpClient();
+        httpCallExecutor = Executors.newFixedThreadPool(4);
+
+        processor = new HttpMethodCallProcessor();
+        processor.setBeanName("httpMethodCallProcessor");
+        processor.setEnv("test");
+        processor.setSiteName("test");
+        processor.setTargetId("test-test");
+        processor.setHttpClient(httpClient);
+        processor.setHttpCallExecutor(httpCallExecutor);
+        processor.setRetryBackoff(1);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        httpCallExecutor.shutdownNow();
+    }
+
+    @Test
+    public void testChangeSetBatches() throws Exception {
+        BaseConfiguration config = new BaseConfiguration();
+        config.setProperty(HttpMethodCallProcessor.URLS_CONFIG_KEY,
+                           Arrays.asList("http://node1/invalidate", "http://node2/invalidate"));
+        config.setProperty(HttpMethodCallProcessor.METHOD_CONFIG_KEY, "POST");
+        config.setProperty(HttpMethodCallProcessor.SEND_CHANGE_SET_CONFIG_KEY, true);
+        config.setProperty(HttpMethodCallProcessor.BATCH_SIZE_CONFIG_KEY, 2);
+        config.setProperty(HttpMethodCallProcessor.PARALLELISM_CONFIG_KEY, 3);
+
+        processor.init(config);
+
+        Deployment deployment = createDeployment();
+
+        processor.execute(deployment);
+
+        // 3 batches (of 2, 2 and 1 files) for each of the 2 URLs
+        assertEquals(6, requests.size());
+        assertEquals(Deployment.Status.SUCCESS, getExecution(deployment).getStatus());
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        int files = 0;
+
+        for (String request : requests) {
+            JsonNode body = objectMapper.readTree(request.substring(request.indexOf(' ') + 1));
+            files += body.get("created_files").size() + body.get("updated_files").size() + body.get("deleted_files").size();
+        }
+
+        assertEquals(10, files);
+    }
+
+    @Test
+    public void testRetries() throws Exception {
+        failuresLeft.set(2);
+
+        BaseConfiguration config = new BaseConfiguration();
+        config.setProperty(HttpMethodCallProcessor.URL_CONFIG_KEY, "http://node1/clear");
+        config.setProperty(HttpMethodCallProcessor.METHOD_CONFIG_KEY, "GET");
+        config.setProperty(HttpMethodCallProcessor.RETRY_MAX_ATTEMPTS_CONFIG_KEY, 3);
+
+        processor.init(config);
+
+        Deployment deployment = createDeployment();
+
+        processor.execute(deployment);
+
+        assertEquals(3, requests.size());
+        assertEquals(Deployment.Status.SUCCESS, getExecution(deployment).getStatus());
+    }
+
+    @Test
+    public void testParallelMode() throws Exception {
+        BaseConfiguration config = new BaseConfiguration();
+        config.setProperty(HttpMethodCallProcessor.URL_CONFIG_KEY, "http://node1/clear");
+        config.setProperty(HttpMethodCallProcessor.METHOD_CONFIG_KEY, "GET");
+        config.setProperty(HttpMethodCallProcessor.MODE_CONFIG_KEY, "parallel");
+
+        processor.init(config);
+
+        Deployment deployment = createDeployment();
+
+        processor.execute(deployment);
+        deployment.awaitPendingTasks();
+
+        assertEquals(1, requests.size());
+        assertEquals(Deployment.Status.SUCCESS, getExecution(deployment).getStatus());
+    }
+
+    @Test
+    public void testParallelModeWithFailingUrl() throws Exception {
+        BaseConfiguration config = new BaseConfiguration();
+        config.setProperty(HttpMethodCallProcessor.URLS_CONFIG_KEY,
+                           Arrays.asList("http://node1/invalidate", "http://node2/fail", "http://node3/invalidate"));
+        config.setProperty(HttpMethodCallProcessor.METHOD_CONFIG_KEY, "POST");
+        config.setProperty(HttpMethodCallProcessor.MODE_CONFIG_KEY, "parallel");
+        config.setProperty(HttpMethodCallProcessor.SEND_CHANGE_SET_CONFIG_KEY, true);
+        config.setProperty(HttpMethodCallProcessor.BATCH_SIZE_CONFIG_KEY, 2);
+        config.setProperty(HttpMethodCallProcessor.PARALLELISM_CONFIG_KEY, 4);
+
+        processor.init(config);
+
+        Deployment deployment = createDeployment();
+
+        processor.execute(deployment);
+        deployment.awaitPendingTasks();
+
+        ProcessorExecution execution = getExecution(deployment);
+
+        // 3 batches for each of the 3 URLs, the 3 batches of node2 fail
+        assertEquals(9, requests.size());
+        assertFalse(execution.isRunning());
+        assertEquals(Deployment.Status.FAILURE, execution.getStatus());
+        assertEquals("6 of 9 requests successful", execution.getStatusDetails());
+    }
+
+    @Test
+    public void testAsyncModeFailure() throws Exception {
+        failuresLeft.set(1);
+
+        BaseConfiguration config = new BaseConfiguration();
+        config.setProperty(HttpMethodCallProcessor.URL_CONFIG_KEY, "http://node1/clear");
+        config.setProperty(HttpMethodCallProcessor.METHOD_CONFIG_KEY, "GET");
+        config.setProperty(HttpMethodCallProcessor.MODE_CONFIG_KEY, "async");
+
+        processor.init(config);
+
+        Deployment deployment = createDeployment();
+
+        processor.execute(deployment);
+
+        ProcessorExecution execution = getExecution(deployment);
+
+        // The execution is ended when the call is done, not when the processor returns
+        for (int i = 0; i < 100 && execution.isRunning(); i++) {
+            Thread.sleep(50);
+        }
+
+        assertEquals(1, requests.size());
+        assertFalse(execution.isRunning());
+        assertEquals(Deployment.Status.FAILURE, execution.getStatus());
+    }
+
+    private Deployment createDeployment() {
+        Deployment deployment = new Deployment(mock(Target.class));
+        deployment.setChangeSet(new ChangeSet(Arrays.asList("/site/website/index.xml", "/static-assets/doc.pdf"),
+                                              Arrays.asList("/site/website/about/index.xml", "/site/website/contact/index.xml"),
+                                              Collections.singletonList("/site/website/old/index.xml")));
+        deployment.start();
+
+        return deployment;
+    }
+
+    private ProcessorExecution getExecution(Deployment deployment) {
+        return deployment.getProcessorExecutions().get(0);
+    }
+
+    private CloseableHttpClient createHttpClient() throws Exception {
+        CloseableHttpResponse successResponse = createResponse(200);
+        CloseableHttpResponse errorResponse = createResponse(503);
+        CloseableHttpClient client = mock(CloseableHttpClient.class);
+
+        when(client.execute(any(HttpUriRequest.class))).thenAnswer(invocation -> {
+            HttpUriRequest request = (HttpUriRequest) invocation.getArguments()[0];
+            String body = "";
+
+            if (request instanceof HttpEntityEnclosingRequest) {
+                body = EntityUtils.toString(((HttpEntityEnclosingRequest) request).getEntity());
+            }
+
+            requests.add(request.getURI() + " " + body);
+
+            if (request.getURI().getPath().startsWith("/fail") || failuresLeft.getAndDecrement() > 0) {
+                return errorResponse;
+            } else {
+                return successResponse;
+            }
+        });
+
+        return client;
+    }
+
+    private CloseableHttpResponse createResponse(int status) {
+        StatusLine statusLine = mock(StatusLine.class);
+        when(statusLine.getStatusCode()).thenReturn(status);
+
+        CloseableHttpResponse response = mock(CloseableHttpResponse.class);
+        when(response.getStatusLine()).thenReturn(statusLine);
+
+        return response;
+    }
+
+}
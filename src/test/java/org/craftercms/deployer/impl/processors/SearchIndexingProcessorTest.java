@@ -0,0 +1,222 @@
+/*
+ * Copyright (C) 2007-2017 Crafter Software Corporation.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.craftercms.deployer.impl.processors;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.configuration2.BaseConfiguration;
+import org.craftercms.core.service.ContentStoreService;
+import org.craftercms.core.service.Context;
+import org.craftercms.deployer.api.ChangeSet;
+import org.craftercms.deployer.api.Deployment;
+import org.craftercms.deployer.api.ProcessorExecution;
+import org.craftercms.deployer.api.Target;
+import org.craftercms.deployer.api.exceptions.DeployerConfigurationException;
+import org.craftercms.deployer.impl.SearchCommitCoalescer;
+import org.craftercms.search.batch.BatchIndexer;
+import org.craftercms.search.batch.UpdateSet;
+import org.craftercms.search.batch.UpdateStatus;
+import org.craftercms.search.service.SearchService;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class SearchIndexingProcessorTest {
+
+    private static final String INDEX_ID = "test";
+
+    private SearchIndexingProcessor processor;
+    private SearchService searchService;
+    private BatchIndexer xmlIndexer;
+    private BatchIndexer binaryIndexer;
+    private List<String> indexedPaths;
+    private AtomicInteger indexerCalls;
+    private ExecutorService indexingExecutor;
+
+    @Before
+    public void setUp() throws Exception {
+        searchService = mock(SearchService.class);
+        indexedPaths = Collections.synchronizedList(new ArrayList<>());
+        indexerCalls = new AtomicInteger();
+        xmlIndexer = createBatchIndexer();
+        binaryIndexer = createBatchIndexer();
+        indexingExecutor = Executors.newFixedThreadPool(4);
+
+        processor = new SearchIndexingProcessor();
+        processor.setBeanName("searchIndexingProcessor");
+        processor.setEnv("test");
+        processor.setSiteName("test");
+        processor.setTargetId("test-test");
+        processor.setLocalRepoUrl("file:/tmp/test");
+        processor.setContentStoreService(mock(ContentStoreService.class));
+        processor.setSearchService(searchService);
+        processor.setBatchIndexers(Arrays.asList(xmlIndexer, binaryIndexer));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        indexingExecutor.shutdownNow();
+    }
+
+    @Test
+    public void testEachPathIndexedOncePerIndexer() throws Exception {
+        processor.init(createConfiguration());
+
+        Deployment deployment = createDeployment();
+
+        processor.execute(deployment);
+
+        // One call per indexer, even when the change set has created, updated and deleted files
+        assertEquals(2, indexerCalls.get());
+        assertEquals(8, indexedPaths.size());
+        assertEquals(Deployment.Status.SUCCESS, getExecution(deployment).getStatus());
+        assertEquals(8, ((UpdateStatus) getExecution(deployment).getStatusDetails()).getAttemptedUpdatesAndDeletes());
+
+        verify(searchService, times(1)).commit(INDEX_ID);
+    }
+
+    @Test
+    public void testParallelIndexing() throws Exception {
+        processor.setIndexingExecutor(indexingExecutor);
+        processor.setParallelism(2);
+        processor.setChunkSize(1);
+        processor.init(createConfiguration());
+
+        Deployment deployment = createDeployment();
+
+        processor.execute(deployment);
+
+        // 3 chunks with 1 update path each, plus 1 chunk with the delete path, each one indexed by the 2 indexers
+        assertEquals(8, indexerCalls.get());
+        assertEquals(8, indexedPaths.size());
+        assertEquals(Deployment.Status.SUCCESS, getExecution(deployment).getStatus());
+        assertEquals(8, ((UpdateStatus) getExecution(deployment).getStatusDetails()).getAttemptedUpdatesAndDeletes());
+
+        verify(searchService, times(1)).commit(INDEX_ID);
+    }
+
+    @Test
+    public void testDeferredCommit() throws Exception {
+        SearchCommitCoalescer commitCoalescer = new SearchCommitCoalescer();
+
+        processor.setSearchServerUrl("http://localhost:8080/crafter-search");
+        processor.setCommitStrategy("deferred");
+        processor.setCommitCoalescer(commitCoalescer);
+        processor.init(createConfiguration());
+
+        processor.execute(createDeployment());
+        processor.execute(createDeployment());
+
+        verify(searchService, never()).commit(INDEX_ID);
+        assertEquals(1, commitCoalescer.getPendingCommitsCount());
+
+        commitCoalescer.flush();
+
+        verify(searchService, times(1)).commit(INDEX_ID);
+        assertEquals(0, commitCoalescer.getPendingCommitsCount());
+    }
+
+    @Test
+    public void testInvalidCommitStrategy() throws Exception {
+        try {
+            processor.setCommitStrategy("soft");
+
+            fail("Expected " + DeployerConfigurationException.class.getSimpleName());
+        } catch (DeployerConfigurationException e) {
+            assertTrue(e.getMessage().contains(SearchIndexingProcessor.DEFAULT_COMMIT_STRATEGY_PROPERTY_NAME));
+            assertTrue(e.getMessage().contains("[HARD, DEFERRED, NONE]"));
+        }
+
+        BaseConfiguration config = createConfiguration();
+        config.setProperty(SearchIndexingProcessor.COMMIT_STRATEGY_CONFIG_KEY, "soft");
+
+        try {
+            processor.init(config);
+
+            fail("Expected " + DeployerConfigurationException.class.getSimpleName());
+        } catch (DeployerConfigurationException e) {
+            assertTrue(e.getMessage().contains(SearchIndexingProcessor.COMMIT_STRATEGY_CONFIG_KEY));
+            assertTrue(e.getMessage().contains("[HARD, DEFERRED, NONE]"));
+        }
+    }
+
+    private BaseConfiguration createConfiguration() {
+        BaseConfiguration config = new BaseConfiguration();
+        config.setProperty(SearchIndexingProcessor.INDEX_ID_CONFIG_KEY, INDEX_ID);
+
+        return config;
+    }
+
+    private Deployment createDeployment() {
+        Deployment deployment = new Deployment(mock(Target.class));
+        deployment.setChangeSet(new ChangeSet(Arrays.asList("/site/website/index.xml", "/static-assets/doc.pdf"),
+                                              Collections.singletonList("/site/website/about/index.xml"),
+                                              Collections.singletonList("/site/website/old/index.xml")));
+        deployment.start();
+
+        return deployment;
+    }
+
+    private ProcessorExecution getExecution(Deployment deployment) {
+        return deployment.getProcessorExecutions().get(0);
+    }
+
+    private BatchIndexer createBatchIndexer() throws Exception {
+        BatchIndexer indexer = mock(BatchIndexer.class);
+
+        doAnswer(invocation -> {
+            UpdateSet updateSet = (UpdateSet) invocation.getArguments()[5];
+            UpdateStatus updateStatus = (UpdateStatus) invocation.getArguments()[6];
+
+            indexerCalls.incrementAndGet();
+
+            for (String path : updateSet.getUpdatePaths()) {
+                indexedPaths.add(path);
+                updateStatus.incrementAttemptedUpdatesAndDeletes();
+                updateStatus.addSuccessfulUpdate(path);
+            }
+            for (String path : updateSet.getDeletePaths()) {
+                indexedPaths.add(path);
+                updateStatus.incrementAttemptedUpdatesAndDeletes();
+                updateStatus.addSuccessfulDelete(path);
+            }
+
+            return null;
+        }).when(indexer).updateIndex(any(SearchService.class), anyString(), anyString(), any(ContentStoreService.class),
+                                     any(Context.class), any(UpdateSet.class), any(UpdateStatus.class));
+
+        return indexer;
+    }
+
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2007-2017 Crafter Software Corporation.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.craftercms.deployer.utils;
+
+import java.io.File;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.core.io.FileSystemResource;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Unit tests for {@link CachedResource}.
+ *
+ * @author avasquez
+ */
+public class CachedResourceTest {
+
+    private File file;
+    private AtomicInteger parseCount;
+    private CachedResource<String> cachedResource;
+
+    @Before
+    public void setUp() throws Exception {
+        file = File.createTempFile("cached", ".txt");
+        parseCount = new AtomicInteger();
+        cachedResource = new CachedResource<>(new FileSystemResource(file), resource -> {
+            parseCount.incrementAndGet();
+
+            return FileUtils.readFileToString(resource.getFile(), "UTF-8");
+        });
+
+        FileUtils.writeStringToFile(file, "foo", "UTF-8");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        FileUtils.deleteQuietly(file);
+    }
+
+    @Test
+    public void testGet() throws Exception {
+        assertEquals("foo", cachedResource.get());
+        assertEquals("foo", cachedResource.get());
+        assertEquals(1, parseCount.get());
+    }
+
+    @Test
+    public void testGetAfterChange() throws Exception {
+        assertEquals("foo", cachedResource.get());
+
+        FileUtils.writeStringToFile(file, "bar", "UTF-8");
+        file.setLastModified(file.lastModified() + 2000);
+
+        assertEquals("bar", cachedResource.get());
+        assertEquals(2, parseCount.get());
+
+        FileUtils.deleteQuietly(file);
+
+        assertNull(cachedResource.get());
+    }
+
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright (C) 2007-2017 Crafter Software Corporation.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.craftercms.deployer.utils;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Iterator;
+import java.util.Properties;
+
+import org.apache.commons.io.FileUtils;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.StoredConfig;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.storage.file.FileBasedConfig;
+import org.eclipse.jgit.util.FS;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for {@link GitUtils}.
+ *
+ * @author avasquez
+ */
+public class GitUtilsTest {
+
+    private File repoFolder;
+    private Git git;
+
+    @Before
+    public void setUp() throws Exception {
+        repoFolder = Files.createTempDirectory("git-utils").toFile();
+        git = Git.init().setDirectory(repoFolder).call();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        git.close();
+
+        FileUtils.deleteQuietly(repoFolder);
+    }
+
+    @Test
+    public void testUpdateCoreConfig() throws Exception {
+        // Null values are ignored
+        assertFalse(GitUtils.updateCoreConfig(git, null, null, null));
+        assertNull(getSavedConfig().getString(GitUtils.CORE_CONFIG_SECTION, null, GitUtils.BIG_FILE_THRESHOLD_CONFIG_PARAM));
+
+        assertTrue(GitUtils.updateCoreConfig(git, "10m", 1, true));
+
+        StoredConfig config = getSavedConfig();
+
+        assertEquals("10m", config.getString(GitUtils.CORE_CONFIG_SECTION, null, GitUtils.BIG_FILE_THRESHOLD_CONFIG_PARAM));
+        assertEquals(1, config.getInt(GitUtils.CORE_CONFIG_SECTION, GitUtils.COMPRESSION_CONFIG_PARAM, -1));
+        assertTrue(config.getBoolean(GitUtils.CORE_CONFIG_SECTION, GitUtils.FILE_MODE_CONFIG_PARAM, false));
+
+        // Nothing changed, so the config is not saved again
+        long lastModified = getConfigFile().lastModified();
+
+        assertFalse(GitUtils.updateCoreConfig(git, "10m", 1, true));
+        assertFalse(GitUtils.updateCoreConfig(git, null, 1, null));
+        assertEquals(lastModified, getConfigFile().lastModified());
+
+        assertTrue(GitUtils.updateCoreConfig(git, null, 2, null));
+
+        config = getSavedConfig();
+
+        assertEquals("10m", config.getString(GitUtils.CORE_CONFIG_SECTION, null, GitUtils.BIG_FILE_THRESHOLD_CONFIG_PARAM));
+        assertEquals(2, config.getInt(GitUtils.CORE_CONFIG_SECTION, GitUtils.COMPRESSION_CONFIG_PARAM, -1));
+    }
+
+    @Test
+    public void testUpdatePackConfig() throws Exception {
+        // Null values are ignored
+        assertFalse(GitUtils.updatePackConfig(git, null, null, null));
+        assertNull(getSavedConfig().getString(GitUtils.PACK_CONFIG_SECTION, null, GitUtils.WINDOW_CONFIG_PARAM));
+
+        assertTrue(GitUtils.updatePackConfig(git, 20, null, 2));
+
+        StoredConfig config = getSavedConfig();
+
+        assertEquals(20, config.getInt(GitUtils.PACK_CONFIG_SECTION, GitUtils.WINDOW_CONFIG_PARAM, -1));
+        assertNull(config.getString(GitUtils.PACK_CONFIG_SECTION, null, GitUtils.DEPTH_CONFIG_PARAM));
+        assertEquals(2, config.getInt(GitUtils.PACK_CONFIG_SECTION, GitUtils.THREADS_CONFIG_PARAM, -1));
+
+        // Nothing changed, so the config is not saved again
+        long lastModified = getConfigFile().lastModified();
+
+        assertFalse(GitUtils.updatePackConfig(git, 20, null, 2));
+        assertEquals(lastModified, getConfigFile().lastModified());
+
+        assertTrue(GitUtils.updatePackConfig(git, null, 50, null));
+        assertEquals(50, getSavedConfig().getInt(GitUtils.PACK_CONFIG_SECTION, GitUtils.DEPTH_CONFIG_PARAM, -1));
+    }
+
+    @Test
+    public void testGarbageCollect() throws Exception {
+        for (int i = 1; i <= 3; i++) {
+            FileUtils.writeStringToFile(new File(repoFolder, "file" + i + ".txt"), "content " + i, "UTF-8");
+
+            git.add().addFilepattern(".").call();
+            git.commit().setMessage("Commit " + i).call();
+        }
+
+        ObjectId headBefore = git.getRepository().resolve(Constants.HEAD);
+        Properties stats = GitUtils.garbageCollect(git, false);
+
+        assertNotNull(stats);
+
+        File packFolder = new File(repoFolder, Constants.DOT_GIT + "/objects/pack");
+        File[] packFiles = packFolder.listFiles((dir, name) -> name.endsWith(".pack"));
+
+        assertNotNull(packFiles);
+        assertTrue(packFiles.length > 0);
+
+        // The repository is still usable after the gc
+        try (Git reopenedGit = GitUtils.openRepository(repoFolder)) {
+            assertEquals(headBefore, reopenedGit.getRepository().resolve(Constants.HEAD));
+            assertEquals(3, countCommits(reopenedGit));
+        }
+    }
+
+    private StoredConfig getSavedConfig() throws Exception {
+        // Read the file directly, since the config of the open repository is cached in memory
+        FileBasedConfig config = new FileBasedConfig(getConfigFile(), FS.DETECTED);
+        config.load();
+
+        return config;
+    }
+
+    private File getConfigFile() {
+        return new File(repoFolder, Constants.DOT_GIT + "/" + Constants.CONFIG);
+    }
+
+    private int countCommits(Git git) throws Exception {
+        int count = 0;
+        for (Iterator<RevCommit> iter = git.log().call().iterator(); iter.hasNext(); iter.next()) {
+            count++;
+        }
+
+        return count;
+    }
+
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright (C) 2007-2017 Crafter Software Corporation.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.craftercms.deployer.utils;
+
+import org.craftercms.commons.lang.RegexUtils;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Unit tests for {@link PathFilter}.
+ *
+ * @author avasquez
+ */
+public class PathFilterTest {
+
+    private static final String[] INCLUDES = { "^/site/.*$", "/static-assets/.*\\.css", "/config/studio/site-config" };
+    private static final String[] EXCLUDES = { "/site/components/.*", ".*\\.tmp" };
+    private static final String[] PATHS = {
+        "/site/website/index.xml", "/site/components/header.xml", "/site/website/draft.tmp", "/static-assets/css/main.css",
+        "/static-assets/js/main.js", "/config/studio/site-config", "/config/studio/site-config.xml", "/templates/web/page.ftl"
+    };
+
+    @Test
+    public void testMatchesLikeRegexUtils() throws Exception {
+        PathFilter filter = PathFilter.create(INCLUDES, EXCLUDES);
+
+        for (String path : PATHS) {
+            boolean expected = RegexUtils.matchesAny(path, INCLUDES) && !RegexUtils.matchesAny(path, EXCLUDES);
+
+            assertEquals(path, expected, filter.test(path));
+        }
+    }
+
+    @Test
+    public void testKey() throws Exception {
+        assertNull(PathFilter.create(null, new String[0]));
+        assertEquals(PathFilter.create(INCLUDES, EXCLUDES).getKey(), PathFilter.create(INCLUDES.clone(), EXCLUDES.clone()).getKey());
+        assertNotEquals(PathFilter.create(INCLUDES, null).getKey(), PathFilter.create(null, INCLUDES).getKey());
+        // Patterns that would have the same string representation when joined
+        assertNotEquals(PathFilter.create(new String[] { "/site/a, /site/b" }, null).getKey(),
+                        PathFilter.create(new String[] { "/site/a", "/site/b" }, null).getKey());
+    }
+
+}
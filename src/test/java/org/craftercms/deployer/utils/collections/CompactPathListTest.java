@@ -0,0 +1,163 @@
+/*
+ * Copyright (C) 2007-2017 Crafter Software Corporation.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.craftercms.deployer.utils.collections;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for {@link CompactPathList}.
+ *
+ * @author avasquez
+ */
+public class CompactPathListTest {
+
+    private static final int PATHS = 10000;
+    private static final int BENCHMARK_PATHS = 500000;
+
+    @Test
+    public void testGetAndIterate() throws Exception {
+        CompactPathList list = new CompactPathList();
+        List<String> expected = new ArrayList<>();
+
+        for (int i = 0; i < PATHS; i++) {
+            String path = createPath(i);
+
+            list.add(path);
+            expected.add(path);
+        }
+
+        assertEquals(PATHS, list.size());
+
+        for (int i = PATHS - 1; i >= 0; i -= 7) {
+            assertEquals(expected.get(i), list.get(i));
+        }
+
+        Iterator<String> iterator = list.iterator();
+        for (String path : expected) {
+            assertTrue(iterator.hasNext());
+            assertEquals(path, iterator.next());
+        }
+
+        assertFalse(iterator.hasNext());
+
+        // A cursor can go back, skip ahead and repeat indexes
+        CompactPathList.Cursor cursor = list.cursor();
+
+        assertEquals(expected.get(20), cursor.get(20));
+        assertEquals(expected.get(20), cursor.get(20));
+        assertEquals(expected.get(18), cursor.get(18));
+        assertEquals(expected.get(500), cursor.get(500));
+    }
+
+    @Test
+    public void testAddAfterTrimToSize() throws Exception {
+        CompactPathList list = new CompactPathList();
+        list.trimToSize();
+        list.add("/site/website/index.xml");
+        list.trimToSize();
+        list.add("/site/website/about/index.xml");
+
+        assertEquals(2, list.size());
+        assertEquals("/site/website/index.xml", list.get(0));
+        assertEquals("/site/website/about/index.xml", list.get(1));
+    }
+
+    @Test
+    public void testMemoryUsage() throws Exception {
+        CompactPathList list = new CompactPathList();
+        long pathBytes = 0;
+
+        for (int i = 0; i < PATHS; i++) {
+            String path = createPath(i);
+
+            list.add(path);
+            pathBytes += path.getBytes(StandardCharsets.UTF_8).length;
+        }
+
+        list.trimToSize();
+
+        // Paths with long shared prefixes should take less than half their raw size (offsets included)
+        assertTrue(list.getMemoryUsage() * 2 < pathBytes);
+    }
+
+    /**
+     * Compares the heap used by {@link CompactPathList} against an {@code ArrayList<String>} with the same paths. Heap
+     * measurements depend on the JVM and the GC, so it's not run by default.
+     */
+    @Test
+    @Ignore("Benchmark, run manually")
+    public void testMemoryUsageComparedToArrayList() throws Exception {
+        long baseline = getUsedMemory();
+        List<String> arrayList = new ArrayList<>();
+
+        for (int i = 0; i < BENCHMARK_PATHS; i++) {
+            arrayList.add(createPath(i));
+        }
+
+        long arrayListMemory = getUsedMemory() - baseline;
+
+        assertEquals(BENCHMARK_PATHS, arrayList.size());
+
+        arrayList = null;
+        baseline = getUsedMemory();
+
+        CompactPathList compactList = new CompactPathList();
+
+        for (int i = 0; i < BENCHMARK_PATHS; i++) {
+            compactList.add(createPath(i));
+        }
+
+        compactList.trimToSize();
+
+        long compactListMemory = getUsedMemory() - baseline;
+
+        assertEquals(BENCHMARK_PATHS, compactList.size());
+
+        System.out.printf("%d paths: ArrayList<String> = %d KB, CompactPathList = %d KB (%d KB reported)%n", BENCHMARK_PATHS,
+                          arrayListMemory / 1024, compactListMemory / 1024, compactList.getMemoryUsage() / 1024);
+
+        // Coarse check, the actual ratio is a lot lower
+        assertTrue(compactListMemory * 2 < arrayListMemory);
+    }
+
+    private long getUsedMemory() throws Exception {
+        Runtime runtime = Runtime.getRuntime();
+
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private String createPath(int i) {
+        // Paths are generated sorted, like the ones returned by a Git tree walk
+        return String.format("/site/website/section-%03d/article-%07d/index.xml", i / 500, i);
+    }
+
+}
@@ -0,0 +1,214 @@
+/*
+ * Copyright (C) 2007-2017 Crafter Software Corporation.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.craftercms.deployer.utils.git;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jgit.errors.TransportException;
+import org.eclipse.jgit.transport.CredentialsProvider;
+import org.eclipse.jgit.transport.RemoteSession;
+import org.eclipse.jgit.transport.SshSessionFactory;
+import org.eclipse.jgit.transport.URIish;
+import org.eclipse.jgit.util.FS;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.anyInt;
+import static org.mockito.Mockito.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link SshSessionPool}.
+ *
+ * @author avasquez
+ */
+public class SshSessionPoolTest {
+
+    private static final long IDLE_TIMEOUT = TimeUnit.MINUTES.toMillis(5);
+    private static final int MAX_IDLE_SESSIONS_PER_KEY = 2;
+
+    private SshSessionPool sessionPool;
+    private StubSshSessionFactory actualFactory;
+    private URIish uri;
+
+    @Before
+    public void setUp() throws Exception {
+        sessionPool = new SshSessionPool(IDLE_TIMEOUT, MAX_IDLE_SESSIONS_PER_KEY);
+        actualFactory = new StubSshSessionFactory();
+        uri = new URIish("ssh://git@example.com:22/repo.git");
+    }
+
+    @Test
+    public void testReuseSessionForSameKey() throws Exception {
+        SshSessionFactory factory = sessionPool.getSessionFactory(actualFactory, "key");
+
+        RemoteSession session1 = factory.getSession(uri, null, FS.DETECTED, 0);
+        factory.releaseSession(session1);
+
+        assertEquals(1, sessionPool.getIdleSessionsCount());
+
+        RemoteSession session2 = factory.getSession(uri, null, FS.DETECTED, 0);
+
+        assertSame(session1, session2);
+        assertEquals(1, actualFactory.createdSessions.size());
+        assertEquals(0, actualFactory.releasedSessions.size());
+        assertEquals(0, sessionPool.getIdleSessionsCount());
+    }
+
+    @Test
+    public void testSeparateSessionsForDifferentKeys() throws Exception {
+        SshSessionFactory factory1 = sessionPool.getSessionFactory(actualFactory, "key1");
+        SshSessionFactory factory2 = sessionPool.getSessionFactory(actualFactory, "key2");
+
+        factory1.releaseSession(factory1.getSession(uri, null, FS.DETECTED, 0));
+        factory2.releaseSession(factory2.getSession(uri, null, FS.DETECTED, 0));
+
+        assertEquals(2, actualFactory.createdSessions.size());
+        assertEquals(2, sessionPool.getIdleSessionsCount());
+
+        // Same credentials, different remote host
+        factory1.getSession(new URIish("ssh://git@example.org:22/repo.git"), null, FS.DETECTED, 0);
+
+        assertEquals(3, actualFactory.createdSessions.size());
+        assertEquals(2, sessionPool.getIdleSessionsCount());
+    }
+
+    @Test
+    public void testCredentialsKeys() throws Exception {
+        AbstractSshAuthConfigurator configurator1 = createPasswordAuthConfigurator("password1");
+        AbstractSshAuthConfigurator configurator2 = createPasswordAuthConfigurator("password2");
+        AbstractSshAuthConfigurator configurator3 = createPasswordAuthConfigurator("password1");
+
+        // The passwords are digested, so they're never part of the key in plain text
+        assertFalse(configurator1.getCredentialsKey().contains("password1"));
+        assertEquals(configurator1.getCredentialsKey(), configurator3.getCredentialsKey());
+        assertFalse(configurator1.getCredentialsKey().equals(configurator2.getCredentialsKey()));
+
+        RemoteSession session1 = configurator1.getSessionFactory().getSession(uri, null, FS.DETECTED, 0);
+        configurator1.getSessionFactory().releaseSession(session1);
+
+        // Different password, so the idle session is not shared
+        RemoteSession session2 = configurator2.getSessionFactory().getSession(uri, null, FS.DETECTED, 0);
+
+        assertNotSame(session1, session2);
+        assertEquals(2, actualFactory.createdSessions.size());
+
+        // Same password, so the idle session is reused
+        RemoteSession session3 = configurator3.getSessionFactory().getSession(uri, null, FS.DETECTED, 0);
+
+        assertSame(session1, session3);
+        assertEquals(2, actualFactory.createdSessions.size());
+    }
+
+    @Test
+    public void testEvictIdleSessions() throws Exception {
+        SshSessionFactory factory = sessionPool.getSessionFactory(actualFactory, "key");
+
+        RemoteSession session1 = factory.getSession(uri, null, FS.DETECTED, 0);
+        RemoteSession session2 = factory.getSession(uri, null, FS.DETECTED, 0);
+        RemoteSession session3 = factory.getSession(uri, null, FS.DETECTED, 0);
+
+        factory.releaseSession(session1);
+        factory.releaseSession(session2);
+        factory.releaseSession(session3);
+
+        // Only the max idle sessions per key are kept, the rest are disconnected right away
+        assertEquals(MAX_IDLE_SESSIONS_PER_KEY, sessionPool.getIdleSessionsCount());
+        assertEquals(1, actualFactory.releasedSessions.size());
+        assertEquals(0, sessionPool.evictIdleSessions());
+
+        sessionPool.idleTimeout = 0;
+
+        assertEquals(MAX_IDLE_SESSIONS_PER_KEY, sessionPool.evictIdleSessions());
+        assertEquals(0, sessionPool.getIdleSessionsCount());
+        assertEquals(3, actualFactory.releasedSessions.size());
+    }
+
+    @Test
+    public void testNewSessionWhenPooledSessionDisconnected() throws Exception {
+        SshSessionFactory factory = sessionPool.getSessionFactory(actualFactory, "key");
+
+        RemoteSession session = factory.getSession(uri, null, FS.DETECTED, 0);
+        factory.releaseSession(session);
+
+        // The server closes the idle session
+        RemoteSession disconnectedSession = actualFactory.createdSessions.get(0);
+        when(disconnectedSession.exec(anyString(), anyInt())).thenThrow(new IOException("Session is down"));
+
+        session = factory.getSession(uri, null, FS.DETECTED, 0);
+        Process process = session.exec("git-upload-pack", 0);
+
+        assertEquals(2, actualFactory.createdSessions.size());
+        assertSame(actualFactory.processes.get(1), process);
+        assertTrue(actualFactory.releasedSessions.contains(disconnectedSession));
+    }
+
+    private AbstractSshAuthConfigurator createPasswordAuthConfigurator(String password) {
+        SshUsernamePasswordAuthConfigurator configurator = new SshUsernamePasswordAuthConfigurator(password) {
+
+            @Override
+            protected SshSessionFactory createSessionFactory() {
+                return actualFactory;
+            }
+
+        };
+        configurator.setSessionPool(sessionPool);
+
+        return configurator;
+    }
+
+    private static class StubSshSessionFactory extends SshSessionFactory {
+
+        private List<RemoteSession> createdSessions = new ArrayList<>();
+        private List<RemoteSession> releasedSessions = new ArrayList<>();
+        private List<Process> processes = new ArrayList<>();
+
+        @Override
+        public RemoteSession getSession(URIish uri, CredentialsProvider credentialsProvider, FS fs,
+                                        int tms) throws TransportException {
+            RemoteSession session = mock(RemoteSession.class);
+            Process process = mock(Process.class);
+
+            try {
+                when(session.exec(anyString(), anyInt())).thenReturn(process);
+            } catch (IOException e) {
+                throw new TransportException(uri, "Unable to stub session", e);
+            }
+
+            createdSessions.add(session);
+            processes.add(process);
+
+            return session;
+        }
+
+        @Override
+        public void releaseSession(RemoteSession session) {
+            releasedSessions.add(session);
+        }
+
+    }
+
+}
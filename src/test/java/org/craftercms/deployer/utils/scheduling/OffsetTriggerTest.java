@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2007-2017 Crafter Software Corporation.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.craftercms.deployer.utils.scheduling;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.springframework.scheduling.support.CronTrigger;
+import org.springframework.scheduling.support.SimpleTriggerContext;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for {@link OffsetTrigger}.
+ *
+ * @author avasquez
+ */
+public class OffsetTriggerTest {
+
+    private static final long PERIOD = TimeUnit.MINUTES.toMillis(1);
+    private static final long OFFSET = TimeUnit.SECONDS.toMillis(15);
+
+    @Test
+    public void testFirstExecutionTime() throws Exception {
+        OffsetTrigger trigger = new OffsetTrigger(new CronTrigger("0 * * * * *"), OFFSET);
+        long now = System.currentTimeMillis();
+        Date next = trigger.nextExecutionTime(new SimpleTriggerContext());
+
+        // Shifted by the offset from the cron times, but still within the next period
+        assertEquals(OFFSET, next.getTime() % PERIOD);
+        assertTrue(next.getTime() > now);
+        assertTrue(next.getTime() <= now + PERIOD + 1000);
+    }
+
+    @Test
+    public void testNextExecutionTime() throws Exception {
+        OffsetTrigger trigger = new OffsetTrigger(new CronTrigger("0 * * * * *"), OFFSET);
+        Date lastScheduled = trigger.nextExecutionTime(new SimpleTriggerContext());
+        Date lastCompletion = new Date(lastScheduled.getTime() + 1000);
+        Date next = trigger.nextExecutionTime(new SimpleTriggerContext(lastScheduled, lastScheduled, lastCompletion));
+
+        assertEquals(lastScheduled.getTime() + PERIOD, next.getTime());
+    }
+
+    @Test
+    public void testGetOffsetForKey() throws Exception {
+        for (int i = 0; i < 1000; i++) {
+            String key = "site" + i + "-test";
+            long offset = OffsetTrigger.getOffsetForKey(key, OFFSET);
+
+            assertTrue(offset >= 0 && offset < OFFSET);
+            assertEquals(offset, OffsetTrigger.getOffsetForKey(key, OFFSET));
+        }
+
+        assertEquals(0, OffsetTrigger.getOffsetForKey("foobar-test", 0));
+    }
+
+}